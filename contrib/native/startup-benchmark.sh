@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+
+# Compares startup and no-op runs of the JVM and the native build against a running keycloak.
+#
+#   mvn -B package -DskipTests && contrib/native/build-in-container.sh
+#   docker-compose up -d keycloak
+#   contrib/native/startup-benchmark.sh [runs]
+
+set -eo pipefail
+
+RUNS="${1:-5}"
+JVM="java ${JAVA_OPTS} -jar ./target/keycloak-config-cli.jar"
+NATIVE="./target/keycloak-config-cli-native"
+CONFIG="contrib/example-config/moped.json"
+
+export SPRING_PROFILES_ACTIVE=dev
+export LOGGING_LEVEL_ROOT=WARN
+export LOGGING_LEVEL_DE_ADORSYS_KEYCLOAK_CONFIG=WARN
+
+EMPTY_DIR="$(mktemp -d)"
+trap 'rm -rf "${EMPTY_DIR}"' EXIT
+
+# prints the mean and the min wall time of all runs in milliseconds
+measure() {
+  local name="$1"
+  shift
+
+  local total=0 min=0
+  for ((run = 1; run <= RUNS; run++)); do
+    local start end duration
+    start="$(date +%s%N)"
+    "$@" >/dev/null
+    end="$(date +%s%N)"
+
+    duration=$(((end - start) / 1000000))
+    total=$((total + duration))
+    if ((min == 0 || duration < min)); then
+      min="${duration}"
+    fi
+  done
+
+  printf '%-24s mean %6d ms   min %6d ms\n' "${name}" $((total / RUNS)) "${min}"
+}
+
+# imports the config once, so the following runs are skipped by the unchanged checksum
+${JVM} --import.path="${CONFIG}" >/dev/null
+
+for binary in JVM NATIVE; do
+  command="${!binary}"
+
+  # shellcheck disable=SC2086
+  measure "${binary} startup" ${command} --import.path="${EMPTY_DIR}"
+  # shellcheck disable=SC2086
+  measure "${binary} no-op run" ${command} --import.path="${CONFIG}"
+done
@@ -0,0 +1,52 @@
+#!/usr/bin/env bash
+
+# Compares no-op runs of the docker image with and without its class data sharing archive against a running keycloak.
+#
+#   mvn -B package -DskipTests && docker build -t keycloak-config-cli:cds .
+#   docker-compose up -d keycloak
+#   contrib/scripts/docker-startup-benchmark.sh keycloak-config-cli:cds [runs]
+
+set -eo pipefail
+
+IMAGE="${1:?Missing docker image}"
+RUNS="${2:-5}"
+GIT_ROOT="$(git rev-parse --show-toplevel)"
+
+run() {
+  docker run --rm --network host \
+    -e KEYCLOAK_URL=http://localhost:8080 \
+    -e KEYCLOAK_USER=admin \
+    -e KEYCLOAK_PASSWORD=admin123 \
+    -e LOGGING_LEVEL_ROOT=WARN \
+    -e JAVA_OPTS="$1" \
+    -v "${GIT_ROOT}/contrib/example-config/:/config/" \
+    "${IMAGE}" >/dev/null
+}
+
+# prints the mean and the min wall time of all runs in milliseconds
+measure() {
+  local name="$1" java_opts="$2"
+
+  local total=0 min=0
+  for ((i = 1; i <= RUNS; i++)); do
+    local start end duration
+    start="$(date +%s%N)"
+    run "${java_opts}"
+    end="$(date +%s%N)"
+
+    duration=$(((end - start) / 1000000))
+    total=$((total + duration))
+    if ((min == 0 || duration < min)); then
+      min="${duration}"
+    fi
+  done
+
+  printf '%-24s mean %6d ms   min %6d ms\n' "${name}" $((total / RUNS)) "${min}"
+}
+
+# imports the config once, so the following runs are skipped by the unchanged checksum
+run ""
+
+measure "without CDS" "-Xshare:off"
+measure "with CDS" ""
+measure "with CDS, C1 only" "-XX:TieredStopAtLevel=1"
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import de.adorsys.keycloak.config.provider.ImportFileFormat;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Converts import files into the binary Smile format, e.g. to precompile JSON configs in CI. Runs without keycloak
+ * and without spring context:
+ *
+ * <pre>
+ * java -cp keycloak-config-cli.jar -Dloader.main=de.adorsys.keycloak.config.ImportFileConverter \
+ *     org.springframework.boot.loader.PropertiesLauncher &lt;source file or directory&gt; &lt;target directory&gt;
+ * </pre>
+ */
+public class ImportFileConverter {
+    private static final SmileFactory smileFactory = new SmileFactory();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ImportFileConverter <source file or directory> <target directory>");
+            System.exit(1);
+        }
+
+        File targetDirectory = new File(args[1]);
+        Files.createDirectories(targetDirectory.toPath());
+
+        for (File sourceFile : listSourceFiles(new File(args[0]))) {
+            File targetFile = convertToSmile(sourceFile, targetDirectory);
+            System.out.println("Converted '" + sourceFile + "' to '" + targetFile + "'");
+        }
+    }
+
+    private static List<File> listSourceFiles(File source) {
+        if (!source.isDirectory()) {
+            return Collections.singletonList(source);
+        }
+
+        return Optional.ofNullable(source.listFiles(File::isFile))
+                .map(Arrays::asList)
+                .orElse(Collections.emptyList());
+    }
+
+    /**
+     * Copies the token stream from the source parser to a smile generator, so the file is never loaded as a whole.
+     * Refuses to convert a file onto itself, opening the target would truncate the source before it is read.
+     */
+    public static File convertToSmile(File sourceFile, File targetDirectory) throws IOException {
+        File targetFile = new File(targetDirectory, getBaseName(sourceFile) + "." + ImportFileFormat.SMILE.getExtension());
+
+        if (targetFile.getCanonicalFile().equals(sourceFile.getCanonicalFile())) {
+            throw new IOException("Cannot convert '" + sourceFile + "' into itself, choose another target directory");
+        }
+
+        try (
+                InputStream inputStream = new BufferedInputStream(Files.newInputStream(sourceFile.toPath()));
+                OutputStream outputStream = Files.newOutputStream(targetFile.toPath())
+        ) {
+            ImportFileFormat format = ImportFileFormat.detect(sourceFile.getName(), inputStream);
+
+            try (
+                    JsonParser parser = format.createFactory().createParser(inputStream);
+                    JsonGenerator generator = smileFactory.createGenerator(outputStream)
+            ) {
+                while (parser.nextToken() != null) {
+                    generator.copyCurrentStructure(parser);
+                }
+            }
+        }
+
+        return targetFile;
+    }
+
+    private static String getBaseName(File file) {
+        String fileName = file.getName();
+        int extensionIndex = fileName.lastIndexOf('.');
+
+        return extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+    }
+}
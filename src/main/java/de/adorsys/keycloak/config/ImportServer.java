@@ -0,0 +1,271 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.exception.InvalidImportException;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.provider.KeycloakImportProvider;
+import de.adorsys.keycloak.config.service.RealmImportService;
+import de.adorsys.keycloak.config.service.report.ImportReport;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
+import de.adorsys.keycloak.config.service.trace.Span;
+import de.adorsys.keycloak.config.service.trace.TraceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the application, its admin client and caches alive and imports on request. Started instead of the one-off
+ * import if import.server-port is set.
+ * <p>
+ * <code>POST /import</code> imports the realm of the request body (JSON, YAML, Smile or CBOR, optionally named by the
+ * query parameter <code>file</code>), <code>POST /import?path=...</code> the file or directory at the given path below
+ * import.path. The response is the report of the request. Requests are imported one after another.
+ * <p>
+ * With import.server-token set, requests need the header <code>Authorization: Bearer &lt;token&gt;</code>. Without it
+ * the server only starts on a loopback address.
+ */
+@Component
+public class ImportServer implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ImportServer.class);
+
+    private static final String CONTEXT_PATH = "/import";
+
+    private final KeycloakImportProvider keycloakImportProvider;
+    private final RealmImportService realmImportService;
+    private final ImportReportService importReportService;
+    private final TraceService traceService;
+    private final ImportConfigProperties importConfigProperties;
+    private final ObjectWriter responseWriter = new ObjectMapper().writerWithDefaultPrettyPrinter();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @Autowired
+    public ImportServer(
+            KeycloakImportProvider keycloakImportProvider,
+            RealmImportService realmImportService,
+            ImportReportService importReportService,
+            TraceService traceService,
+            ImportConfigProperties importConfigProperties
+    ) {
+        this.keycloakImportProvider = keycloakImportProvider;
+        this.realmImportService = realmImportService;
+        this.importReportService = importReportService;
+        this.traceService = traceService;
+        this.importConfigProperties = importConfigProperties;
+    }
+
+    public synchronized void start() {
+        InetSocketAddress address = new InetSocketAddress(importConfigProperties.getServerAddress(), importConfigProperties.getServerPort());
+
+        if (!hasServerToken() && (address.getAddress() == null || !address.getAddress().isLoopbackAddress())) {
+            throw new ImportProcessingException("Import server on " + address.getHostString()
+                    + " would accept requests from other hosts, set import.server-token to require it on each request");
+        }
+
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new ImportProcessingException("Cannot start import server on " + address, e);
+        }
+
+        // a single non-daemon thread: imports never overlap and the application keeps running
+        executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "import-server"));
+
+        server.createContext(CONTEXT_PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+
+        logger.info("Import server listening on http://{}:{}{}", address.getHostString(), server.getAddress().getPort(), CONTEXT_PATH);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (server == null) return;
+
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!isAuthorized(exchange)) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                send(exchange, 401, error("Missing or invalid bearer token, see import.server-token"));
+                return;
+            }
+
+            if (!"POST".equals(exchange.getRequestMethod()) || !CONTEXT_PATH.equals(exchange.getRequestURI().getPath())) {
+                send(exchange, 405, error("Use POST " + CONTEXT_PATH));
+                return;
+            }
+
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String path = query.get("path");
+
+            ImportReport report;
+            if (path != null) {
+                Path importPath = resolveImportPath(path);
+                if (importPath == null) {
+                    send(exchange, 403, error("Path '" + path + "' does not exist below import.path"));
+                    return;
+                }
+
+                report = runImport(() -> keycloakImportProvider.readRealmImports(
+                        importPath.toString(), (importFileName, realmImport) -> realmImportService.doImport(realmImport)
+                ));
+            } else {
+                String importName = query.getOrDefault("file", "request");
+                report = runImport(() -> {
+                    RealmImport realmImport = keycloakImportProvider.readRealmImport(importName, exchange.getRequestBody());
+                    realmImportService.doImport(realmImport);
+                });
+            }
+
+            send(exchange, 200, report);
+        } catch (InvalidImportException e) {
+            logger.error(e.getMessage());
+            send(exchange, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            logger.error(e.getMessage(), e);
+            send(exchange, 500, error(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean hasServerToken() {
+        String serverToken = importConfigProperties.getServerToken();
+
+        return serverToken != null && !serverToken.isEmpty();
+    }
+
+    /**
+     * Compared in constant time, so the response time does not tell how much of the token matched
+     */
+    private boolean isAuthorized(HttpExchange exchange) {
+        if (!hasServerToken()) return true;
+
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null) return false;
+
+        byte[] expectedAuthorization = ("Bearer " + importConfigProperties.getServerToken()).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expectedAuthorization, authorization.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Requests may only import import.path or files below it. Relative paths are resolved against import.path, symbolic
+     * links and <code>..</code> before the check.
+     *
+     * @return null if the path does not exist or is outside of import.path
+     */
+    private Path resolveImportPath(String path) {
+        Path basePath;
+        Path importPath;
+
+        try {
+            basePath = Paths.get(importConfigProperties.getPath()).toRealPath();
+            Path baseDirectory = Files.isDirectory(basePath) ? basePath : basePath.getParent();
+            importPath = baseDirectory.resolve(path).toRealPath();
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+
+        return importPath.startsWith(basePath) ? importPath : null;
+    }
+
+    private ImportReport runImport(Runnable importRun) {
+        importReportService.startRun();
+        traceService.startRun();
+
+        Span runSpan = traceService.start("keycloak-config-cli");
+
+        try {
+            importRun.run();
+        } catch (RuntimeException e) {
+            runSpan.setError(e.getMessage());
+            throw e;
+        } finally {
+            traceService.end(runSpan);
+            traceService.write();
+            importReportService.write();
+        }
+
+        return importReportService.getReport();
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] response = responseWriter.writeValueAsBytes(body);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, response.length);
+
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(response);
+        }
+    }
+
+    private static Map<String, String> error(String message) {
+        return Collections.singletonMap("error", String.valueOf(message));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) return query;
+
+        for (String parameter : rawQuery.split("&")) {
+            int separatorIndex = parameter.indexOf('=');
+            if (separatorIndex < 0) continue;
+
+            query.put(
+                    URLDecoder.decode(parameter.substring(0, separatorIndex), StandardCharsets.UTF_8.name()),
+                    URLDecoder.decode(parameter.substring(separatorIndex + 1), StandardCharsets.UTF_8.name())
+            );
+        }
+
+        return query;
+    }
+}
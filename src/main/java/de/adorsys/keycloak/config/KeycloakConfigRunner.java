@@ -18,43 +18,67 @@
 
 package de.adorsys.keycloak.config;
 
-import de.adorsys.keycloak.config.model.KeycloakImport;
-import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.provider.KeycloakImportProvider;
 import de.adorsys.keycloak.config.service.RealmImportService;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
+import de.adorsys.keycloak.config.service.trace.Span;
+import de.adorsys.keycloak.config.service.trace.TraceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-
 @Component
 public class KeycloakConfigRunner implements CommandLineRunner {
     private static final Logger logger = LoggerFactory.getLogger(KeycloakConfigRunner.class);
 
     private final KeycloakImportProvider keycloakImportProvider;
     private final RealmImportService realmImportService;
+    private final ImportReportService importReportService;
+    private final TraceService traceService;
+    private final ImportServer importServer;
+    private final ImportConfigProperties importConfigProperties;
 
     @Autowired
     public KeycloakConfigRunner(
             KeycloakImportProvider keycloakImportProvider,
-            RealmImportService realmImportService
+            RealmImportService realmImportService,
+            ImportReportService importReportService,
+            TraceService traceService,
+            ImportServer importServer,
+            ImportConfigProperties importConfigProperties
     ) {
         this.keycloakImportProvider = keycloakImportProvider;
         this.realmImportService = realmImportService;
+        this.importReportService = importReportService;
+        this.traceService = traceService;
+        this.importServer = importServer;
+        this.importConfigProperties = importConfigProperties;
     }
 
     @Override
     public void run(String... args) {
-        try {
-            KeycloakImport keycloakImport = keycloakImportProvider.get();
+        if (importConfigProperties.isServerMode()) {
+            importServer.start();
+            return;
+        }
 
-            Map<String, RealmImport> realmImports = keycloakImport.getRealmImports();
+        try {
+            Span runSpan = traceService.start("keycloak-config-cli");
 
-            for (Map.Entry<String, RealmImport> realmImport : realmImports.entrySet()) {
-                realmImportService.doImport(realmImport.getValue());
+            try {
+                keycloakImportProvider.readRealmImports(
+                        (importFileName, realmImport) -> realmImportService.doImport(realmImport)
+                );
+            } catch (RuntimeException e) {
+                runSpan.setError(e.getMessage());
+                throw e;
+            } finally {
+                traceService.end(runSpan);
+                traceService.write();
+                importReportService.write();
             }
         } catch (NullPointerException e) {
             throw e;
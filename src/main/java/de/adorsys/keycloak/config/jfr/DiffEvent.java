@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.adorsys.keycloak.config.Diff")
+@Label("CloneUtil Diff")
+@Category("keycloak-config-cli")
+@Description("Comparison of an existing and an imported representation")
+class DiffEvent extends Event {
+    @Label("Type")
+    String type;
+
+    @Label("Result")
+    String result;
+}
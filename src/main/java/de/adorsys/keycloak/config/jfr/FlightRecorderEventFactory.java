@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.jfr;
+
+/**
+ * Checks if an event type is enabled on a shared instance first, so nothing is allocated without a recording
+ */
+class FlightRecorderEventFactory implements ImportEventFactory {
+    private final RealmImportEvent realmImportEventType = new RealmImportEvent();
+    private final ImportPhaseEvent importPhaseEventType = new ImportPhaseEvent();
+    private final AdminCallEvent adminCallEventType = new AdminCallEvent();
+    private final DiffEvent diffEventType = new DiffEvent();
+
+    @Override
+    public ImportEvent realmImport(String realm) {
+        if (!realmImportEventType.isEnabled()) return ImportEvent.NONE;
+
+        RealmImportEvent event = new RealmImportEvent();
+        event.realm = realm;
+        event.begin();
+
+        return outcome -> {
+            event.status = outcome;
+            event.commit();
+        };
+    }
+
+    @Override
+    public ImportEvent phase(String realm, String phase) {
+        if (!importPhaseEventType.isEnabled()) return ImportEvent.NONE;
+
+        ImportPhaseEvent event = new ImportPhaseEvent();
+        event.realm = realm;
+        event.phase = phase;
+        event.begin();
+
+        return outcome -> event.commit();
+    }
+
+    @Override
+    public ImportEvent adminCall(String realm, String entityType, String httpMethod, String path) {
+        if (!adminCallEventType.isEnabled()) return ImportEvent.NONE;
+
+        AdminCallEvent event = new AdminCallEvent();
+        event.realm = realm;
+        event.entityType = entityType;
+        event.httpMethod = httpMethod;
+        event.path = path;
+        event.begin();
+
+        return outcome -> {
+            event.status = outcome;
+            event.commit();
+        };
+    }
+
+    @Override
+    public ImportEvent diff(Class<?> type) {
+        if (!diffEventType.isEnabled()) return ImportEvent.NONE;
+
+        DiffEvent event = new DiffEvent();
+        event.type = type == null ? null : type.getSimpleName();
+        event.begin();
+
+        return outcome -> {
+            event.result = outcome;
+            event.commit();
+        };
+    }
+}
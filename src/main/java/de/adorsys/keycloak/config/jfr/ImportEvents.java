@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.jfr;
+
+import de.adorsys.keycloak.config.util.CloneUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emits Java Flight Recorder events of realm imports, import phases, admin API calls and entity diffs.
+ * <p>
+ * The jdk.jfr classes are only touched if the runtime provides them (JDK 11+, JDK 8u262+, not in native images).
+ * Without a running recording no event is allocated.
+ */
+public final class ImportEvents {
+    private static final Logger logger = LoggerFactory.getLogger(ImportEvents.class);
+
+    private static final ImportEventFactory factory = createFactory();
+
+    private ImportEvents() {
+    }
+
+    public static ImportEvent realmImport(String realm) {
+        return factory.realmImport(realm);
+    }
+
+    public static ImportEvent phase(String realm, String phase) {
+        return factory.phase(realm, phase);
+    }
+
+    public static ImportEvent adminCall(String realm, String entityType, String httpMethod, String path) {
+        return factory.adminCall(realm, entityType, httpMethod, path);
+    }
+
+    public static ImportEvent diff(Class<?> type) {
+        return factory.diff(type);
+    }
+
+    /**
+     * {@link CloneUtil#deepEquals(Object, Object, String...)} of an existing and an imported entity, recorded as diff
+     * event of the existing entity's type
+     */
+    public static <S, T> boolean deepEquals(S origin, T other, String... ignoredProperties) {
+        ImportEvent diffEvent = diff(origin == null ? null : origin.getClass());
+
+        boolean isEqual = CloneUtil.deepEquals(origin, other, ignoredProperties);
+        diffEvent.end(isEqual ? "equal" : "different");
+
+        return isEqual;
+    }
+
+    private static ImportEventFactory createFactory() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+
+            return new FlightRecorderEventFactory();
+        } catch (ClassNotFoundException | LinkageError e) {
+            logger.debug("Java Flight Recorder is not available, no import events are emitted");
+
+            return new NoopEventFactory();
+        }
+    }
+
+    private static class NoopEventFactory implements ImportEventFactory {
+        @Override
+        public ImportEvent realmImport(String realm) {
+            return ImportEvent.NONE;
+        }
+
+        @Override
+        public ImportEvent phase(String realm, String phase) {
+            return ImportEvent.NONE;
+        }
+
+        @Override
+        public ImportEvent adminCall(String realm, String entityType, String httpMethod, String path) {
+            return ImportEvent.NONE;
+        }
+
+        @Override
+        public ImportEvent diff(Class<?> type) {
+            return ImportEvent.NONE;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonSetter;
 import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
 import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.ScopeMappingRepresentation;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -48,6 +49,13 @@ public class RealmImport extends RealmRepresentation {
         this.authenticationFlowImports = authenticationFlowImports;
     }
 
+    /**
+     * {@link RealmRepresentation} has no setter for scope-mappings, but they have to be released after their phase
+     */
+    public void setScopeMappings(List<ScopeMappingRepresentation> scopeMappings) {
+        this.scopeMappings = scopeMappings;
+    }
+
     public CustomImport getCustomImport() {
         return customImport;
     }
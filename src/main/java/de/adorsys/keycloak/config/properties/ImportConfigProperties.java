@@ -22,8 +22,15 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
 import org.springframework.validation.annotation.Validated;
 
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @ConfigurationProperties(prefix = "import")
 @ConstructorBinding
@@ -31,6 +38,27 @@ import javax.validation.constraints.NotNull;
 public class ImportConfigProperties {
     public static final String REALM_CHECKSUM_ATTRIBUTE_PREFIX_KEY = "de.adorsys.keycloak.config.import-checksum-{0}";
 
+    /**
+     * Sections of an update which can be selected by import.include-sections and import.exclude-sections, named like
+     * the import phases
+     */
+    public static final List<String> SECTIONS = Collections.unmodifiableList(Arrays.asList(
+            "realm",
+            "clients",
+            "roles",
+            "groups",
+            "clientScopes",
+            "users",
+            "requiredActions",
+            "authenticationFlows",
+            "authenticatorConfig",
+            "flowBindings",
+            "components",
+            "scopeMappings",
+            "identityProviders",
+            "custom"
+    ));
+
     @NotBlank
     private final String path;
 
@@ -40,10 +68,70 @@ public class ImportConfigProperties {
     @NotBlank
     private final String cacheKey;
 
-    public ImportConfigProperties(String path, boolean force, String cacheKey) {
+    @NotBlank
+    @Pattern(regexp = "realm|file")
+    private final String checksumStore;
+
+    @NotBlank
+    private final String checksumStorePath;
+
+    @Min(1)
+    private final int parallelism;
+
+    private final String reportPath;
+
+    private final String tracePath;
+
+    @Min(0)
+    private final int bulkSize;
+
+    @Min(0)
+    private final int serverPort;
+
+    @NotBlank
+    private final String serverAddress;
+
+    private final String serverToken;
+
+    @Min(1)
+    private final int maxInFlight;
+
+    @NotNull
+    private final boolean virtualThreads;
+
+    private final List<String> includeSections;
+
+    private final List<String> excludeSections;
+
+    @Min(0)
+    private final int shardIndex;
+
+    @Min(1)
+    private final int shardCount;
+
+    @Min(0)
+    private final int shardWaitTimeout;
+
+    public ImportConfigProperties(String path, boolean force, String cacheKey, String checksumStore, String checksumStorePath, int parallelism, String reportPath, String tracePath, int bulkSize, int serverPort, String serverAddress, String serverToken, int maxInFlight, boolean virtualThreads, List<String> includeSections, List<String> excludeSections, int shardIndex, int shardCount, int shardWaitTimeout) {
         this.path = path;
         this.force = force;
         this.cacheKey = cacheKey;
+        this.checksumStore = checksumStore;
+        this.checksumStorePath = checksumStorePath;
+        this.parallelism = parallelism;
+        this.reportPath = reportPath;
+        this.tracePath = tracePath;
+        this.bulkSize = bulkSize;
+        this.serverPort = serverPort;
+        this.serverAddress = serverAddress;
+        this.serverToken = serverToken;
+        this.maxInFlight = maxInFlight;
+        this.virtualThreads = virtualThreads;
+        this.includeSections = includeSections == null ? Collections.emptyList() : includeSections;
+        this.excludeSections = excludeSections == null ? Collections.emptyList() : excludeSections;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.shardWaitTimeout = shardWaitTimeout;
     }
 
     public String getPath() {
@@ -57,4 +145,142 @@ public class ImportConfigProperties {
     public String getCacheKey() {
         return cacheKey;
     }
+
+    public String getChecksumStore() {
+        return checksumStore;
+    }
+
+    public String getChecksumStorePath() {
+        return checksumStorePath;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public String getReportPath() {
+        return reportPath;
+    }
+
+    public String getTracePath() {
+        return tracePath;
+    }
+
+    public int getBulkSize() {
+        return bulkSize;
+    }
+
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    public String getServerAddress() {
+        return serverAddress;
+    }
+
+    public String getServerToken() {
+        return serverToken;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public List<String> getIncludeSections() {
+        return includeSections;
+    }
+
+    public List<String> getExcludeSections() {
+        return excludeSections;
+    }
+
+    /**
+     * All sections are imported unless import.include-sections or import.exclude-sections is set
+     */
+    public boolean isSectionIncluded(String section) {
+        return (includeSections.isEmpty() || includeSections.contains(section)) && !excludeSections.contains(section);
+    }
+
+    public boolean isPartialImport() {
+        return !includeSections.isEmpty() || !excludeSections.isEmpty();
+    }
+
+    /**
+     * @return the imported sections in the order of {@link #SECTIONS}
+     */
+    public List<String> getIncludedSections() {
+        return SECTIONS.stream()
+                .filter(this::isSectionIncluded)
+                .collect(Collectors.toList());
+    }
+
+    @AssertTrue(message = "import.include-sections and import.exclude-sections accept only the sections realm, clients, roles, "
+            + "groups, clientScopes, users, requiredActions, authenticationFlows, authenticatorConfig, flowBindings, components, "
+            + "scopeMappings, identityProviders and custom")
+    public boolean isSectionsValid() {
+        return SECTIONS.containsAll(includeSections) && SECTIONS.containsAll(excludeSections);
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Seconds the other shards wait for shard 0 to import a realm, see {@link #isLeaderShard()}
+     */
+    public int getShardWaitTimeout() {
+        return shardWaitTimeout;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    /**
+     * The first shard imports everything except the users of the other shards, the other shards import only their users
+     */
+    public boolean isLeaderShard() {
+        return shardIndex == 0;
+    }
+
+    /**
+     * Each shard and each selection of sections keeps its own checksum, a realm is only up to date for a shard or a
+     * partial import if that shard or the same selection of sections has imported it
+     */
+    public String getChecksumKey() {
+        return getChecksumKey(shardIndex);
+    }
+
+    /**
+     * The key shard 0 stores its checksum with, the other shards wait for it
+     */
+    public String getLeaderChecksumKey() {
+        return getChecksumKey(0);
+    }
+
+    private String getChecksumKey(int shardIndex) {
+        String checksumKey = isSharded() ? cacheKey + "-shard-" + shardIndex + "-of-" + shardCount : cacheKey;
+
+        return isPartialImport() ? checksumKey + "-sections-" + String.join("+", getIncludedSections()) : checksumKey;
+    }
+
+    @AssertTrue(message = "import.shard-index has to be lower than import.shard-count")
+    public boolean isShardIndexValid() {
+        return shardIndex < shardCount;
+    }
+
+    /**
+     * In server mode the application keeps running and imports on request, see import.server-port
+     */
+    public boolean isServerMode() {
+        return serverPort > 0;
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+public enum ImportFileFormat {
+    JSON(JsonFactory::new, "json"),
+    YAML(YAMLFactory::new, "yaml", "yml"),
+    SMILE(SmileFactory::new, "smile", "sml"),
+    CBOR(CBORFactory::new, "cbor");
+
+    private static final int MAGIC_BYTES_LENGTH = 3;
+
+    private final Supplier<JsonFactory> factorySupplier;
+    private final List<String> extensions;
+
+    ImportFileFormat(Supplier<JsonFactory> factorySupplier, String... extensions) {
+        this.factorySupplier = factorySupplier;
+        this.extensions = Arrays.asList(extensions);
+    }
+
+    public JsonFactory createFactory() {
+        return factorySupplier.get();
+    }
+
+    public String getExtension() {
+        return extensions.get(0);
+    }
+
+    /**
+     * Detects the format by the file extension. Files without a known extension are detected by their magic bytes and
+     * fall back to JSON. The stream must support mark/reset, the peeked bytes are not consumed.
+     */
+    public static ImportFileFormat detect(String fileName, InputStream inputStream) throws IOException {
+        String extension = getExtension(fileName);
+
+        for (ImportFileFormat format : values()) {
+            if (format.extensions.contains(extension)) {
+                return format;
+            }
+        }
+
+        return detectByMagicBytes(inputStream);
+    }
+
+    private static String getExtension(String fileName) {
+        int extensionIndex = fileName.lastIndexOf('.');
+
+        if (extensionIndex < 0) {
+            return "";
+        }
+
+        return fileName.substring(extensionIndex + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static ImportFileFormat detectByMagicBytes(InputStream inputStream) throws IOException {
+        byte[] magicBytes = new byte[MAGIC_BYTES_LENGTH];
+
+        inputStream.mark(MAGIC_BYTES_LENGTH);
+        int length = inputStream.read(magicBytes);
+        inputStream.reset();
+
+        if (length < 1) {
+            return JSON;
+        }
+
+        // smile header ':)\n'
+        if (length == MAGIC_BYTES_LENGTH && magicBytes[0] == ':' && magicBytes[1] == ')' && magicBytes[2] == '\n') {
+            return SMILE;
+        }
+
+        // cbor self-describe tag 0xd9d9f7, cbor files without it need the extension
+        if (length == MAGIC_BYTES_LENGTH && (magicBytes[0] & 0xFF) == 0xD9 && (magicBytes[1] & 0xFF) == 0xD9 && (magicBytes[2] & 0xFF) == 0xF7) {
+            return CBOR;
+        }
+
+        return JSON;
+    }
+}
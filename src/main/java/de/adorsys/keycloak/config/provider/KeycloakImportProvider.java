@@ -18,50 +18,104 @@
 
 package de.adorsys.keycloak.config.provider;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.exception.InvalidImportException;
 import de.adorsys.keycloak.config.model.KeycloakImport;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.service.checksum.ChecksumService;
 import de.adorsys.keycloak.config.util.ChecksumUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
 public class KeycloakImportProvider {
     private static final Logger logger = LoggerFactory.getLogger(KeycloakImportProvider.class);
 
-    private final ObjectMapper objectMapper;
+    private final Map<ImportFileFormat, ObjectMapper> objectMappers = new EnumMap<>(ImportFileFormat.class);
     private final ImportConfigProperties importConfigProperties;
+    private final ChecksumService checksumService;
 
     public KeycloakImportProvider(
             ObjectMapper objectMapper,
-            ImportConfigProperties importConfigProperties
+            ImportConfigProperties importConfigProperties,
+            ChecksumService checksumService
     ) {
-        this.objectMapper = objectMapper;
         this.importConfigProperties = importConfigProperties;
+        this.checksumService = checksumService;
 
-        this.objectMapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        for (ImportFileFormat format : ImportFileFormat.values()) {
+            ObjectMapper formatObjectMapper = format == ImportFileFormat.JSON
+                    ? objectMapper
+                    : new ObjectMapper(format.createFactory());
+
+            formatObjectMapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+            objectMappers.put(format, formatObjectMapper);
+        }
     }
 
+    /**
+     * Reads all import files which have to be imported. Unless import.force is set, files of realms which are already
+     * imported with the same checksum are skipped without binding them.
+     */
     public KeycloakImport get() {
-        KeycloakImport keycloakImport;
+        Map<String, RealmImport> realmImports = new LinkedHashMap<>();
+        readRealmImports(realmImports::put);
 
-        String importFilePath = importConfigProperties.getPath();
-        keycloakImport = readFromPath(importFilePath);
+        return new KeycloakImport(realmImports);
+    }
 
-        return keycloakImport;
+    /**
+     * Like {@link #get()}, but passes every import to the consumer as soon as it is parsed, ordered by file name.
+     * Up to import.parallelism files are parsed in parallel while the consumer still handles the previous import.
+     */
+    public void readRealmImports(BiConsumer<String, RealmImport> realmImportConsumer) {
+        readRealmImports(importConfigProperties.getPath(), realmImportConsumer);
+    }
+
+    /**
+     * Like {@link #readRealmImports(BiConsumer)}, but reads the file or directory at the given path instead of
+     * import.path
+     */
+    public void readRealmImports(String importFilePath, BiConsumer<String, RealmImport> realmImportConsumer) {
+        List<File> importFiles = listImportFiles(importFilePath);
+
+        ExecutorService executor = createExecutor();
+
+        try {
+            if (importConfigProperties.isForce()) {
+                readRealmImports(executor, importFiles, realmImportConsumer);
+            } else {
+                readChangedRealmImports(executor, importFiles, realmImportConsumer);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    private KeycloakImport readFromPath(String path) {
+    private List<File> listImportFiles(String path) {
         File configPath = new File(path);
 
         if (!configPath.exists() || !configPath.canRead()) {
@@ -69,69 +123,258 @@ public class KeycloakImportProvider {
         }
 
         if (configPath.isDirectory()) {
-            return readRealmImportsFromDirectory(configPath);
+            return listImportFilesInDirectory(configPath);
         }
 
-        return readRealmImportFromFile(configPath);
+        return Collections.singletonList(configPath);
     }
 
-    public KeycloakImport readRealmImportsFromDirectory(File importFilesDirectory) {
-        Map<String, RealmImport> realmImports = Optional.ofNullable(importFilesDirectory.listFiles())
+    private List<File> listImportFilesInDirectory(File importFilesDirectory) {
+        return Optional.ofNullable(importFilesDirectory.listFiles())
                 .map(Arrays::asList)
                 .orElse(Collections.emptyList())
                 .stream()
                 .filter(File::isFile)
-                .collect(Collectors.toMap(File::getName, this::readRealmImport));
+                .sorted(Comparator.comparing(File::getName))
+                .collect(Collectors.toList());
+    }
+
+    public KeycloakImport readRealmImportsFromDirectory(File importFilesDirectory) {
+        Map<String, RealmImport> realmImports = new LinkedHashMap<>();
+        ExecutorService executor = createExecutor();
+
+        try {
+            readRealmImports(executor, listImportFilesInDirectory(importFilesDirectory), realmImports::put);
+        } finally {
+            executor.shutdownNow();
+        }
 
         return new KeycloakImport(realmImports);
     }
 
-    private KeycloakImport readRealmImportFromFile(File importFile) {
-        Map<String, RealmImport> realmImports = new HashMap<>();
+    private void readRealmImports(
+            ExecutorService executor,
+            List<File> importFiles,
+            BiConsumer<String, RealmImport> realmImportConsumer
+    ) {
+        forEachOrdered(executor, importFiles, this::readRealmImport,
+                (importFile, realmImport) -> realmImportConsumer.accept(importFile.getName(), realmImport));
+    }
+
+    /**
+     * Hashes the raw bytes of every file first, while the realm name is read from its first tokens, and looks up the
+     * stored checksums in one batch. Only changed files are read again to bind the import.
+     */
+    private void readChangedRealmImports(
+            ExecutorService executor,
+            List<File> importFiles,
+            BiConsumer<String, RealmImport> realmImportConsumer
+    ) {
+        List<ImportFile> hashedImportFiles = new ArrayList<>();
+        forEachOrdered(executor, importFiles, this::readImportFile,
+                (importFile, hashedImportFile) -> hashedImportFiles.add(hashedImportFile));
 
-        RealmImport realmImport = readRealmImport(importFile);
-        realmImports.put(importFile.getName(), realmImport);
+        Set<String> realmsDefinedOnce = getRealmsDefinedOnce(hashedImportFiles);
+        Map<String, String> storedChecksums = checksumService.getStoredChecksums(realmsDefinedOnce);
 
-        return new KeycloakImport(realmImports);
+        forEachOrdered(executor, hashedImportFiles,
+                importFile -> isUnchanged(importFile, realmsDefinedOnce, storedChecksums) ? null : readRealmImport(importFile.file),
+                (importFile, realmImport) -> {
+                    if (realmImport != null) {
+                        realmImportConsumer.accept(importFile.file.getName(), realmImport);
+                    }
+                });
+    }
+
+    private boolean isUnchanged(ImportFile importFile, Set<String> realmsDefinedOnce, Map<String, String> storedChecksums) {
+        if (!realmsDefinedOnce.contains(importFile.realm)
+                || !checksumService.isUnchanged(storedChecksums, importFile.realm, importFile.checksum)) {
+            return false;
+        }
+
+        logger.info("Skip file '{}', realm is already imported with checksum '{}'", importFile.file.getAbsoluteFile(), importFile.checksum);
+        return true;
+    }
+
+    /**
+     * Runs the task for every item on the executor and passes the results to the consumer in the order of the items.
+     * Only import.parallelism items are submitted ahead of the consumer, which also bounds the number of parsed
+     * imports held in memory.
+     */
+    private <T, R> void forEachOrdered(
+            ExecutorService executor,
+            List<T> items,
+            Function<T, R> task,
+            BiConsumer<T, R> consumer
+    ) {
+        Deque<Future<R>> pendingResults = new ArrayDeque<>();
+        Iterator<T> itemsToSubmit = items.iterator();
+
+        for (T item : items) {
+            while (pendingResults.size() < importConfigProperties.getParallelism() && itemsToSubmit.hasNext()) {
+                T itemToSubmit = itemsToSubmit.next();
+                pendingResults.add(executor.submit(() -> task.apply(itemToSubmit)));
+            }
+
+            consumer.accept(item, await(pendingResults.remove()));
+        }
+    }
+
+    private <R> R await(Future<R> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImportProcessingException("Interrupted while reading import files", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new InvalidImportException(e.getCause());
+        }
+    }
+
+    private ExecutorService createExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(importConfigProperties.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "import-reader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    /**
+     * A realm which is defined in more than one file is never skipped, because the stored checksum can only match one
+     * of them
+     */
+    private Set<String> getRealmsDefinedOnce(List<ImportFile> importFiles) {
+        Map<String, Long> fileCountsByRealm = importFiles.stream()
+                .filter(importFile -> importFile.realm != null)
+                .collect(Collectors.groupingBy(importFile -> importFile.realm, Collectors.counting()));
+
+        return fileCountsByRealm.entrySet()
+                .stream()
+                .filter(fileCountOfRealm -> fileCountOfRealm.getValue() == 1)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
     }
 
+    /**
+     * Binds the import and calculates its checksum while the file is read
+     */
     private RealmImport readRealmImport(File importFile) {
         logger.info("Importing file '{}'", importFile.getAbsoluteFile());
 
-        RealmImport realmImport = readToRealmImport(importFile);
-
-        String checksum = calculateChecksum(importFile);
-        realmImport.setChecksum(checksum);
+        MessageDigest digest = ChecksumUtil.createDigest();
+        RealmImport realmImport = readDigested(importFile, digest, parser -> parser.readValueAs(RealmImport.class));
+        realmImport.setChecksum(ChecksumUtil.toChecksum(digest));
 
         return realmImport;
     }
 
-    private RealmImport readToRealmImport(File importFile) {
+    /**
+     * Reads only the realm name of the file, the rest of the file is hashed without parsing it
+     */
+    private ImportFile readImportFile(File importFile) {
+        MessageDigest digest = ChecksumUtil.createDigest();
+        String realm = readDigested(importFile, digest, this::readRealmName);
+
+        return new ImportFile(importFile, realm, ChecksumUtil.toChecksum(digest));
+    }
+
+    /**
+     * Reads an import which is not stored as file, e.g. the payload of a request in server mode. The format is
+     * detected by the extension of the given name or by magic bytes.
+     */
+    public RealmImport readRealmImport(String importName, InputStream inputStream) {
+        logger.info("Importing '{}'", importName);
+
+        MessageDigest digest = ChecksumUtil.createDigest();
         RealmImport realmImport;
 
         try {
-            realmImport = objectMapper.readValue(importFile, RealmImport.class);
+            realmImport = read(new File(importName), inputStream, digest, parser -> parser.readValueAs(RealmImport.class));
         } catch (IOException e) {
             throw new InvalidImportException(e);
         }
 
+        realmImport.setChecksum(ChecksumUtil.toChecksum(digest));
+
         return realmImport;
     }
 
-    private String calculateChecksum(File importFile) {
-        byte[] importFileInBytes = readRealmImportToBytes(importFile);
-        return ChecksumUtil.checksum(importFileInBytes);
+    private <T> T readDigested(File importFile, MessageDigest digest, ImportFileReader<T> reader) {
+        try (InputStream inputStream = Files.newInputStream(importFile.toPath())) {
+            return read(importFile, inputStream, digest, reader);
+        } catch (IOException e) {
+            throw new InvalidImportException(e);
+        }
+    }
+
+    /**
+     * Detects the format of the file and reads it with the matching parser. The checksum covers the raw bytes of the
+     * import, like the checksums stored by earlier versions, so a file converted to another format is imported once
+     * more. The parser reads from the stream which updates the digest, the bytes it does not read are hashed afterwards.
+     */
+    private <T> T read(File importFile, InputStream inputStream, MessageDigest digest, ImportFileReader<T> reader) throws IOException {
+        InputStream digestedInputStream = new BufferedInputStream(new DigestInputStream(inputStream, digest));
+        ImportFileFormat format = ImportFileFormat.detect(importFile.getName(), digestedInputStream);
+
+        try (JsonParser parser = objectMappers.get(format).getFactory().createParser(digestedInputStream)) {
+            // the parser must not close the stream at its end, the stream is still read afterwards
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            T result = reader.read(parser);
+
+            byte[] buffer = new byte[8192];
+            while (digestedInputStream.read(buffer) != -1) {
+                // only updates the digest
+            }
+
+            return result;
+        }
     }
 
-    private byte[] readRealmImportToBytes(File importFile) {
-        byte[] importFileInBytes;
+    /**
+     * Reads only the top-level property 'realm' by streaming over the tokens, without binding the import
+     *
+     * @return the realm name or null if the file does not define one
+     */
+    private String readRealmName(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
 
-        try {
-            importFileInBytes = Files.readAllBytes(importFile.toPath());
-        } catch (IOException e) {
-            throw new InvalidImportException(e);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+
+            if ("realm".equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                return parser.getText();
+            }
+
+            parser.skipChildren();
         }
 
-        return importFileInBytes;
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface ImportFileReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    private static class ImportFile {
+        private final File file;
+        private final String realm;
+        private final String checksum;
+
+        private ImportFile(File file, String realm, String checksum) {
+            this.file = file;
+            this.realm = realm;
+            this.checksum = checksum;
+        }
     }
 }
@@ -18,63 +18,192 @@
 
 package de.adorsys.keycloak.config.provider;
 
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.properties.KeycloakConfigProperties;
+import de.adorsys.keycloak.config.service.report.AdminApiCallRecorder;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
+import de.adorsys.keycloak.config.service.trace.TraceService;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.ssl.SSLContexts;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.keycloak.admin.client.ClientBuilderWrapper;
+import org.keycloak.admin.client.JacksonProvider;
 import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
+import org.keycloak.admin.client.resource.BearerAuthFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.WebTarget;
 import java.net.URISyntaxException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class exists cause we need to create a single keycloak instance or to close the keycloak before using a new one
  * to avoid a deadlock.
+ * <p>
+ * Guarded by a {@link ReentrantLock} instead of <code>synchronized</code>: creating the client logs in, and a virtual
+ * thread blocking inside <code>synchronized</code> would pin its carrier thread, see import.virtual-threads.
  */
 @Component
 public class KeycloakProvider {
+    private static final int DEFAULT_CONNECTION_POOL_SIZE = 10;
 
     private final KeycloakConfigProperties properties;
+    private final ImportConfigProperties importConfigProperties;
+    private final AdminApiCallRecorder adminApiCallRecorder;
+    private final ReentrantLock lock = new ReentrantLock();
 
     private Keycloak keycloak;
+    private ResteasyClient resteasyClient;
+    private ResteasyClient asyncResteasyClient;
+    private WebTarget adminTarget;
     private boolean isClosed = true;
 
     @Autowired
-    public KeycloakProvider(KeycloakConfigProperties properties) {
+    public KeycloakProvider(
+            KeycloakConfigProperties properties,
+            ImportConfigProperties importConfigProperties,
+            ImportReportService importReportService,
+            TraceService traceService
+    ) {
         this.properties = properties;
+        this.importConfigProperties = importConfigProperties;
+        this.adminApiCallRecorder = new AdminApiCallRecorder(importReportService, traceService);
     }
 
     public Keycloak get() {
-        if (keycloak == null || isClosed) {
-            keycloak = createKeycloak(properties);
-            isClosed = false;
+        lock.lock();
+
+        try {
+            if (keycloak == null || isClosed) {
+                resteasyClient = createResteasyClient(properties);
+                keycloak = createKeycloak(properties, resteasyClient);
+                isClosed = false;
+            }
+
+            return keycloak;
+        } finally {
+            lock.unlock();
         }
+    }
+
+    /**
+     * Target of <code>/admin/realms</code> for async requests, which the admin client proxies can't send. Requests
+     * share the token of {@link #get()}, but go through a client with a non-blocking http engine: an async request
+     * holds one of import.max-in-flight connections while it is in flight, but no thread.
+     */
+    public WebTarget getAdminTarget() {
+        lock.lock();
+
+        try {
+            Keycloak currentKeycloak = get();
+
+            if (adminTarget == null) {
+                asyncResteasyClient = createAsyncResteasyClient(properties);
+                adminTarget = asyncResteasyClient.target(buildUri(properties.getUrl()))
+                        .path("admin/realms")
+                        .register(new BearerAuthFilter(currentKeycloak.tokenManager()));
+            }
 
-        return keycloak;
+            return adminTarget;
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void close() {
-        if (!isClosed && keycloak != null) {
-            keycloak.close();
-        }
+        lock.lock();
+
+        try {
+            if (!isClosed && keycloak != null) {
+                keycloak.close();
+            }
+
+            if (asyncResteasyClient != null) {
+                asyncResteasyClient.close();
+                asyncResteasyClient = null;
+                adminTarget = null;
+            }
 
-        isClosed = true;
+            isClosed = true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     private Keycloak createKeycloak(
-            KeycloakConfigProperties properties
+            KeycloakConfigProperties properties,
+            ResteasyClient client
     ) {
-        return Keycloak.getInstance(
-                buildUri(properties.getUrl()),
-                properties.getLoginRealm(),
-                properties.getUser(),
-                properties.getPassword(),
-                properties.getClientId(),
-                null,
-                null,
-                null,
-                !properties.isSslVerify(),
-                null
-        );
+        return KeycloakBuilder.builder()
+                .serverUrl(buildUri(properties.getUrl()))
+                .realm(properties.getLoginRealm())
+                .username(properties.getUser())
+                .password(properties.getPassword())
+                .clientId(properties.getClientId())
+                .resteasyClient(client)
+                .build();
+    }
+
+    /**
+     * Same client as {@link Keycloak#getInstance}, but every request passes the {@link AdminApiCallRecorder}. The
+     * connection pool is at least import.max-in-flight large for the concurrent imports of import.virtual-threads.
+     */
+    private ResteasyClient createResteasyClient(KeycloakConfigProperties properties) {
+        int maxInFlight = importConfigProperties.getMaxInFlight();
+        ClientBuilder clientBuilder = ClientBuilderWrapper.create(null, !properties.isSslVerify());
+
+        if (clientBuilder instanceof ResteasyClientBuilder) {
+            ResteasyClientBuilder resteasyClientBuilder = (ResteasyClientBuilder) clientBuilder;
+
+            if (maxInFlight > DEFAULT_CONNECTION_POOL_SIZE) {
+                resteasyClientBuilder.connectionPoolSize(maxInFlight);
+            }
+
+            resteasyClientBuilder.httpEngine(new RecordingHttpEngine.Builder(adminApiCallRecorder)
+                    .resteasyClientBuilder(resteasyClientBuilder)
+                    .build());
+        }
+
+        return (ResteasyClient) clientBuilder
+                .register(JacksonProvider.class, 100)
+                .register(adminApiCallRecorder)
+                .build();
+    }
+
+    /**
+     * Client of the async requests. The http engine sends them on its own io threads and completes them by callback,
+     * its connection pool bounds the requests in flight to import.max-in-flight.
+     */
+    private ResteasyClient createAsyncResteasyClient(KeycloakConfigProperties properties) {
+        int maxInFlight = importConfigProperties.getMaxInFlight();
+
+        HttpAsyncClientBuilder httpClientBuilder = HttpAsyncClients.custom()
+                .setMaxConnTotal(maxInFlight)
+                .setMaxConnPerRoute(maxInFlight);
+
+        if (!properties.isSslVerify()) {
+            try {
+                httpClientBuilder
+                        .setSSLContext(SSLContexts.custom().loadTrustMaterial(null, (chain, authType) -> true).build())
+                        .setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        return new ResteasyClientBuilder()
+                .httpEngine(new RecordingHttpEngine.Async(httpClientBuilder.build(), adminApiCallRecorder))
+                .register(JacksonProvider.class, 100)
+                .register(adminApiCallRecorder)
+                .build();
     }
 
     private String buildUri(String baseUri) {
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package de.adorsys.keycloak.config.provider;
+
+import de.adorsys.keycloak.config.service.report.AdminApiCallRecorder;
+import org.apache.http.HttpHost;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngineBuilder43;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpAsyncClient4Engine;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.client.InvocationCallback;
+import java.util.concurrent.Future;
+
+/**
+ * Reports requests failing without response to the {@link AdminApiCallRecorder}, whose response filter never sees
+ * them. RESTEasy casts the engine of a client to the Apache engine it was built with, hence the subclasses instead of
+ * a delegating engine.
+ */
+class RecordingHttpEngine extends ApacheHttpClient43Engine {
+    private final AdminApiCallRecorder adminApiCallRecorder;
+
+    RecordingHttpEngine(HttpClient httpClient, AdminApiCallRecorder adminApiCallRecorder) {
+        super(httpClient, true);
+        this.adminApiCallRecorder = adminApiCallRecorder;
+    }
+
+    @Override
+    public ClientResponse invoke(ClientInvocation request) {
+        try {
+            return super.invoke(request);
+        } catch (RuntimeException | Error e) {
+            adminApiCallRecorder.failed(request.getMutableProperties(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the engine the {@link ClientHttpEngineBuilder43} would create, from the settings of its
+     * {@link org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder}
+     */
+    static class Builder extends ClientHttpEngineBuilder43 {
+        private final AdminApiCallRecorder adminApiCallRecorder;
+
+        Builder(AdminApiCallRecorder adminApiCallRecorder) {
+            this.adminApiCallRecorder = adminApiCallRecorder;
+        }
+
+        @Override
+        protected ClientHttpEngine createEngine(
+                HttpClientConnectionManager connectionManager,
+                RequestConfig.Builder requestConfigBuilder,
+                HttpHost defaultProxy,
+                int responseBufferSize,
+                HostnameVerifier hostnameVerifier,
+                SSLContext sslContext
+        ) {
+            HttpClient httpClient = HttpClientBuilder.create()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(requestConfigBuilder.setProxy(defaultProxy).build())
+                    .disableContentCompression()
+                    .build();
+
+            RecordingHttpEngine engine = new RecordingHttpEngine(httpClient, adminApiCallRecorder);
+            engine.setResponseBufferSize(responseBufferSize);
+            engine.setHostnameVerifier(hostnameVerifier);
+            engine.setSslContext(sslContext);
+            return engine;
+        }
+    }
+
+    static class Async extends ApacheHttpAsyncClient4Engine {
+        private final AdminApiCallRecorder adminApiCallRecorder;
+
+        Async(CloseableHttpAsyncClient client, AdminApiCallRecorder adminApiCallRecorder) {
+            super(client, true);
+            this.adminApiCallRecorder = adminApiCallRecorder;
+        }
+
+        @Override
+        public ClientResponse invoke(ClientInvocation request) {
+            try {
+                return super.invoke(request);
+            } catch (RuntimeException | Error e) {
+                adminApiCallRecorder.failed(request.getMutableProperties(), e);
+                throw e;
+            }
+        }
+
+        @Override
+        public <T> Future<T> submit(
+                ClientInvocation request,
+                boolean buffered,
+                InvocationCallback<T> callback,
+                ResultExtractor<T> extractor
+        ) {
+            return super.submit(request, buffered, new InvocationCallback<T>() {
+                @Override
+                public void completed(T response) {
+                    if (callback != null) callback.completed(response);
+                }
+
+                @Override
+                public void failed(Throwable error) {
+                    adminApiCallRecorder.failed(request.getMutableProperties(), error);
+                    if (callback != null) callback.failed(error);
+                }
+            }, extractor);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.service.report.AdminApiCallRecorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends admin requests without blocking the caller, shared by the async repositories. The futures complete on the io
+ * threads of the async http engine of {@link KeycloakProvider}, so callbacks must not block.
+ */
+@Component
+public class AsyncAdminClient {
+    private final KeycloakProvider keycloakProvider;
+
+    @Autowired
+    public AsyncAdminClient(KeycloakProvider keycloakProvider) {
+        this.keycloakProvider = keycloakProvider;
+    }
+
+    WebTarget realm(String realm) {
+        return keycloakProvider.getAdminTarget()
+                .path("{realm}")
+                .resolveTemplate("realm", realm);
+    }
+
+    <T> CompletableFuture<T> get(String caller, WebTarget target, GenericType<T> responseType) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        // the engine buffers the entity before it calls back, reading it does not block the io thread
+        request(caller, target).async().get(new InvocationCallback<Response>() {
+            @Override
+            public void completed(Response response) {
+                try {
+                    if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                        throw new KeycloakRepositoryException(
+                                "Cannot GET " + target.getUri() + ": " + response.getStatusInfo().getReasonPhrase()
+                        );
+                    }
+
+                    result.complete(response.readEntity(responseType));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    response.close();
+                }
+            }
+
+            @Override
+            public void failed(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        });
+
+        return result;
+    }
+
+    private Invocation.Builder request(String caller, WebTarget target) {
+        return target.request(MediaType.APPLICATION_JSON_TYPE)
+                .property(AdminApiCallRecorder.CALLER_PROPERTY, caller);
+    }
+}
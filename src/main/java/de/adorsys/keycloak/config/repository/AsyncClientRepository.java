@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.ws.rs.core.GenericType;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+public class AsyncClientRepository {
+    private static final GenericType<List<ClientRepresentation>> CLIENT_LIST = new GenericType<List<ClientRepresentation>>() {
+    };
+
+    private final AsyncAdminClient asyncAdminClient;
+
+    @Autowired
+    public AsyncClientRepository(AsyncAdminClient asyncAdminClient) {
+        this.asyncAdminClient = asyncAdminClient;
+    }
+
+    public CompletableFuture<ClientRepresentation> getClient(String realm, String clientId) {
+        return asyncAdminClient.get(
+                "AsyncClientRepository.getClient",
+                asyncAdminClient.realm(realm).path("clients").queryParam("clientId", clientId),
+                CLIENT_LIST
+        ).thenApply(foundClients -> {
+            if (foundClients.isEmpty()) {
+                throw new KeycloakRepositoryException("Cannot find client by clientId '" + clientId + "'");
+            }
+
+            return foundClients.get(0);
+        });
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+@Service
+public class AsyncRoleRepository {
+    private static final GenericType<List<RoleRepresentation>> ROLE_LIST = new GenericType<List<RoleRepresentation>>() {
+    };
+
+    private final AsyncAdminClient asyncAdminClient;
+
+    @Autowired
+    public AsyncRoleRepository(AsyncAdminClient asyncAdminClient) {
+        this.asyncAdminClient = asyncAdminClient;
+    }
+
+    public CompletableFuture<List<String>> getUserRealmLevelRoles(String realm, String userId) {
+        WebTarget target = userRoleMappings(realm, userId)
+                .path("realm/composite");
+
+        return asyncAdminClient.get("AsyncRoleRepository.getUserRealmLevelRoles", target, ROLE_LIST)
+                .thenApply(AsyncRoleRepository::toNames);
+    }
+
+    public CompletableFuture<List<String>> getUserClientLevelRoles(String realm, String userId, String clientUuid) {
+        WebTarget target = userRoleMappings(realm, userId)
+                .path("clients/{client}/composite")
+                .resolveTemplate("client", clientUuid);
+
+        return asyncAdminClient.get("AsyncRoleRepository.getUserClientLevelRoles", target, ROLE_LIST)
+                .thenApply(AsyncRoleRepository::toNames);
+    }
+
+    private WebTarget userRoleMappings(String realm, String userId) {
+        return asyncAdminClient.realm(realm)
+                .path("users/{id}/role-mappings")
+                .resolveTemplate("id", userId);
+    }
+
+    private static List<String> toNames(List<RoleRepresentation> roles) {
+        return roles.stream()
+                .map(RoleRepresentation::getName)
+                .collect(Collectors.toList());
+    }
+}
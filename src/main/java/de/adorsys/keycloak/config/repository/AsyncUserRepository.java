@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.repository;
+
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.ws.rs.core.GenericType;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+public class AsyncUserRepository {
+    private static final GenericType<List<UserRepresentation>> USER_LIST = new GenericType<List<UserRepresentation>>() {
+    };
+
+    private final AsyncAdminClient asyncAdminClient;
+
+    @Autowired
+    public AsyncUserRepository(AsyncAdminClient asyncAdminClient) {
+        this.asyncAdminClient = asyncAdminClient;
+    }
+
+    public CompletableFuture<Optional<UserRepresentation>> tryToFindUser(String realm, String username) {
+        return asyncAdminClient.get(
+                "AsyncUserRepository.tryToFindUser",
+                asyncAdminClient.realm(realm).path("users").queryParam("search", username),
+                USER_LIST
+        ).thenApply(foundUsers -> foundUsers.stream()
+                // search matches substrings, too
+                .filter(u -> u.getUsername().equalsIgnoreCase(username))
+                .findFirst());
+    }
+}
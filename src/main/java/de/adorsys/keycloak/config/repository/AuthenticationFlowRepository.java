@@ -69,15 +69,15 @@ public class AuthenticationFlowRepository {
     }
 
     /**
-     * creates only the top-level flow WITHOUT its executions or execution-flows
+     * creates only the top-level flow WITHOUT its executions or execution-flows and returns its id
      */
-    public void createTopLevelFlow(String realm, AuthenticationFlowRepresentation topLevelFlowToImport) {
+    public String createTopLevelFlow(String realm, AuthenticationFlowRepresentation topLevelFlowToImport) {
         logger.trace("Create top-level-flow '{}' in realm '{}'", topLevelFlowToImport.getAlias(), realm);
 
         AuthenticationManagementResource flowsResource = getFlows(realm);
         Response response = flowsResource.createFlow(topLevelFlowToImport);
 
-        ResponseUtil.throwOnError(response);
+        return ResponseUtil.getCreatedId(response);
     }
 
     public AuthenticationFlowRepresentation getFlowById(String realm, String id) {
@@ -91,14 +91,14 @@ public class ClientScopeRepository {
         }
     }
 
+    /**
+     * @param protocolMappers existing protocol mappers, they are deleted by id
+     */
     public void removeProtocolMappers(String realm, String clientScopeId, List<ProtocolMapperRepresentation> protocolMappers) {
         ClientScopeResource clientScopeResource = loadClientScopeById(realm, clientScopeId);
         ProtocolMappersResource protocolMappersResource = clientScopeResource.getProtocolMappers();
 
-        List<ProtocolMapperRepresentation> existingProtocolMappers = clientScopeResource.getProtocolMappers().getMappers();
-        List<ProtocolMapperRepresentation> protocolMapperToRemove = existingProtocolMappers.stream().filter(em -> protocolMappers.stream().anyMatch(m -> Objects.equals(m.getName(), em.getName()))).collect(Collectors.toList());
-
-        for (ProtocolMapperRepresentation protocolMapper : protocolMapperToRemove) {
+        for (ProtocolMapperRepresentation protocolMapper : protocolMappers) {
             protocolMappersResource.delete(protocolMapper.getId());
         }
     }
@@ -41,11 +41,11 @@ public class ComponentRepository {
         this.realmRepository = realmRepository;
     }
 
-    public void create(String realm, ComponentRepresentation componentToCreate) {
+    public String create(String realm, ComponentRepresentation componentToCreate) {
         RealmResource realmResource = realmRepository.loadRealm(realm);
         Response response = realmResource.components().add(componentToCreate);
 
-        ResponseUtil.throwOnError(response);
+        return ResponseUtil.getCreatedId(response);
     }
 
     public void update(String realm, ComponentRepresentation componentToUpdate) {
@@ -70,19 +70,19 @@ public class GroupRepository {
                 .findFirst();
     }
 
-    public void createGroup(String realm, GroupRepresentation group) {
+    public String createGroup(String realm, GroupRepresentation group) {
         Response response = realmRepository.loadRealm(realm)
                 .groups()
                 .add(group);
 
-        ResponseUtil.throwOnError(response);
+        return ResponseUtil.getCreatedId(response);
     }
 
-    public void addSubGroup(String realm, String parentGroupId, GroupRepresentation subGroup) {
+    public String addSubGroup(String realm, String parentGroupId, GroupRepresentation subGroup) {
         GroupResource groupResource = loadGroupById(realm, parentGroupId);
         Response response = groupResource.subGroup(subGroup);
 
-        ResponseUtil.throwOnError(response);
+        return ResponseUtil.getCreatedId(response);
     }
 
     public GroupRepresentation getSubGroupByName(String realm, String parentGroupId, String name) {
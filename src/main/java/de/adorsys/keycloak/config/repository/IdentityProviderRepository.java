@@ -18,14 +18,16 @@
 
 package de.adorsys.keycloak.config.repository;
 
+import de.adorsys.keycloak.config.util.ResponseUtil;
 import org.keycloak.admin.client.resource.IdentityProviderResource;
 import org.keycloak.admin.client.resource.IdentityProvidersResource;
+import org.keycloak.representations.idm.IdentityProviderMapperRepresentation;
 import org.keycloak.representations.idm.IdentityProviderRepresentation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import javax.ws.rs.NotFoundException;
-import java.util.Optional;
+import javax.ws.rs.core.Response;
+import java.util.List;
 
 @Service
 public class IdentityProviderRepository {
@@ -39,24 +41,17 @@ public class IdentityProviderRepository {
         this.realmRepository = realmRepository;
     }
 
-    public Optional<IdentityProviderRepresentation> tryToFindIdentityProvider(String realm, String name) {
-        Optional<IdentityProviderRepresentation> maybeIdentityProvider;
-
-        IdentityProvidersResource identityProvidersResource = realmRepository.loadRealm(realm).identityProviders();
-        IdentityProviderResource identityProviderResource = identityProvidersResource.get(name);
-
-        try {
-            maybeIdentityProvider = Optional.of(identityProviderResource.toRepresentation());
-        } catch (NotFoundException e) {
-            maybeIdentityProvider = Optional.empty();
-        }
-
-        return maybeIdentityProvider;
+    public List<IdentityProviderRepresentation> getIdentityProviders(String realm) {
+        return realmRepository.loadRealm(realm)
+                .identityProviders()
+                .findAll();
     }
 
     public void createIdentityProvider(String realm, IdentityProviderRepresentation identityProvider) {
         IdentityProvidersResource identityProvidersResource = realmRepository.loadRealm(realm).identityProviders();
-        identityProvidersResource.create(identityProvider);
+        Response response = identityProvidersResource.create(identityProvider);
+
+        ResponseUtil.throwOnError(response);
     }
 
     public void updateIdentityProvider(String realm, IdentityProviderRepresentation identityProviderToUpdate) {
@@ -66,4 +61,24 @@ public class IdentityProviderRepository {
 
         identityProviderResource.update(identityProviderToUpdate);
     }
+
+    public List<IdentityProviderMapperRepresentation> getIdentityProviderMappers(String realm, String alias) {
+        return loadIdentityProvider(realm, alias).getMappers();
+    }
+
+    public void createIdentityProviderMapper(String realm, IdentityProviderMapperRepresentation mapper) {
+        Response response = loadIdentityProvider(realm, mapper.getIdentityProviderAlias()).addMapper(mapper);
+
+        ResponseUtil.throwOnError(response);
+    }
+
+    public void updateIdentityProviderMapper(String realm, IdentityProviderMapperRepresentation mapper) {
+        loadIdentityProvider(realm, mapper.getIdentityProviderAlias()).update(mapper.getId(), mapper);
+    }
+
+    private IdentityProviderResource loadIdentityProvider(String realm, String alias) {
+        return realmRepository.loadRealm(realm)
+                .identityProviders()
+                .get(alias);
+    }
 }
@@ -20,21 +20,38 @@ package de.adorsys.keycloak.config.repository;
 
 import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
 import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.util.ResponseUtil;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.admin.client.resource.RealmsResource;
+import org.keycloak.representations.idm.PartialImportRepresentation;
 import org.keycloak.representations.idm.RealmRepresentation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Realms listed by {@link #getAll()} or looked up by {@link #tryToLoadRealm(String)} are kept until the realm is
+ * written through this repository or {@link #forget(String) forgotten}, so the existence and checksum checks at the
+ * start of a realm import do not fetch the same realm again.
+ * <p>
+ * A realm is forgotten once its import is done, also in server mode. Kept across requests, a realm deleted or changed
+ * outside of keycloak-config-cli would look unchanged and be skipped by every following request, to save one lookup
+ * per realm and request.
+ */
 @Service
 public class RealmRepository {
 
     private final KeycloakProvider keycloakProvider;
 
+    private final Map<String, Optional<RealmRepresentation>> loadedRealms = new ConcurrentHashMap<>();
+
     @Autowired
     public RealmRepository(KeycloakProvider keycloakProvider) {
         this.keycloakProvider = keycloakProvider;
@@ -52,6 +69,8 @@ public class RealmRepository {
         Keycloak keycloak = keycloakProvider.get();
         RealmsResource realmsResource = keycloak.realms();
 
+        loadedRealms.remove(realmToCreate.getRealm());
+
         try {
             realmsResource.create(realmToCreate);
         } catch (WebApplicationException error) {
@@ -66,15 +85,60 @@ public class RealmRepository {
         return loadRealm(realm).toRepresentation();
     }
 
+    public List<RealmRepresentation> getAll() {
+        List<RealmRepresentation> realms = keycloakProvider.get().realms().findAll();
+        realms.forEach(realm -> loadedRealms.put(realm.getRealm(), Optional.of(realm)));
+
+        return realms;
+    }
+
     public void update(RealmRepresentation realmToUpdate) {
+        loadedRealms.remove(realmToUpdate.getRealm());
         loadRealm(realmToUpdate.getRealm()).update(realmToUpdate);
     }
 
     public RealmRepresentation partialExport(String realm) {
-        return loadRealm(realm).partialExport(true, true);
+        return partialExport(realm, true, true);
+    }
+
+    public RealmRepresentation partialExport(String realm, boolean exportGroupsAndRoles, boolean exportClients) {
+        return loadRealm(realm).partialExport(exportGroupsAndRoles, exportClients);
+    }
+
+    public void partialImport(String realm, PartialImportRepresentation partialImport) {
+        loadedRealms.remove(realm);
+        Response response = loadRealm(realm).partialImport(partialImport);
+
+        ResponseUtil.throwOnError(response);
+    }
+
+    /**
+     * The returned representation may be shared with other callers and must not be modified, use {@link #get(String)}
+     * to read a realm for an update
+     */
+    public Optional<RealmRepresentation> tryToLoadRealm(String realm) {
+        Optional<RealmRepresentation> maybeRealm = loadedRealms.get(realm);
+
+        if (maybeRealm == null) {
+            maybeRealm = fetchRealm(realm);
+            loadedRealms.put(realm, maybeRealm);
+        }
+
+        return maybeRealm;
+    }
+
+    /**
+     * Drops what is known about the realm, the next lookup asks keycloak again
+     */
+    public void forget(String realm) {
+        loadedRealms.remove(realm);
+    }
+
+    public void forgetAll() {
+        loadedRealms.clear();
     }
 
-    private Optional<RealmRepresentation> tryToLoadRealm(String realm) {
+    private Optional<RealmRepresentation> fetchRealm(String realm) {
         Optional<RealmRepresentation> maybeRealm;
 
         try {
@@ -27,6 +27,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -49,6 +50,16 @@ public class ScopeMappingRepository {
         this.roleRepository = roleRepository;
     }
 
+    /**
+     * Realm-level scope mappings of all clients and client-scopes, read in one partial export of the realm without its
+     * groups and roles. Its size grows with the number of clients.
+     */
+    public List<ScopeMappingRepresentation> getScopeMappings(String realm) {
+        List<ScopeMappingRepresentation> scopeMappings = realmRepository.partialExport(realm, false, true).getScopeMappings();
+
+        return scopeMappings == null ? Collections.emptyList() : scopeMappings;
+    }
+
     public void addScopeMappingRolesForClient(String realm, String clientId, Collection<String> roles) {
         ClientResource clientResource = clientRepository.getClientResource(realm, clientId);
         RoleMappingResource scopeMappingsResource = clientResource.getScopeMappings();
@@ -20,9 +20,12 @@ package de.adorsys.keycloak.config.service;
 
 import de.adorsys.keycloak.config.exception.InvalidImportException;
 import de.adorsys.keycloak.config.factory.UsedAuthenticationFlowWorkaroundFactory;
+import de.adorsys.keycloak.config.jfr.ImportEvents;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.repository.AuthenticationFlowRepository;
 import de.adorsys.keycloak.config.repository.ExecutionFlowRepository;
+import de.adorsys.keycloak.config.service.report.EntityOutcome;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
 import de.adorsys.keycloak.config.util.AuthenticationFlowUtil;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.AuthenticationExecutionInfoRepresentation;
@@ -51,18 +54,21 @@ public class AuthenticationFlowsImportService {
     private final ExecutionFlowsImportService executionFlowsImportService;
     private final ExecutionFlowRepository executionFlowRepository;
     private final UsedAuthenticationFlowWorkaroundFactory workaroundFactory;
+    private final ImportReportService importReportService;
 
     @Autowired
     public AuthenticationFlowsImportService(
             AuthenticationFlowRepository authenticationFlowRepository,
             ExecutionFlowsImportService executionFlowsImportService,
             ExecutionFlowRepository executionFlowRepository,
-            UsedAuthenticationFlowWorkaroundFactory workaroundFactory
+            UsedAuthenticationFlowWorkaroundFactory workaroundFactory,
+            ImportReportService importReportService
     ) {
         this.authenticationFlowRepository = authenticationFlowRepository;
         this.executionFlowsImportService = executionFlowsImportService;
         this.executionFlowRepository = executionFlowRepository;
         this.workaroundFactory = workaroundFactory;
+        this.importReportService = importReportService;
     }
 
     /**
@@ -108,9 +114,10 @@ public class AuthenticationFlowsImportService {
 
     private void createTopLevelFlow(RealmImport realm, AuthenticationFlowRepresentation topLevelFlowToImport) {
         logger.debug("Creating top-level flow: {}", topLevelFlowToImport.getAlias());
-        authenticationFlowRepository.createTopLevelFlow(realm.getRealm(), topLevelFlowToImport);
+        importReportService.count(EntityOutcome.CREATED);
+        String topLevelFlowId = authenticationFlowRepository.createTopLevelFlow(realm.getRealm(), topLevelFlowToImport);
 
-        AuthenticationFlowRepresentation createdTopLevelFlow = authenticationFlowRepository.getTopLevelFlow(realm.getRealm(), topLevelFlowToImport.getAlias());
+        AuthenticationFlowRepresentation createdTopLevelFlow = createdTopLevelFlow(topLevelFlowId, topLevelFlowToImport);
         executionFlowsImportService.createExecutionsAndExecutionFlows(realm, topLevelFlowToImport, createdTopLevelFlow);
     }
 
@@ -124,9 +131,11 @@ public class AuthenticationFlowsImportService {
 
         if (hasToBeUpdated) {
             logger.debug("Updating top-level flow: {}", topLevelFlowToImport.getAlias());
+            importReportService.count(EntityOutcome.UPDATED);
             recreateTopLevelFlow(realm, topLevelFlowToImport, existingAuthenticationFlow);
         } else {
             logger.debug("No need to update flow: {}", topLevelFlowToImport.getAlias());
+            importReportService.count(EntityOutcome.UNCHANGED);
         }
     }
 
@@ -172,7 +181,7 @@ public class AuthenticationFlowsImportService {
             AuthenticationFlowRepresentation authenticationFlowToImport,
             AuthenticationFlowRepresentation existingAuthenticationFlow
     ) {
-        return !CloneUtil.deepEquals(
+        return !ImportEvents.deepEquals(
                 authenticationFlowToImport,
                 existingAuthenticationFlow,
                 "id"
@@ -197,11 +206,22 @@ public class AuthenticationFlowsImportService {
         workaround.disableTopLevelFlowIfNeeded(topLevelFlowToImport.getAlias());
 
         authenticationFlowRepository.deleteTopLevelFlow(realm.getRealm(), patchedAuthenticationFlow.getId());
-        authenticationFlowRepository.createTopLevelFlow(realm.getRealm(), patchedAuthenticationFlow);
+        String topLevelFlowId = authenticationFlowRepository.createTopLevelFlow(realm.getRealm(), patchedAuthenticationFlow);
 
-        AuthenticationFlowRepresentation createdTopLevelFlow = authenticationFlowRepository.getTopLevelFlow(realm.getRealm(), topLevelFlowToImport.getAlias());
+        AuthenticationFlowRepresentation createdTopLevelFlow = createdTopLevelFlow(topLevelFlowId, topLevelFlowToImport);
         executionFlowsImportService.createExecutionsAndExecutionFlows(realm, topLevelFlowToImport, createdTopLevelFlow);
 
         workaround.resetFlowIfNeeded();
     }
+
+    /**
+     * The executions are attached by id and reported by alias, so the created flow is not read back
+     */
+    private static AuthenticationFlowRepresentation createdTopLevelFlow(String id, AuthenticationFlowRepresentation topLevelFlowToImport) {
+        AuthenticationFlowRepresentation createdTopLevelFlow = new AuthenticationFlowRepresentation();
+        createdTopLevelFlow.setId(id);
+        createdTopLevelFlow.setAlias(topLevelFlowToImport.getAlias());
+
+        return createdTopLevelFlow;
+    }
 }
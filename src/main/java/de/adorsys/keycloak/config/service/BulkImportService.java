@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import org.keycloak.representations.idm.PartialImportRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.ws.rs.WebApplicationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Creates new entities in chunks of <code>import.bulk-size</code> through the partialImport endpoint of the realm
+ * instead of one request per entity. Existing entities are skipped by keycloak, so a chunk never overwrites anything.
+ * <p>
+ * Keycloak imports a chunk in one transaction. If a chunk fails, its entities are created one by one, so the failing
+ * entity is reported like without bulk import.
+ * <p>
+ * A batch may be filled from several threads, see {@link ConcurrentImportService}.
+ */
+@Service
+public class BulkImportService {
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportService.class);
+
+    private static final String SKIP_EXISTING = "SKIP";
+
+    private final RealmRepository realmRepository;
+    private final ImportConfigProperties importConfigProperties;
+
+    @Autowired
+    public BulkImportService(RealmRepository realmRepository, ImportConfigProperties importConfigProperties) {
+        this.realmRepository = realmRepository;
+        this.importConfigProperties = importConfigProperties;
+    }
+
+    /**
+     * @param realm    the realm to create the entities in
+     * @param type     entity type for logging, e.g. <code>users</code>
+     * @param section  sets the chunk into the partial import, e.g. <code>PartialImportRepresentation::setUsers</code>
+     * @param fallback creates a single entity, used if bulk import is disabled or a chunk fails
+     */
+    public <T> Batch<T> batch(String realm, String type, BiConsumer<PartialImportRepresentation, List<T>> section, Consumer<T> fallback) {
+        return new Batch<>(realm, type, section, fallback, importConfigProperties.getBulkSize());
+    }
+
+    public class Batch<T> {
+        private final String realm;
+        private final String type;
+        private final BiConsumer<PartialImportRepresentation, List<T>> section;
+        private final Consumer<T> fallback;
+        private final int size;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private List<T> entities = new ArrayList<>();
+
+        private Batch(String realm, String type, BiConsumer<PartialImportRepresentation, List<T>> section, Consumer<T> fallback, int size) {
+            this.realm = realm;
+            this.type = type;
+            this.section = section;
+            this.fallback = fallback;
+            this.size = size;
+        }
+
+        /**
+         * Queues a new entity, sends the chunk if it is full
+         */
+        public void add(T entity) {
+            if (size <= 0) {
+                fallback.accept(entity);
+                return;
+            }
+
+            List<T> chunk = null;
+            lock.lock();
+
+            try {
+                entities.add(entity);
+
+                if (entities.size() >= size) {
+                    chunk = takeEntities();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (chunk != null) {
+                send(chunk);
+            }
+        }
+
+        /**
+         * Sends all queued entities, has to be called after the last {@link #add(Object)}
+         */
+        public void flush() {
+            List<T> chunk;
+            lock.lock();
+
+            try {
+                chunk = takeEntities();
+            } finally {
+                lock.unlock();
+            }
+
+            if (!chunk.isEmpty()) {
+                send(chunk);
+            }
+        }
+
+        private List<T> takeEntities() {
+            List<T> chunk = entities;
+            entities = new ArrayList<>();
+
+            return chunk;
+        }
+
+        private void send(List<T> chunk) {
+            PartialImportRepresentation partialImport = new PartialImportRepresentation();
+            partialImport.setIfResourceExists(SKIP_EXISTING);
+            section.accept(partialImport, chunk);
+
+            try {
+                logger.debug("Create {} {} in realm '{}' by partial import", chunk.size(), type, realm);
+                realmRepository.partialImport(realm, partialImport);
+            } catch (KeycloakRepositoryException | WebApplicationException error) {
+                logger.warn("Cannot create {} {} in realm '{}' by partial import, creating them one by one: {}", chunk.size(), type, realm, error.getMessage());
+                chunk.forEach(fallback);
+            }
+        }
+    }
+}
@@ -18,10 +18,14 @@
 
 package de.adorsys.keycloak.config.service;
 
+import de.adorsys.keycloak.config.jfr.ImportEvents;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.repository.ClientRepository;
+import de.adorsys.keycloak.config.service.report.EntityOutcome;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.PartialImportRepresentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,12 +39,21 @@ public class ClientImportService {
     private static final Logger logger = LoggerFactory.getLogger(ClientImportService.class);
 
     private final ClientRepository clientRepository;
+    private final ImportReportService importReportService;
+    private final BulkImportService bulkImportService;
+    private final ConcurrentImportService concurrentImportService;
 
     @Autowired
     public ClientImportService(
-            ClientRepository clientRepository
+            ClientRepository clientRepository,
+            ImportReportService importReportService,
+            BulkImportService bulkImportService,
+            ConcurrentImportService concurrentImportService
     ) {
         this.clientRepository = clientRepository;
+        this.importReportService = importReportService;
+        this.bulkImportService = bulkImportService;
+        this.concurrentImportService = concurrentImportService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -53,12 +66,20 @@ public class ClientImportService {
     }
 
     private void createOrUpdateClients(RealmImport realmImport, List<ClientRepresentation> clients) {
-        for (ClientRepresentation client : clients) {
-            createOrUpdateClient(realmImport, client);
-        }
+        String realm = realmImport.getRealm();
+
+        BulkImportService.Batch<ClientRepresentation> clientsToCreate = bulkImportService.batch(
+                realm, "clients", PartialImportRepresentation::setClients, client -> clientRepository.create(realm, client)
+        );
+
+        concurrentImportService.forEach(
+                clients, ClientRepresentation::getClientId, client -> createOrUpdateClient(realmImport, client, clientsToCreate)
+        );
+
+        clientsToCreate.flush();
     }
 
-    private void createOrUpdateClient(RealmImport realmImport, ClientRepresentation client) {
+    private void createOrUpdateClient(RealmImport realmImport, ClientRepresentation client, BulkImportService.Batch<ClientRepresentation> clientsToCreate) {
         String clientId = client.getClientId();
         String realm = realmImport.getRealm();
 
@@ -68,21 +89,24 @@ public class ClientImportService {
             updateClientIfNeeded(realm, client, maybeClient.get());
         } else {
             logger.debug("Create client '{}' in realm '{}'", clientId, realm);
-            clientRepository.create(realm, client);
+            importReportService.count(EntityOutcome.CREATED);
+            clientsToCreate.add(client);
         }
     }
 
     private void updateClientIfNeeded(String realm, ClientRepresentation clientToUpdate, ClientRepresentation existingClient) {
         if (!areClientsEqual(realm, clientToUpdate, existingClient)) {
             logger.debug("Update client '{}' in realm '{}'", clientToUpdate.getClientId(), realm);
+            importReportService.count(EntityOutcome.UPDATED);
             updateClient(realm, existingClient, clientToUpdate);
         } else {
             logger.debug("No need to update client '{}' in realm '{}'", clientToUpdate.getClientId(), realm);
+            importReportService.count(EntityOutcome.UNCHANGED);
         }
     }
 
     private boolean areClientsEqual(String realm, ClientRepresentation clientToUpdate, ClientRepresentation existingClient) {
-        if (CloneUtil.deepEquals(clientToUpdate, existingClient, "id", "secret")) {
+        if (ImportEvents.deepEquals(clientToUpdate, existingClient, "id", "secret")) {
             String clientSecret = clientRepository.getClientSecret(realm, clientToUpdate.getClientId());
             return clientSecret.equals(clientToUpdate.getSecret());
         }
@@ -18,8 +18,11 @@
 
 package de.adorsys.keycloak.config.service;
 
+import de.adorsys.keycloak.config.jfr.ImportEvents;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.repository.ClientScopeRepository;
+import de.adorsys.keycloak.config.service.report.EntityOutcome;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.ClientScopeRepresentation;
 import org.keycloak.representations.idm.ProtocolMapperRepresentation;
@@ -28,18 +31,24 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ClientScopeImportService {
     private static final Logger logger = LoggerFactory.getLogger(ClientScopeImportService.class);
 
     private final ClientScopeRepository clientScopeRepository;
+    private final ImportReportService importReportService;
 
-    public ClientScopeImportService(ClientScopeRepository clientScopeRepository) {
+    public ClientScopeImportService(ClientScopeRepository clientScopeRepository, ImportReportService importReportService) {
         this.clientScopeRepository = clientScopeRepository;
+        this.importReportService = importReportService;
     }
 
     public void importClientScopes(RealmImport realmImport) {
@@ -55,59 +64,64 @@ public class ClientScopeImportService {
 
     private void importClientScopes(String realm, List<ClientScopeRepresentation> clientScopes) {
         List<ClientScopeRepresentation> existingClientScopes = clientScopeRepository.getClientScopes(realm);
-        List<ClientScopeRepresentation> existingDefaultClientScopes = clientScopeRepository.getDefaultClientScopes(realm);
+        Set<String> defaultClientScopeNames = clientScopeRepository.getDefaultClientScopes(realm)
+                .stream()
+                .map(ClientScopeRepresentation::getName)
+                .collect(Collectors.toSet());
 
         if (clientScopes.isEmpty()) {
-            deleteAllExistingClientScopes(realm, existingClientScopes, existingDefaultClientScopes);
+            deleteAllExistingClientScopes(realm, existingClientScopes, defaultClientScopeNames);
         } else {
-            deleteClientScopesMissingInImport(realm, clientScopes, existingClientScopes, existingDefaultClientScopes);
+            deleteClientScopesMissingInImport(realm, clientScopes, existingClientScopes, defaultClientScopeNames);
+
+            // the listed client-scopes contain their protocol mappers, so they are indexed once instead of loaded per client-scope
+            Map<String, ClientScopeRepresentation> existingClientScopesByName = indexByName(existingClientScopes, ClientScopeRepresentation::getName);
 
             for (ClientScopeRepresentation clientScope : clientScopes) {
-                createOrUpdateClientScope(realm, clientScope, existingDefaultClientScopes);
+                createOrUpdateClientScope(realm, clientScope, existingClientScopesByName, defaultClientScopeNames);
             }
         }
     }
 
-    private void deleteAllExistingClientScopes(String realm, List<ClientScopeRepresentation> existingClientScopes, List<ClientScopeRepresentation> existingDefaultClientScopes) {
+    private void deleteAllExistingClientScopes(String realm, List<ClientScopeRepresentation> existingClientScopes, Set<String> defaultClientScopeNames) {
         for (ClientScopeRepresentation existingClientScope : existingClientScopes) {
-            if (isNotDefaultScope(existingClientScope.getName(), existingDefaultClientScopes)) {
+            if (!defaultClientScopeNames.contains(existingClientScope.getName())) {
                 logger.debug("Delete clientScope '{}' in realm '{}'", existingClientScope.getName(), realm);
+                importReportService.count(EntityOutcome.DELETED);
                 clientScopeRepository.deleteClientScope(realm, existingClientScope.getId());
             }
         }
     }
 
-    private void deleteClientScopesMissingInImport(String realm, List<ClientScopeRepresentation> clientScopes, List<ClientScopeRepresentation> existingClientScopes, List<ClientScopeRepresentation> existingDefaultClientScopes) {
+    private void deleteClientScopesMissingInImport(String realm, List<ClientScopeRepresentation> clientScopes, List<ClientScopeRepresentation> existingClientScopes, Set<String> defaultClientScopeNames) {
+        Set<String> clientScopeNames = clientScopes.stream()
+                .map(ClientScopeRepresentation::getName)
+                .collect(Collectors.toSet());
+
         for (ClientScopeRepresentation existingClientScope : existingClientScopes) {
-            if (isNotDefaultScope(existingClientScope.getName(), existingDefaultClientScopes) && !hasClientScopeWithName(clientScopes, existingClientScope.getName())) {
+            if (!defaultClientScopeNames.contains(existingClientScope.getName()) && !clientScopeNames.contains(existingClientScope.getName())) {
                 logger.debug("Delete clientScope '{}' in realm '{}'", existingClientScope.getName(), realm);
+                importReportService.count(EntityOutcome.DELETED);
                 clientScopeRepository.deleteClientScope(realm, existingClientScope.getId());
             }
         }
     }
 
-    private boolean isNotDefaultScope(String clientScopeName, List<ClientScopeRepresentation> existingDefaultClientScopes) {
-        return existingDefaultClientScopes.stream().noneMatch(s -> Objects.equals(s.getName(), clientScopeName));
-    }
-
-    private boolean hasClientScopeWithName(List<ClientScopeRepresentation> clientScopes, String clientScopeName) {
-        return clientScopes.stream().anyMatch(s -> Objects.equals(s.getName(), clientScopeName));
-    }
-
-    private void createOrUpdateClientScope(String realm, ClientScopeRepresentation clientScope, List<ClientScopeRepresentation> existingDefaultClientScopes) {
+    private void createOrUpdateClientScope(String realm, ClientScopeRepresentation clientScope, Map<String, ClientScopeRepresentation> existingClientScopesByName, Set<String> defaultClientScopeNames) {
         String clientScopeName = clientScope.getName();
 
-        Optional<ClientScopeRepresentation> maybeClientScope = clientScopeRepository.tryToFindClientScopeByName(realm, clientScopeName);
-
-        if (!isNotDefaultScope(clientScope.getName(), existingDefaultClientScopes)) {
+        if (defaultClientScopeNames.contains(clientScopeName)) {
             logger.debug("Ignore default clientScope '{}' in realm '{}'", clientScopeName, realm);
             return;
         }
 
-        if (maybeClientScope.isPresent()) {
-            updateClientScopeIfNecessary(realm, clientScope);
+        ClientScopeRepresentation existingClientScope = existingClientScopesByName.get(clientScopeName);
+
+        if (existingClientScope != null) {
+            updateClientScopeIfNecessary(realm, clientScope, existingClientScope);
         } else {
             logger.debug("Create clientScope '{}' in realm '{}'", clientScopeName, realm);
+            importReportService.count(EntityOutcome.CREATED);
             createClientScope(realm, clientScope);
         }
     }
@@ -121,91 +135,68 @@ public class ClientScopeImportService {
         }
     }
 
-    private void updateClientScopeIfNecessary(String realm, ClientScopeRepresentation clientScope) {
-        ClientScopeRepresentation existingClientScope = clientScopeRepository.getClientScopeByName(realm, clientScope.getName());
+    private void updateClientScopeIfNecessary(String realm, ClientScopeRepresentation clientScope, ClientScopeRepresentation existingClientScope) {
         ClientScopeRepresentation patchedClientScope = CloneUtil.patch(existingClientScope, clientScope);
         String clientScopeName = existingClientScope.getName();
 
-        if (CloneUtil.deepEquals(existingClientScope, patchedClientScope)) {
+        if (ImportEvents.deepEquals(existingClientScope, patchedClientScope)) {
             logger.debug("No need to update clientScope '{}' in realm '{}'", clientScopeName, realm);
+            importReportService.count(EntityOutcome.UNCHANGED);
         } else {
             logger.debug("Update clientScope '{}' in realm '{}'", clientScopeName, realm);
-            updateClientScope(realm, patchedClientScope);
+            importReportService.count(EntityOutcome.UPDATED);
+            updateClientScope(realm, patchedClientScope, existingClientScope.getProtocolMappers());
         }
     }
 
-    private void updateClientScope(String realm, ClientScopeRepresentation patchedClientScope) {
+    private void updateClientScope(String realm, ClientScopeRepresentation patchedClientScope, List<ProtocolMapperRepresentation> existingProtocolMappers) {
         clientScopeRepository.updateClientScope(realm, patchedClientScope);
 
         List<ProtocolMapperRepresentation> protocolMappers = patchedClientScope.getProtocolMappers();
         if (protocolMappers != null) {
             String clientScopeId = patchedClientScope.getId();
-            updateProtocolMappers(realm, clientScopeId, protocolMappers);
+            updateProtocolMappers(realm, clientScopeId, protocolMappers, existingProtocolMappers);
         }
     }
 
-    private void updateProtocolMappers(String realm, String clientScopeId, List<ProtocolMapperRepresentation> protocolMappers) {
-        ClientScopeRepresentation existingClientScope = clientScopeRepository.getClientScopeById(realm, clientScopeId);
-
-        List<ProtocolMapperRepresentation> existingProtocolMappers = existingClientScope.getProtocolMappers();
-
-        List<ProtocolMapperRepresentation> protocolMappersToAdd = estimateProtocolMappersToAdd(protocolMappers, existingProtocolMappers);
-        List<ProtocolMapperRepresentation> protocolMappersToRemove = estimateProtocolMappersToRemove(protocolMappers, existingProtocolMappers);
-        List<ProtocolMapperRepresentation> protocolMappersToUpdate = estimateProtocolMappersToUpdate(protocolMappers, existingProtocolMappers);
-
-        clientScopeRepository.addProtocolMappers(realm, clientScopeId, protocolMappersToAdd);
-        clientScopeRepository.removeProtocolMappers(realm, clientScopeId, protocolMappersToRemove);
-        clientScopeRepository.updateProtocolMappers(realm, clientScopeId, protocolMappersToUpdate);
-    }
-
-    private List<ProtocolMapperRepresentation> estimateProtocolMappersToRemove(List<ProtocolMapperRepresentation> protocolMappers, List<ProtocolMapperRepresentation> existingProtocolMappers) {
-        List<ProtocolMapperRepresentation> protocolMappersToRemove = new ArrayList<>();
-
-        if (existingProtocolMappers == null) {
-            return protocolMappersToRemove;
-        }
-
-        for (ProtocolMapperRepresentation existingProtocolMapper : existingProtocolMappers) {
-            if (protocolMappers.stream().noneMatch(m -> Objects.equals(m.getName(), existingProtocolMapper.getName()))) {
-                protocolMappersToRemove.add(existingProtocolMapper);
-            }
-        }
+    /**
+     * Joins the protocol mappers to import with the existing ones by name. Unchanged protocol mappers are not sent.
+     */
+    private void updateProtocolMappers(String realm, String clientScopeId, List<ProtocolMapperRepresentation> protocolMappers, List<ProtocolMapperRepresentation> existingProtocolMappers) {
+        Map<String, ProtocolMapperRepresentation> existingProtocolMappersByName = existingProtocolMappers == null
+                ? new HashMap<>()
+                : indexByName(existingProtocolMappers, ProtocolMapperRepresentation::getName);
 
-        return protocolMappersToRemove;
-    }
-
-    private List<ProtocolMapperRepresentation> estimateProtocolMappersToAdd(List<ProtocolMapperRepresentation> protocolMappers, List<ProtocolMapperRepresentation> existingProtocolMappers) {
         List<ProtocolMapperRepresentation> protocolMappersToAdd = new ArrayList<>();
-
-        if (existingProtocolMappers == null) {
-            return protocolMappers;
-        }
+        List<ProtocolMapperRepresentation> protocolMappersToUpdate = new ArrayList<>();
 
         for (ProtocolMapperRepresentation protocolMapper : protocolMappers) {
-            if (existingProtocolMappers.stream().noneMatch(em -> Objects.equals(em.getName(), protocolMapper.getName()))) {
-                protocolMappersToAdd.add(protocolMapper);
-            }
-        }
-
-        return protocolMappersToAdd;
-    }
+            ProtocolMapperRepresentation existingProtocolMapper = existingProtocolMappersByName.remove(protocolMapper.getName());
 
-    private List<ProtocolMapperRepresentation> estimateProtocolMappersToUpdate(List<ProtocolMapperRepresentation> protocolMappers, List<ProtocolMapperRepresentation> existingProtocolMappers) {
-        List<ProtocolMapperRepresentation> protocolMappersToUpdate = new ArrayList<>();
-
-        if (existingProtocolMappers == null) {
-            return protocolMappersToUpdate;
-        }
+            if (existingProtocolMapper == null) {
+                protocolMappersToAdd.add(protocolMapper);
+            } else {
+                ProtocolMapperRepresentation patchedProtocolMapper = CloneUtil.patch(existingProtocolMapper, protocolMapper);
 
-        for (ProtocolMapperRepresentation protocolMapper : protocolMappers) {
-            Optional<ProtocolMapperRepresentation> existingProtocolMapper = existingProtocolMappers.stream().filter(em -> Objects.equals(em.getName(), protocolMapper.getName())).findFirst();
-            if (existingProtocolMapper.isPresent()) {
-                ProtocolMapperRepresentation patchedProtocolMapper = CloneUtil.patch(existingProtocolMapper.get(), protocolMapper);
-                protocolMappersToUpdate.add(patchedProtocolMapper);
+                if (!ImportEvents.deepEquals(existingProtocolMapper, patchedProtocolMapper)) {
+                    protocolMappersToUpdate.add(patchedProtocolMapper);
+                }
             }
         }
 
-        return protocolMappersToUpdate;
+        // existing protocol mappers not joined with any protocol mapper to import
+        List<ProtocolMapperRepresentation> protocolMappersToRemove = new ArrayList<>(existingProtocolMappersByName.values());
+
+        clientScopeRepository.addProtocolMappers(realm, clientScopeId, protocolMappersToAdd);
+        clientScopeRepository.removeProtocolMappers(realm, clientScopeId, protocolMappersToRemove);
+        clientScopeRepository.updateProtocolMappers(realm, clientScopeId, protocolMappersToUpdate);
     }
 
+    /**
+     * Keeps the first entity per name, like the former search in the list
+     */
+    private static <T> Map<String, T> indexByName(List<T> entities, Function<T, String> name) {
+        return entities.stream()
+                .collect(Collectors.toMap(name, Function.identity(), (first, second) -> first, LinkedHashMap::new));
+    }
 }
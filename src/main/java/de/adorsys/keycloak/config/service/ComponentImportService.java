@@ -20,8 +20,11 @@ package de.adorsys.keycloak.config.service;
 
 import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
+import de.adorsys.keycloak.config.jfr.ImportEvents;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.repository.ComponentRepository;
+import de.adorsys.keycloak.config.service.report.EntityOutcome;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.common.util.MultivaluedHashMap;
 import org.keycloak.representations.idm.ComponentExportRepresentation;
@@ -40,10 +43,12 @@ public class ComponentImportService {
     private static final Logger logger = LoggerFactory.getLogger(ComponentImportService.class);
 
     private final ComponentRepository componentRepository;
+    private final ImportReportService importReportService;
 
     @Autowired
-    public ComponentImportService(ComponentRepository componentRepository) {
+    public ComponentImportService(ComponentRepository componentRepository, ImportReportService importReportService) {
         this.componentRepository = componentRepository;
+        this.importReportService = importReportService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -75,6 +80,7 @@ public class ComponentImportService {
             updateComponentIfNeeded(realm, providerType, componentToImport, maybeComponent.get());
         } else {
             logger.debug("Creating component: {}/{}", providerType, componentToImport.getName());
+            importReportService.count(EntityOutcome.CREATED);
             createComponent(realm, providerType, componentToImport);
         }
     }
@@ -103,8 +109,9 @@ public class ComponentImportService {
             subComponentToAdd.setParentId(parentId);
         }
 
+        String componentId;
         try {
-            componentRepository.create(realm, subComponentToAdd);
+            componentId = componentRepository.create(realm, subComponentToAdd);
         } catch (KeycloakRepositoryException e) {
             throw new ImportProcessingException("Cannot create component '" + subComponentToAdd.getName() + "' in realm '" + realm + "'", e);
         }
@@ -112,8 +119,7 @@ public class ComponentImportService {
         MultivaluedHashMap<String, ComponentExportRepresentation> subComponents = component.getSubComponents();
 
         if (subComponents != null && !subComponents.isEmpty()) {
-            ComponentRepresentation exitingComponent = componentRepository.get(realm, providerType, component.getName());
-            createOrUpdateSubComponents(realm, subComponents, exitingComponent.getId());
+            createOrUpdateSubComponents(realm, subComponents, componentId);
         }
     }
 
@@ -125,12 +131,13 @@ public class ComponentImportService {
     ) {
         ComponentRepresentation patchedComponent = CloneUtil.patch(existingComponent, componentToImport, "id");
 
-        boolean hasToBeUpdated = !CloneUtil.deepEquals(existingComponent, patchedComponent);
+        boolean hasToBeUpdated = !ImportEvents.deepEquals(existingComponent, patchedComponent);
 
         if (hasToBeUpdated) {
             updateComponent(realm, providerType, componentToImport, patchedComponent);
         } else {
             logger.debug("No need to update component: {}/{}", existingComponent.getProviderType(), componentToImport.getName());
+            importReportService.count(EntityOutcome.UNCHANGED);
         }
     }
 
@@ -141,6 +148,7 @@ public class ComponentImportService {
             ComponentRepresentation patchedComponent
     ) {
         logger.debug("Updating component: {}/{}", patchedComponent.getProviderType(), componentToImport.getName());
+        importReportService.count(EntityOutcome.UPDATED);
 
         if (patchedComponent.getProviderType() == null) {
             patchedComponent.setProviderType(providerType);
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.service.trace.TraceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Imports the entities of a phase on virtual threads if <code>import.virtual-threads</code> is set and the JVM
+ * supports them (Java 21+), at most <code>import.max-in-flight</code> at the same time. The import services keep
+ * their blocking calls, a virtual thread waiting for keycloak releases its carrier thread.
+ * <p>
+ * Otherwise the entities are imported one after the other on the calling thread. The same applies to a phase
+ * naming an entity twice, because the later occurrence has to see what the earlier one wrote.
+ */
+@Service
+public class ConcurrentImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentImportService.class);
+
+    private final ImportConfigProperties importConfigProperties;
+    private final TraceService traceService;
+
+    // Executors.newVirtualThreadPerTaskExecutor(), looked up by reflection to keep running on Java 8
+    private final Supplier<ExecutorService> executorFactory;
+
+    @Autowired
+    public ConcurrentImportService(ImportConfigProperties importConfigProperties, TraceService traceService) {
+        this(importConfigProperties, traceService, importConfigProperties.isVirtualThreads() ? findVirtualThreadExecutorFactory() : null);
+    }
+
+    ConcurrentImportService(
+            ImportConfigProperties importConfigProperties,
+            TraceService traceService,
+            Supplier<ExecutorService> executorFactory
+    ) {
+        this.importConfigProperties = importConfigProperties;
+        this.traceService = traceService;
+        this.executorFactory = executorFactory;
+    }
+
+    public boolean isConcurrent() {
+        return executorFactory != null && importConfigProperties.getMaxInFlight() > 1;
+    }
+
+    /**
+     * Like {@link #forEach(List, Consumer)}, but imports one after the other if two entities share a key, e.g. a
+     * client id occurring twice in the import.
+     */
+    public <T> void forEach(List<T> entities, Function<T, String> key, Consumer<T> importEntity) {
+        if (isConcurrent() && !hasUniqueKeys(entities, key)) {
+            logger.debug("Import contains duplicate keys, importing entities one after the other");
+            entities.forEach(importEntity);
+            return;
+        }
+
+        forEach(entities, importEntity);
+    }
+
+    public static <T> boolean hasUniqueKeys(List<T> entities, Function<T, String> key) {
+        Set<String> keys = new HashSet<>();
+
+        return entities.stream().allMatch(entity -> keys.add(key.apply(entity)));
+    }
+
+    /**
+     * Imports every entity and returns when all are done. No further entities are started after one failed, the
+     * first failure in the order of the entities is thrown.
+     */
+    public <T> void forEach(List<T> entities, Consumer<T> importEntity) {
+        if (!isConcurrent() || entities.size() < 2) {
+            entities.forEach(importEntity);
+            return;
+        }
+
+        ExecutorService executor = executorFactory.get();
+        Semaphore inFlight = new Semaphore(importConfigProperties.getMaxInFlight());
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<?>> results = new ArrayList<>(entities.size());
+
+        try {
+            for (T entity : entities) {
+                acquire(inFlight);
+
+                if (failed.get()) {
+                    inFlight.release();
+                    break;
+                }
+
+                results.add(executor.submit(traceService.withActiveSpan(() -> {
+                    try {
+                        importEntity.accept(entity);
+                    } catch (RuntimeException | Error e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        inFlight.release();
+                    }
+                })));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        awaitAll(results);
+    }
+
+    private void awaitAll(List<Future<?>> results) {
+        RuntimeException failure = null;
+
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ImportProcessingException("Interrupted while importing entities", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause()
+                            : new ImportProcessingException("Cannot import entity", e.getCause());
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void acquire(Semaphore inFlight) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImportProcessingException("Interrupted while importing entities", e);
+        }
+    }
+
+    private static Supplier<ExecutorService> findVirtualThreadExecutorFactory() {
+        try {
+            Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+            return () -> {
+                try {
+                    return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    throw new ImportProcessingException("Cannot create virtual thread executor", e);
+                }
+            };
+        } catch (NoSuchMethodException e) {
+            logger.warn("import.virtual-threads requires Java 21 or newer, importing entities one after the other");
+            return null;
+        }
+    }
+}
@@ -18,10 +18,15 @@
 
 package de.adorsys.keycloak.config.service;
 
+import de.adorsys.keycloak.config.jfr.ImportEvents;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.repository.GroupRepository;
+import de.adorsys.keycloak.config.service.report.EntityOutcome;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
+import de.adorsys.keycloak.config.service.trace.TraceService;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.PartialImportRepresentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -33,9 +38,23 @@ public class GroupImportService {
     private static final Logger logger = LoggerFactory.getLogger(GroupImportService.class);
 
     private final GroupRepository groupRepository;
-
-    public GroupImportService(GroupRepository groupRepository) {
+    private final ImportReportService importReportService;
+    private final TraceService traceService;
+    private final BulkImportService bulkImportService;
+    private final ConcurrentImportService concurrentImportService;
+
+    public GroupImportService(
+            GroupRepository groupRepository,
+            ImportReportService importReportService,
+            TraceService traceService,
+            BulkImportService bulkImportService,
+            ConcurrentImportService concurrentImportService
+    ) {
         this.groupRepository = groupRepository;
+        this.importReportService = importReportService;
+        this.traceService = traceService;
+        this.bulkImportService = bulkImportService;
+        this.concurrentImportService = concurrentImportService;
     }
 
     public void importGroups(RealmImport realmImport) {
@@ -57,9 +76,16 @@ public class GroupImportService {
         } else {
             deleteGroupsMissingInImport(realm, groups, existingGroups);
 
-            for (GroupRepresentation group : groups) {
-                createOrUpdateRealmGroup(realm, group);
-            }
+            // a partial import creates the sub groups and the role mappings of the new groups, too
+            BulkImportService.Batch<GroupRepresentation> groupsToCreate = bulkImportService.batch(
+                    realm, "groups", PartialImportRepresentation::setGroups, group -> createGroup(realm, group)
+            );
+
+            concurrentImportService.forEach(
+                    groups, GroupRepresentation::getName, group -> createOrUpdateRealmGroup(realm, group, groupsToCreate)
+            );
+
+            groupsToCreate.flush();
         }
     }
 
@@ -67,6 +93,7 @@ public class GroupImportService {
         for (GroupRepresentation existingGroup : existingGroups) {
             if (!hasGroupWithName(groups, existingGroup.getName())) {
                 logger.debug("Delete group '{}' in realm '{}'", existingGroup.getName(), realm);
+                importReportService.count(EntityOutcome.DELETED);
                 groupRepository.deleteGroup(realm, existingGroup.getId());
             }
         }
@@ -75,6 +102,7 @@ public class GroupImportService {
     private void deleteAllExistingGroups(String realm, List<GroupRepresentation> existingGroups) {
         for (GroupRepresentation existingGroup : existingGroups) {
             logger.debug("Delete group '{}' in realm '{}'", existingGroup.getName(), realm);
+            importReportService.count(EntityOutcome.DELETED);
             groupRepository.deleteGroup(realm, existingGroup.getId());
         }
     }
@@ -83,7 +111,7 @@ public class GroupImportService {
         return groups.stream().anyMatch(g -> Objects.equals(g.getName(), groupName));
     }
 
-    private void createOrUpdateRealmGroup(String realm, GroupRepresentation group) {
+    private void createOrUpdateRealmGroup(String realm, GroupRepresentation group, BulkImportService.Batch<GroupRepresentation> groupsToCreate) {
         String groupName = group.getName();
 
         Optional<GroupRepresentation> maybeGroup = groupRepository.tryToFindGroupByName(realm, groupName);
@@ -92,63 +120,64 @@ public class GroupImportService {
             updateGroupIfNecessary(realm, group);
         } else {
             logger.debug("Create group '{}' in realm '{}'", groupName, realm);
-            createGroup(realm, group);
+            importReportService.count(EntityOutcome.CREATED);
+            groupsToCreate.add(group);
         }
     }
 
     private void createGroup(String realm, GroupRepresentation group) {
-        groupRepository.createGroup(realm, group);
+        String groupId = groupRepository.createGroup(realm, group);
 
-        GroupRepresentation existingGroup = groupRepository.getGroupByName(realm, group.getName());
-        GroupRepresentation patchedGroup = CloneUtil.patch(existingGroup, group);
+        addGroupContent(realm, groupId, group);
+    }
 
-        addRealmRoles(realm, patchedGroup);
-        addClientRoles(realm, patchedGroup);
-        addSubGroups(realm, patchedGroup);
+    /*
+     * The id is taken from the create response, the rest comes straight from the import,
+     * so there is no need to read the freshly created group back
+     */
+    private void addGroupContent(String realm, String groupId, GroupRepresentation group) {
+        addRealmRoles(realm, groupId, group);
+        addClientRoles(realm, groupId, group);
+        addSubGroups(realm, groupId, group);
     }
 
-    private void addRealmRoles(String realm, GroupRepresentation existingGroup) {
-        List<String> realmRoles = existingGroup.getRealmRoles();
+    private void addRealmRoles(String realm, String groupId, GroupRepresentation group) {
+        List<String> realmRoles = group.getRealmRoles();
 
         if (realmRoles != null && !realmRoles.isEmpty()) {
-            groupRepository.addRealmRoles(realm, existingGroup.getId(), realmRoles);
+            groupRepository.addRealmRoles(realm, groupId, realmRoles);
         }
     }
 
-    private void addClientRoles(String realm, GroupRepresentation existingGroup) {
-        Map<String, List<String>> existingClientRoles = existingGroup.getClientRoles();
-        String groupId = existingGroup.getId();
+    private void addClientRoles(String realm, String groupId, GroupRepresentation group) {
+        Map<String, List<String>> clientRoles = group.getClientRoles();
 
-        if (existingClientRoles != null && !existingClientRoles.isEmpty()) {
-            for (Map.Entry<String, List<String>> existingClientRolesEntry : existingClientRoles.entrySet()) {
-                String clientId = existingClientRolesEntry.getKey();
-                List<String> clientRoleNames = existingClientRolesEntry.getValue();
+        if (clientRoles != null && !clientRoles.isEmpty()) {
+            for (Map.Entry<String, List<String>> clientRolesEntry : clientRoles.entrySet()) {
+                String clientId = clientRolesEntry.getKey();
+                List<String> clientRoleNames = clientRolesEntry.getValue();
 
                 groupRepository.addClientRoles(realm, groupId, clientId, clientRoleNames);
             }
         }
     }
 
-    private void addSubGroups(String realm, GroupRepresentation existingGroup) {
-        List<GroupRepresentation> subGroups = existingGroup.getSubGroups();
-        String groupId = existingGroup.getId();
+    private void addSubGroups(String realm, String groupId, GroupRepresentation group) {
+        List<GroupRepresentation> subGroups = group.getSubGroups();
 
         if (subGroups != null && !subGroups.isEmpty()) {
-            for (GroupRepresentation subGroup : subGroups) {
-                addSubGroup(realm, groupId, subGroup);
-            }
+            traceService.span("GroupImportService.addSubGroups", () -> {
+                for (GroupRepresentation subGroup : subGroups) {
+                    addSubGroup(realm, groupId, subGroup);
+                }
+            });
         }
     }
 
     public void addSubGroup(String realm, String parentGroupId, GroupRepresentation subGroup) {
-        groupRepository.addSubGroup(realm, parentGroupId, subGroup);
-
-        GroupRepresentation existingSubGroup = groupRepository.getSubGroupByName(realm, parentGroupId, subGroup.getName());
-        GroupRepresentation patchedGroup = CloneUtil.patch(existingSubGroup, subGroup);
+        String subGroupId = groupRepository.addSubGroup(realm, parentGroupId, subGroup);
 
-        addRealmRoles(realm, patchedGroup);
-        addClientRoles(realm, patchedGroup);
-        addSubGroups(realm, patchedGroup);
+        addGroupContent(realm, subGroupId, subGroup);
     }
 
     private void updateGroupIfNecessary(String realm, GroupRepresentation group) {
@@ -156,10 +185,12 @@ public class GroupImportService {
         GroupRepresentation patchedGroup = CloneUtil.patch(existingGroup, group);
         String groupName = existingGroup.getName();
 
-        if (CloneUtil.deepEquals(existingGroup, patchedGroup)) {
+        if (ImportEvents.deepEquals(existingGroup, patchedGroup)) {
             logger.debug("No need to update group '{}' in realm '{}'", groupName, realm);
+            importReportService.count(EntityOutcome.UNCHANGED);
         } else {
             logger.debug("Update group '{}' in realm '{}'", groupName, realm);
+            importReportService.count(EntityOutcome.UPDATED);
             updateGroup(realm, group, patchedGroup);
         }
     }
@@ -293,6 +324,10 @@ public class GroupImportService {
     }
 
     private void updateSubGroups(String realm, String parentGroupId, List<GroupRepresentation> subGroups) {
+        traceService.span("GroupImportService.updateSubGroups", () -> doUpdateSubGroups(realm, parentGroupId, subGroups));
+    }
+
+    private void doUpdateSubGroups(String realm, String parentGroupId, List<GroupRepresentation> subGroups) {
         GroupRepresentation existingGroup = groupRepository.getGroupById(realm, parentGroupId);
         List<GroupRepresentation> existingSubGroups = existingGroup.getSubGroups();
 
@@ -321,10 +356,12 @@ public class GroupImportService {
 
         GroupRepresentation patchedSubGroup = CloneUtil.patch(existingSubGroup, subGroup);
 
-        if (CloneUtil.deepEquals(existingSubGroup, patchedSubGroup)) {
+        if (ImportEvents.deepEquals(existingSubGroup, patchedSubGroup)) {
             logger.debug("No need to update subGroup '{}' in group with id '{}' in realm '{}'", subGroupName, parentGroupId, realm);
+            importReportService.count(EntityOutcome.UNCHANGED);
         } else {
             logger.debug("Update subGroup '{}' in group with id '{}' in realm '{}'", subGroupName, parentGroupId, realm);
+            importReportService.count(EntityOutcome.UPDATED);
 
             updateGroup(realm, subGroup, patchedSubGroup);
         }
@@ -18,55 +18,228 @@
 
 package de.adorsys.keycloak.config.service;
 
+import de.adorsys.keycloak.config.exception.InvalidImportException;
+import de.adorsys.keycloak.config.jfr.ImportEvents;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.repository.IdentityProviderRepository;
+import de.adorsys.keycloak.config.service.report.EntityOutcome;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
+import de.adorsys.keycloak.config.util.CloneUtil;
+import org.keycloak.representations.idm.IdentityProviderMapperRepresentation;
 import org.keycloak.representations.idm.IdentityProviderRepresentation;
+import org.keycloak.representations.idm.PartialImportRepresentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Reads the identity providers of the realm once and writes only the identity providers and mappers which differ
+ * from the import. The mappers of an identity provider are read only if the import contains mappers for it.
+ */
 @Service
 public class IdentityProviderImportService {
     private static final Logger logger = LoggerFactory.getLogger(IdentityProviderImportService.class);
 
+    private static final String CLIENT_SECRET = "clientSecret";
+    private static final String SECRET_MASK = "**********";
+
     private final IdentityProviderRepository identityProviderRepository;
+    private final ImportReportService importReportService;
+    private final BulkImportService bulkImportService;
+    private final ConcurrentImportService concurrentImportService;
 
     @Autowired
     public IdentityProviderImportService(
-            IdentityProviderRepository identityProviderRepository
+            IdentityProviderRepository identityProviderRepository,
+            ImportReportService importReportService,
+            BulkImportService bulkImportService,
+            ConcurrentImportService concurrentImportService
     ) {
         this.identityProviderRepository = identityProviderRepository;
+        this.importReportService = importReportService;
+        this.bulkImportService = bulkImportService;
+        this.concurrentImportService = concurrentImportService;
     }
 
     public void doImport(RealmImport realmImport) {
-        createOrUpdateIdentityProviders(realmImport);
-    }
-
-    private void createOrUpdateIdentityProviders(RealmImport realmImport) {
         List<IdentityProviderRepresentation> identityProviders = realmImport.getIdentityProviders();
-        if (identityProviders == null) return;
+        List<IdentityProviderMapperRepresentation> identityProviderMappers = realmImport.getIdentityProviderMappers();
+        if (identityProviders == null && identityProviderMappers == null) return;
+
+        String realm = realmImport.getRealm();
+
+        Map<String, IdentityProviderRepresentation> existingIdentityProviders = identityProviderRepository.getIdentityProviders(realm)
+                .stream()
+                .collect(Collectors.toMap(IdentityProviderRepresentation::getAlias, Function.identity()));
 
-        for (IdentityProviderRepresentation identityProvider : identityProviders) {
-            createOrUpdateIdentityProvider(realmImport, identityProvider);
+        if (identityProviders != null) {
+            createOrUpdateIdentityProviders(realm, identityProviders, existingIdentityProviders);
         }
+
+        if (identityProviderMappers != null) {
+            createOrUpdateIdentityProviderMappers(realm, identityProviderMappers, existingIdentityProviders.keySet());
+        }
+    }
+
+    private void createOrUpdateIdentityProviders(
+            String realm,
+            List<IdentityProviderRepresentation> identityProviders,
+            Map<String, IdentityProviderRepresentation> existingIdentityProviders
+    ) {
+        BulkImportService.Batch<IdentityProviderRepresentation> identityProvidersToCreate = bulkImportService.batch(
+                realm, "identityProviders", PartialImportRepresentation::setIdentityProviders,
+                identityProvider -> identityProviderRepository.createIdentityProvider(realm, identityProvider)
+        );
+
+        concurrentImportService.forEach(
+                identityProviders,
+                IdentityProviderRepresentation::getAlias,
+                identityProvider -> createOrUpdateIdentityProvider(
+                        realm, identityProvider, existingIdentityProviders.get(identityProvider.getAlias()), identityProvidersToCreate
+                )
+        );
+
+        identityProvidersToCreate.flush();
     }
 
-    private void createOrUpdateIdentityProvider(RealmImport realmImport, IdentityProviderRepresentation identityProvider) {
+    private void createOrUpdateIdentityProvider(
+            String realm,
+            IdentityProviderRepresentation identityProvider,
+            IdentityProviderRepresentation existingIdentityProvider,
+            BulkImportService.Batch<IdentityProviderRepresentation> identityProvidersToCreate
+    ) {
         String identityProviderName = identityProvider.getAlias();
-        String realm = realmImport.getRealm();
 
-        Optional<IdentityProviderRepresentation> maybeIdentityProvider = identityProviderRepository.tryToFindIdentityProvider(realm, identityProviderName);
+        if (existingIdentityProvider != null) {
+            updateIdentityProviderIfNecessary(realm, identityProvider, existingIdentityProvider);
+        } else {
+            logger.debug("Create identityProvider '{}' in realm '{}'", identityProviderName, realm);
+            importReportService.count(EntityOutcome.CREATED);
+            identityProvidersToCreate.add(identityProvider);
+        }
+    }
 
-        if (maybeIdentityProvider.isPresent()) {
+    private void updateIdentityProviderIfNecessary(
+            String realm,
+            IdentityProviderRepresentation identityProvider,
+            IdentityProviderRepresentation existingIdentityProvider
+    ) {
+        String identityProviderName = identityProvider.getAlias();
+        IdentityProviderRepresentation patchedIdentityProvider = CloneUtil.patch(existingIdentityProvider, identityProvider, "internalId");
+
+        if (isEqual(existingIdentityProvider, patchedIdentityProvider)) {
+            logger.debug("No need to update identityProvider '{}' in realm '{}'", identityProviderName, realm);
+            importReportService.count(EntityOutcome.UNCHANGED);
+        } else {
             logger.debug("Update identityProvider '{}' in realm '{}'", identityProviderName, realm);
-            identityProviderRepository.updateIdentityProvider(realm, identityProvider);
+            importReportService.count(EntityOutcome.UPDATED);
+            identityProviderRepository.updateIdentityProvider(realm, patchedIdentityProvider);
+        }
+    }
+
+    /*
+     * keycloak masks the client secret in its responses and keeps the stored secret if the masked value is written back.
+     * A secret of the import cannot be compared with the stored one, so an identity provider whose import carries
+     * a secret is always written. Without a secret in the import, the masked secret does not make it differ.
+     */
+    private static boolean isEqual(
+            IdentityProviderRepresentation existingIdentityProvider,
+            IdentityProviderRepresentation patchedIdentityProvider
+    ) {
+        Map<String, String> existingConfig = existingIdentityProvider.getConfig();
+
+        if (existingConfig == null || !SECRET_MASK.equals(existingConfig.get(CLIENT_SECRET))) {
+            return ImportEvents.deepEquals(existingIdentityProvider, patchedIdentityProvider);
+        }
+
+        Map<String, String> patchedConfig = patchedIdentityProvider.getConfig();
+        if (patchedConfig == null) return false;
+
+        String importedSecret = patchedConfig.get(CLIENT_SECRET);
+        if (importedSecret != null && !SECRET_MASK.equals(importedSecret)) return false;
+
+        IdentityProviderRepresentation maskedIdentityProvider = CloneUtil.deepClone(patchedIdentityProvider);
+        maskedIdentityProvider.getConfig().put(CLIENT_SECRET, SECRET_MASK);
+
+        return ImportEvents.deepEquals(existingIdentityProvider, maskedIdentityProvider);
+    }
+
+    private void createOrUpdateIdentityProviderMappers(
+            String realm,
+            List<IdentityProviderMapperRepresentation> identityProviderMappers,
+            Set<String> existingIdentityProviderAliases
+    ) {
+        Map<String, List<IdentityProviderMapperRepresentation>> mappersByAlias = new LinkedHashMap<>();
+
+        for (IdentityProviderMapperRepresentation identityProviderMapper : identityProviderMappers) {
+            String alias = identityProviderMapper.getIdentityProviderAlias();
+            if (alias == null) {
+                throw new InvalidImportException("Identity provider mapper '" + identityProviderMapper.getName() + "' in realm '" + realm + "' has no identityProviderAlias");
+            }
+
+            mappersByAlias.computeIfAbsent(alias, key -> new ArrayList<>()).add(identityProviderMapper);
+        }
+
+        concurrentImportService.forEach(new ArrayList<>(mappersByAlias.entrySet()), mappersOfIdentityProvider -> {
+            String alias = mappersOfIdentityProvider.getKey();
+
+            // identity providers created by this import have no mappers yet
+            List<IdentityProviderMapperRepresentation> existingMappers = existingIdentityProviderAliases.contains(alias)
+                    ? identityProviderRepository.getIdentityProviderMappers(realm, alias)
+                    : Collections.emptyList();
+
+            createOrUpdateIdentityProviderMappers(realm, mappersOfIdentityProvider.getValue(), existingMappers);
+        });
+    }
+
+    private void createOrUpdateIdentityProviderMappers(
+            String realm,
+            List<IdentityProviderMapperRepresentation> identityProviderMappers,
+            List<IdentityProviderMapperRepresentation> existingMappers
+    ) {
+        Map<String, IdentityProviderMapperRepresentation> existingMappersByName = existingMappers.stream()
+                .collect(Collectors.toMap(IdentityProviderMapperRepresentation::getName, Function.identity(), (first, second) -> first));
+
+        for (IdentityProviderMapperRepresentation identityProviderMapper : identityProviderMappers) {
+            IdentityProviderMapperRepresentation existingMapper = existingMappersByName.get(identityProviderMapper.getName());
+
+            if (existingMapper == null) {
+                logger.debug("Create mapper '{}' of identityProvider '{}' in realm '{}'",
+                        identityProviderMapper.getName(), identityProviderMapper.getIdentityProviderAlias(), realm);
+                importReportService.count(EntityOutcome.CREATED);
+                identityProviderRepository.createIdentityProviderMapper(realm, identityProviderMapper);
+            } else {
+                updateIdentityProviderMapperIfNecessary(realm, identityProviderMapper, existingMapper);
+            }
+        }
+    }
+
+    private void updateIdentityProviderMapperIfNecessary(
+            String realm,
+            IdentityProviderMapperRepresentation identityProviderMapper,
+            IdentityProviderMapperRepresentation existingMapper
+    ) {
+        IdentityProviderMapperRepresentation patchedMapper = CloneUtil.patch(existingMapper, identityProviderMapper, "id");
+
+        if (ImportEvents.deepEquals(existingMapper, patchedMapper)) {
+            logger.debug("No need to update mapper '{}' of identityProvider '{}' in realm '{}'",
+                    existingMapper.getName(), existingMapper.getIdentityProviderAlias(), realm);
+            importReportService.count(EntityOutcome.UNCHANGED);
         } else {
-            logger.debug("Create identityProvider '{}' in realm '{}'", identityProviderName, realm);
-            identityProviderRepository.createIdentityProvider(realm, identityProvider);
+            logger.debug("Update mapper '{}' of identityProvider '{}' in realm '{}'",
+                    existingMapper.getName(), existingMapper.getIdentityProviderAlias(), realm);
+            importReportService.count(EntityOutcome.UPDATED);
+            identityProviderRepository.updateIdentityProviderMapper(realm, patchedMapper);
         }
     }
 }
@@ -18,11 +18,14 @@
 
 package de.adorsys.keycloak.config.service;
 
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.properties.ImportConfigProperties;
 import de.adorsys.keycloak.config.provider.KeycloakProvider;
 import de.adorsys.keycloak.config.repository.RealmRepository;
 import de.adorsys.keycloak.config.service.checksum.ChecksumService;
+import de.adorsys.keycloak.config.service.checksum.RealmAttributeChecksumStore;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.RealmRepresentation;
 import org.slf4j.Logger;
@@ -30,10 +33,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class RealmImportService {
     private static final Logger logger = LoggerFactory.getLogger(RealmImportService.class);
 
+    private static final long SHARD_WAIT_INTERVAL_MILLIS = 1000;
+
     private final String[] ignoredPropertiesForCreation = new String[]{
             "users",
             "groups",
@@ -53,6 +61,7 @@ public class RealmImportService {
             "users",
             "groups",
             "identityProviders",
+            "identityProviderMappers",
             "browserFlow",
             "directGrantFlow",
             "clientAuthenticationFlow",
@@ -92,6 +101,7 @@ public class RealmImportService {
     private final ImportConfigProperties importProperties;
 
     private final ChecksumService checksumService;
+    private final ImportReportService importReportService;
 
     @Autowired
     public RealmImportService(
@@ -110,7 +120,8 @@ public class RealmImportService {
             CustomImportService customImportService,
             ScopeMappingImportService scopeMappingImportService,
             IdentityProviderImportService identityProviderImportService,
-            ChecksumService checksumService
+            ChecksumService checksumService,
+            ImportReportService importReportService
     ) {
         this.importProperties = importProperties;
         this.keycloakProvider = keycloakProvider;
@@ -128,68 +139,191 @@ public class RealmImportService {
         this.scopeMappingImportService = scopeMappingImportService;
         this.identityProviderImportService = identityProviderImportService;
         this.checksumService = checksumService;
+        this.importReportService = importReportService;
     }
 
+    /**
+     * The checksum is checked first: depending on the checksum store an unchanged realm is detected without loading
+     * the realm at all. Unknown realms always have to be updated, so they are looked up afterwards. A realm already
+     * loaded for the checksum or listed before is not fetched again for that lookup.
+     */
     public void doImport(RealmImport realmImport) {
-        boolean realmExists = realmRepository.exists(realmImport.getRealm());
+        importReportService.startRealm(realmImport.getRealm());
+        String status = "failed";
 
-        if (realmExists) {
-            updateRealmIfNecessary(realmImport);
-        } else {
-            createRealm(realmImport);
+        try {
+            status = importRealm(realmImport);
+        } finally {
+            // the next import of the realm, e.g. the next request in server mode, asks keycloak again
+            realmRepository.forget(realmImport.getRealm());
+            importReportService.finishRealm(status);
+        }
+
+        // in server mode the admin client and its token are kept for the next request
+        if (!importProperties.isServerMode()) {
+            keycloakProvider.close();
+        }
+    }
+
+    private String importRealm(RealmImport realmImport) {
+        if (!hasToBeImported(realmImport)) {
+            logger.debug(
+                    "No need to update realm '{}', import checksum same: '{}'",
+                    realmImport.getRealm(),
+                    realmImport.getChecksum()
+            );
+
+            return "skipped";
+        }
+
+        if (!importProperties.isLeaderShard()) {
+            waitForLeaderShard(realmImport);
+            checksumService.verify(realmImport, realmRepository.tryToLoadRealm(realmImport.getRealm()));
+            updateRealm(realmImport);
+            return "updated";
         }
 
-        keycloakProvider.close();
+        Optional<RealmRepresentation> existingRealm = realmRepository.tryToLoadRealm(realmImport.getRealm());
+        checksumService.verify(realmImport, existingRealm);
+
+        if (existingRealm.isPresent()) {
+            updateRealm(realmImport);
+            return "updated";
+        }
+
+        createRealm(realmImport);
+        return "created";
     }
 
+    /**
+     * Each section of the import is released as soon as the last phase reading it has finished, so the sections of
+     * finished phases can be garbage collected while the following phases run. A new realm is always imported
+     * completely, the section selection only applies to updates.
+     */
     private void createRealm(RealmImport realmImport) {
         logger.debug("Creating realm '{}' ...", realmImport.getRealm());
 
-        RealmRepresentation realmForCreation = CloneUtil.deepClone(realmImport, RealmRepresentation.class, ignoredPropertiesForCreation);
-        realmRepository.create(realmForCreation);
+        importReportService.phase("realm", () -> realmRepository.create(
+                CloneUtil.deepClone(realmImport, RealmRepresentation.class, ignoredPropertiesForCreation)
+        ));
+        realmImport.setClients(null);
+        realmImport.setRoles(null);
+        realmImport.setClientScopes(null);
+        realmImport.setRequiredActions(null);
+        realmImport.setIdentityProviders(null);
+        realmImport.setIdentityProviderMappers(null);
+        realmImport.setScopeMappings(null);
 
-        userImportService.doImport(realmImport);
-        groupImportService.importGroups(realmImport);
-        authenticationFlowsImportService.doImport(realmImport);
-        setupFlows(realmImport);
-        componentImportService.doImport(realmImport);
-        customImportService.doImport(realmImport);
-        checksumService.doImport(realmImport);
+        importReportService.phase("users", () -> userImportService.doImport(realmImport));
+        realmImport.setUsers(null);
+        importReportService.phase("groups", () -> groupImportService.importGroups(realmImport));
+        realmImport.setGroups(null);
+        importReportService.phase("authenticationFlows", () -> authenticationFlowsImportService.doImport(realmImport));
+        realmImport.setAuthenticationFlowImports(null);
+        realmImport.setAuthenticatorConfig(null);
+        importReportService.phase("flowBindings", () -> setupFlows(realmImport));
+        importReportService.phase("components", () -> componentImportService.doImport(realmImport));
+        realmImport.setComponents(null);
+        importReportService.phase("custom", () -> customImportService.doImport(realmImport));
+        importReportService.phase("checksum", () -> checksumService.doImport(realmImport));
     }
 
-    private void updateRealmIfNecessary(RealmImport realmImport) {
-        if (importProperties.isForce() || checksumService.hasToBeUpdated(realmImport)) {
-            updateRealm(realmImport);
-        } else {
-            logger.debug(
-                    "No need to update realm '{}', import checksum same: '{}'",
-                    realmImport.getRealm(),
-                    realmImport.getChecksum()
-            );
+    /**
+     * The users of the other shards refer to the roles, groups and clients of the import, so those shards wait until
+     * shard 0 has created or updated the realm from the same import and stored its checksum
+     */
+    private void waitForLeaderShard(RealmImport realmImport) {
+        String realm = realmImport.getRealm();
+        String leaderChecksumAttribute = RealmAttributeChecksumStore.getCustomAttributeKey(importProperties.getLeaderChecksumKey());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(importProperties.getShardWaitTimeout());
+
+        while (!isImportedByLeaderShard(realmImport, leaderChecksumAttribute)) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+
+            if (remainingMillis <= 0) {
+                throw new ImportProcessingException("Cannot import users of shard " + importProperties.getShardIndex() + " into realm '"
+                        + realm + "': shard 0 has not imported the same file within " + importProperties.getShardWaitTimeout()
+                        + " seconds (import.shard-wait-timeout). Shard 0 creates the realm and everything but users, start it "
+                        + "first or together with the other shards");
+            }
+
+            logger.info("Wait for shard 0 to import realm '{}'", realm);
+            sleep(Math.min(remainingMillis, SHARD_WAIT_INTERVAL_MILLIS));
+            realmRepository.forget(realm);
+        }
+    }
+
+    private boolean isImportedByLeaderShard(RealmImport realmImport, String leaderChecksumAttribute) {
+        return realmRepository.tryToLoadRealm(realmImport.getRealm())
+                .map(RealmRepresentation::getAttributes)
+                .map(attributes -> attributes.get(leaderChecksumAttribute))
+                .filter(realmImport.getChecksum()::equals)
+                .isPresent();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImportProcessingException("Interrupted while waiting for shard 0", e);
         }
     }
 
+    private boolean hasToBeImported(RealmImport realmImport) {
+        return importProperties.isForce() || checksumService.hasToBeUpdated(realmImport);
+    }
+
+    /**
+     * Sections are released like in {@link #createRealm(RealmImport)}. Sections excluded by import.include-sections or
+     * import.exclude-sections are skipped without any admin API call.
+     */
     private void updateRealm(RealmImport realmImport) {
         logger.debug("Updating realm '{}'...", realmImport.getRealm());
 
-        RealmRepresentation realmToUpdate = CloneUtil.deepClone(realmImport, RealmRepresentation.class, ignoredPropertiesForUpdate);
-        realmRepository.update(realmToUpdate);
+        importSection("realm", () -> realmRepository.update(
+                CloneUtil.deepClone(realmImport, RealmRepresentation.class, ignoredPropertiesForUpdate)
+        ));
 
-        clientImportService.doImport(realmImport);
-        roleImportService.doImport(realmImport);
-        groupImportService.importGroups(realmImport);
-        clientScopeImportService.importClientScopes(realmImport);
-        userImportService.doImport(realmImport);
-        requiredActionsImportService.doImport(realmImport);
-        authenticationFlowsImportService.doImport(realmImport);
-        authenticatorConfigImportService.doImport(realmImport);
-        setupFlows(realmImport);
-        componentImportService.doImport(realmImport);
-        scopeMappingImportService.doImport(realmImport);
-        identityProviderImportService.doImport(realmImport);
-        customImportService.doImport(realmImport);
-
-        checksumService.doImport(realmImport);
+        importSection("clients", () -> clientImportService.doImport(realmImport));
+        realmImport.setClients(null);
+        importSection("roles", () -> roleImportService.doImport(realmImport));
+        realmImport.setRoles(null);
+        importSection("groups", () -> groupImportService.importGroups(realmImport));
+        realmImport.setGroups(null);
+        importSection("clientScopes", () -> clientScopeImportService.importClientScopes(realmImport));
+        realmImport.setClientScopes(null);
+        importSection("users", () -> userImportService.doImport(realmImport));
+        realmImport.setUsers(null);
+        importSection("requiredActions", () -> requiredActionsImportService.doImport(realmImport));
+        realmImport.setRequiredActions(null);
+        importSection("authenticationFlows", () -> authenticationFlowsImportService.doImport(realmImport));
+        realmImport.setAuthenticationFlowImports(null);
+        importSection("authenticatorConfig", () -> authenticatorConfigImportService.doImport(realmImport));
+        realmImport.setAuthenticatorConfig(null);
+        importSection("flowBindings", () -> setupFlows(realmImport));
+        importSection("components", () -> componentImportService.doImport(realmImport));
+        realmImport.setComponents(null);
+        importSection("scopeMappings", () -> scopeMappingImportService.doImport(realmImport));
+        realmImport.setScopeMappings(null);
+        importSection("identityProviders", () -> identityProviderImportService.doImport(realmImport));
+        realmImport.setIdentityProviders(null);
+        realmImport.setIdentityProviderMappers(null);
+        importSection("custom", () -> customImportService.doImport(realmImport));
+
+        // partial and sharded imports keep their own checksum, see ImportConfigProperties.getChecksumKey()
+        importReportService.phase("checksum", () -> checksumService.doImport(realmImport));
+    }
+
+    /**
+     * Besides the selected sections, only the leader shard imports anything but users
+     */
+    private void importSection(String section, Runnable importSection) {
+        if (importProperties.isSectionIncluded(section) && (importProperties.isLeaderShard() || "users".equals(section))) {
+            importReportService.phase(section, importSection);
+        } else {
+            logger.debug("Skip section '{}'", section);
+        }
     }
 
     private void setupFlows(RealmImport realmImport) {
@@ -19,8 +19,11 @@
 package de.adorsys.keycloak.config.service;
 
 import de.adorsys.keycloak.config.exception.InvalidImportException;
+import de.adorsys.keycloak.config.jfr.ImportEvents;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.repository.RequiredActionRepository;
+import de.adorsys.keycloak.config.service.report.EntityOutcome;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
 import de.adorsys.keycloak.config.util.CloneUtil;
 import org.keycloak.representations.idm.RequiredActionProviderRepresentation;
 import org.keycloak.representations.idm.RequiredActionProviderSimpleRepresentation;
@@ -39,11 +42,14 @@ public class RequiredActionsImportService {
     private static final Logger logger = LoggerFactory.getLogger(RequiredActionsImportService.class);
 
     private final RequiredActionRepository requiredActionRepository;
+    private final ImportReportService importReportService;
 
     public RequiredActionsImportService(
-            RequiredActionRepository requiredActionRepository
+            RequiredActionRepository requiredActionRepository,
+            ImportReportService importReportService
     ) {
         this.requiredActionRepository = requiredActionRepository;
+        this.importReportService = importReportService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -88,16 +94,19 @@ public class RequiredActionsImportService {
             updateRequiredActionIfNeeded(realm, requiredActionToImport, requiredActionAlias, existingRequiredAction);
         } else {
             logger.debug("Creating required action: {}", requiredActionAlias);
-            createAndConfigureRequiredAction(realm, requiredActionToImport, requiredActionAlias);
+            importReportService.count(EntityOutcome.CREATED);
+            createAndConfigureRequiredAction(realm, requiredActionToImport);
         }
     }
 
     private void updateRequiredActionIfNeeded(String realm, RequiredActionProviderRepresentation requiredActionToImport, String requiredActionAlias, RequiredActionProviderRepresentation existingRequiredAction) {
         if (hasToBeUpdated(requiredActionToImport, existingRequiredAction)) {
             logger.debug("Updating required action: {}", requiredActionAlias);
+            importReportService.count(EntityOutcome.UPDATED);
             updateRequiredAction(realm, requiredActionToImport, existingRequiredAction);
         } else {
             logger.debug("No need to update required action: {}", requiredActionAlias);
+            importReportService.count(EntityOutcome.UNCHANGED);
         }
     }
 
@@ -105,21 +114,21 @@ public class RequiredActionsImportService {
             RequiredActionProviderRepresentation requiredActionToImport,
             RequiredActionProviderRepresentation existingRequiredAction
     ) {
-        return !CloneUtil.deepEquals(requiredActionToImport, existingRequiredAction);
+        return !ImportEvents.deepEquals(requiredActionToImport, existingRequiredAction);
     }
 
-    private void createAndConfigureRequiredAction(String realm, RequiredActionProviderRepresentation requiredActionToImport, String requiredActionAlias) {
+    private void createAndConfigureRequiredAction(String realm, RequiredActionProviderRepresentation requiredActionToImport) {
         RequiredActionProviderSimpleRepresentation requiredActionToCreate = CloneUtil.deepClone(requiredActionToImport, RequiredActionProviderSimpleRepresentation.class);
         requiredActionRepository.createRequiredAction(realm, requiredActionToCreate);
 
-        RequiredActionProviderRepresentation createdRequiredAction = requiredActionRepository.getRequiredAction(realm, requiredActionAlias);
-
         /*
          we need to update the required-action after creation because the creation only accepts following properties to be set:
          - providerId
          - name
+         the update overwrites every property of the created required-action, so it is configured from the import
+         instead of reading it back first
         */
-        updateRequiredAction(realm, requiredActionToImport, createdRequiredAction);
+        updateRequiredAction(realm, requiredActionToImport, requiredActionToImport);
     }
 
     private void updateRequiredAction(
@@ -143,6 +152,7 @@ public class RequiredActionsImportService {
     private void deleteAllExistingRequiredActions(String realm, List<RequiredActionProviderRepresentation> existingRequiredActions) {
         for (RequiredActionProviderRepresentation existingRequiredAction : existingRequiredActions) {
             logger.debug("Delete requiredAction '{}' in realm '{}'", existingRequiredAction.getName(), realm);
+            importReportService.count(EntityOutcome.DELETED);
             requiredActionRepository.deleteRequiredAction(realm, existingRequiredAction);
         }
     }
@@ -151,6 +161,7 @@ public class RequiredActionsImportService {
         for (RequiredActionProviderRepresentation existingRequiredAction : existingRequiredActions) {
             if (!hasRequiredActionWithAlias(existingRequiredAction.getAlias(), requiredActions)) {
                 logger.debug("Delete requiredAction '{}' in realm '{}'", existingRequiredAction.getName(), realm);
+                importReportService.count(EntityOutcome.DELETED);
                 requiredActionRepository.deleteRequiredAction(realm, existingRequiredAction);
             }
         }
@@ -18,8 +18,11 @@
 
 package de.adorsys.keycloak.config.service;
 
+import de.adorsys.keycloak.config.jfr.ImportEvents;
 import de.adorsys.keycloak.config.model.RealmImport;
 import de.adorsys.keycloak.config.repository.RoleRepository;
+import de.adorsys.keycloak.config.service.report.EntityOutcome;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
 import de.adorsys.keycloak.config.service.rolecomposites.client.ClientRoleCompositeImportService;
 import de.adorsys.keycloak.config.service.rolecomposites.realm.RealmRoleCompositeImportService;
 import de.adorsys.keycloak.config.util.CloneUtil;
@@ -42,16 +45,22 @@ public class RoleImportService {
     private final ClientRoleCompositeImportService clientRoleCompositeImport;
 
     private final RoleRepository roleRepository;
+    private final ImportReportService importReportService;
+    private final ConcurrentImportService concurrentImportService;
 
     @Autowired
     public RoleImportService(
             RealmRoleCompositeImportService realmRoleCompositeImportService,
             ClientRoleCompositeImportService clientRoleCompositeImportService,
-            RoleRepository roleRepository
+            RoleRepository roleRepository,
+            ImportReportService importReportService,
+            ConcurrentImportService concurrentImportService
     ) {
         this.realmRoleCompositeImport = realmRoleCompositeImportService;
         this.clientRoleCompositeImport = clientRoleCompositeImportService;
         this.roleRepository = roleRepository;
+        this.importReportService = importReportService;
+        this.concurrentImportService = concurrentImportService;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -69,9 +78,7 @@ public class RoleImportService {
     private void createOrUpdateRealmRoles(String realm, RolesRepresentation roles) {
         List<RoleRepresentation> realmRoles = roles.getRealm();
 
-        for (RoleRepresentation role : realmRoles) {
-            createOrUpdateRealmRole(realm, role);
-        }
+        concurrentImportService.forEach(realmRoles, RoleRepresentation::getName, role -> createOrUpdateRealmRole(realm, role));
     }
 
     private void createOrUpdateRealmRole(String realm, RoleRepresentation role) {
@@ -81,9 +88,11 @@ public class RoleImportService {
 
         if (maybeRole.isPresent()) {
             logger.debug("Update realm-level role '{}' in realm '{}'", roleName, realm);
+            importReportService.count(EntityOutcome.UPDATED);
             updateRealmRole(realm, maybeRole.get(), role);
         } else {
             logger.debug("Create realm-level role '{}' in realm '{}'", roleName, realm);
+            importReportService.count(EntityOutcome.CREATED);
             roleRepository.createRealmRole(realm, role);
         }
     }
@@ -101,9 +110,7 @@ public class RoleImportService {
         String clientId = clientRolesForClient.getKey();
         List<RoleRepresentation> clientRoles = clientRolesForClient.getValue();
 
-        for (RoleRepresentation role : clientRoles) {
-            createOrUpdateClientRole(realm, clientId, role);
-        }
+        concurrentImportService.forEach(clientRoles, RoleRepresentation::getName, role -> createOrUpdateClientRole(realm, clientId, role));
     }
 
     private void createOrUpdateClientRole(String realm, String clientId, RoleRepresentation role) {
@@ -115,6 +122,7 @@ public class RoleImportService {
             updateClientRoleIfNecessary(realm, clientId, maybeRole.get(), role);
         } else {
             logger.debug("Create client-level role '{}' for client '{}' in realm '{}'", roleName, clientId, realm);
+            importReportService.count(EntityOutcome.CREATED);
             roleRepository.createClientRole(realm, clientId, role);
         }
     }
@@ -128,10 +136,12 @@ public class RoleImportService {
         RoleRepresentation patchedRole = CloneUtil.deepPatch(existingRole, roleToImport);
         String roleName = existingRole.getName();
 
-        if (CloneUtil.deepEquals(existingRole, patchedRole)) {
+        if (ImportEvents.deepEquals(existingRole, patchedRole)) {
             logger.debug("No need to update client-level role '{}' for client '{}' in realm '{}'", roleName, clientId, realm);
+            importReportService.count(EntityOutcome.UNCHANGED);
         } else {
             logger.debug("Update client-level role '{}' for client '{}' in realm '{}'", roleName, clientId, realm);
+            importReportService.count(EntityOutcome.UPDATED);
             roleRepository.updateClientRole(realm, clientId, patchedRole);
         }
     }
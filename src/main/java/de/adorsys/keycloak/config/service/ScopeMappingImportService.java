@@ -19,34 +19,29 @@
 package de.adorsys.keycloak.config.service;
 
 import de.adorsys.keycloak.config.model.RealmImport;
-import de.adorsys.keycloak.config.repository.RealmRepository;
 import de.adorsys.keycloak.config.repository.ScopeMappingRepository;
-import org.keycloak.representations.idm.RealmRepresentation;
 import org.keycloak.representations.idm.ScopeMappingRepresentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class ScopeMappingImportService {
     private static final Logger logger = LoggerFactory.getLogger(ScopeMappingImportService.class);
 
-    private final RealmRepository realmRepository;
     private final ScopeMappingRepository scopeMappingRepository;
 
     @Autowired
-    public ScopeMappingImportService(
-            RealmRepository realmRepository,
-            ScopeMappingRepository scopeMappingRepository
-    ) {
-        this.realmRepository = realmRepository;
+    public ScopeMappingImportService(ScopeMappingRepository scopeMappingRepository) {
         this.scopeMappingRepository = scopeMappingRepository;
     }
 
@@ -59,19 +54,22 @@ public class ScopeMappingImportService {
         if (scopeMappingsToImport == null) return;
 
         String realm = realmImport.getRealm();
-        RealmRepresentation existingRealm = realmRepository.partialExport(realm);
-        List<ScopeMappingRepresentation> existingScopeMappings = existingRealm.getScopeMappings();
+
+        // indexed by client or client-scope, the first scope-mapping wins like in the former list search
+        Map<ScopeMappingKey, ScopeMappingRepresentation> existingScopeMappings = scopeMappingRepository.getScopeMappings(realm)
+                .stream()
+                .collect(Collectors.toMap(ScopeMappingKey::new, Function.identity(), (first, second) -> first));
 
         createOrUpdateRolesInScopeMappings(realm, scopeMappingsToImport, existingScopeMappings);
-        cleanupRolesInScopeMappingsIfNecessary(realm, scopeMappingsToImport, existingScopeMappings);
+        cleanupRolesInScopeMappings(realm, scopeMappingsToImport, existingScopeMappings.values());
     }
 
-    private void createOrUpdateRolesInScopeMappings(String realm, List<ScopeMappingRepresentation> scopeMappingsToImport, List<ScopeMappingRepresentation> existingScopeMappings) {
+    private void createOrUpdateRolesInScopeMappings(String realm, List<ScopeMappingRepresentation> scopeMappingsToImport, Map<ScopeMappingKey, ScopeMappingRepresentation> existingScopeMappings) {
         for (ScopeMappingRepresentation scopeMappingToImport : scopeMappingsToImport) {
-            Optional<ScopeMappingRepresentation> maybeExistingScopeMapping = tryToFindExistingScopeMapping(existingScopeMappings, scopeMappingToImport);
+            ScopeMappingRepresentation existingScopeMapping = existingScopeMappings.get(new ScopeMappingKey(scopeMappingToImport));
 
-            if (maybeExistingScopeMapping.isPresent()) {
-                updateScopeMappings(realm, scopeMappingToImport, maybeExistingScopeMapping.get());
+            if (existingScopeMapping != null) {
+                updateScopeMappings(realm, scopeMappingToImport, existingScopeMapping);
             } else {
                 logger.debug("Adding scope-mapping with roles '{}' for {} '{}' in realm '{}'",
                         scopeMappingToImport.getRoles(),
@@ -85,15 +83,13 @@ public class ScopeMappingImportService {
         }
     }
 
-    private void cleanupRolesInScopeMappingsIfNecessary(String realm, List<ScopeMappingRepresentation> scopeMappingsToImport, List<ScopeMappingRepresentation> existingScopeMappings) {
-        if (existingScopeMappings != null) {
-            cleanupRolesInScopeMappings(realm, scopeMappingsToImport, existingScopeMappings);
-        }
-    }
+    private void cleanupRolesInScopeMappings(String realm, List<ScopeMappingRepresentation> scopeMappingsToImport, Collection<ScopeMappingRepresentation> existingScopeMappings) {
+        Set<ScopeMappingKey> scopeMappingKeysToImport = scopeMappingsToImport.stream()
+                .map(ScopeMappingKey::new)
+                .collect(Collectors.toSet());
 
-    private void cleanupRolesInScopeMappings(String realm, List<ScopeMappingRepresentation> scopeMappingsToImport, List<ScopeMappingRepresentation> existingScopeMappings) {
         for (ScopeMappingRepresentation existingScopeMapping : existingScopeMappings) {
-            if (hasToBeDeleted(scopeMappingsToImport, existingScopeMapping)) {
+            if (hasToBeDeleted(scopeMappingKeysToImport, existingScopeMapping)) {
                 cleanupRolesInScopeMapping(realm, existingScopeMapping);
             }
         }
@@ -112,11 +108,9 @@ public class ScopeMappingImportService {
         }
     }
 
-    private boolean hasToBeDeleted(List<ScopeMappingRepresentation> scopeMappingsToImport, ScopeMappingRepresentation existingScopeMapping) {
+    private boolean hasToBeDeleted(Set<ScopeMappingKey> scopeMappingKeysToImport, ScopeMappingRepresentation existingScopeMapping) {
         return !existingScopeMapping.getRoles().isEmpty()
-                && scopeMappingsToImport.stream()
-                .filter(scopeMappingToImport -> areScopeMappingsEqual(scopeMappingToImport, existingScopeMapping))
-                .count() < 1;
+                && !scopeMappingKeysToImport.contains(new ScopeMappingKey(existingScopeMapping));
     }
 
     private void updateScopeMappings(String realm, ScopeMappingRepresentation scopeMappingToImport, ScopeMappingRepresentation existingScopeMapping) {
@@ -188,29 +182,30 @@ public class ScopeMappingImportService {
         }
     }
 
-    private Optional<ScopeMappingRepresentation> tryToFindExistingScopeMapping(List<ScopeMappingRepresentation> scopeMappings, ScopeMappingRepresentation scopeMappingToBeFound) {
-        if (scopeMappings == null) {
-            return Optional.empty();
+    /**
+     * Identifies a scope-mapping by its client or client-scope
+     */
+    private static final class ScopeMappingKey {
+        private final String client;
+        private final String clientScope;
+
+        private ScopeMappingKey(ScopeMappingRepresentation scopeMapping) {
+            this.client = scopeMapping.getClient();
+            this.clientScope = scopeMapping.getClientScope();
         }
 
-        return scopeMappings.stream()
-                .filter(scopeMapping -> areScopeMappingsEqual(scopeMapping, scopeMappingToBeFound))
-                .findFirst();
-    }
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof ScopeMappingKey)) return false;
 
-    public boolean areScopeMappingsEqual(ScopeMappingRepresentation first, ScopeMappingRepresentation second) {
-        if (first == second) {
-            return true;
+            ScopeMappingKey that = (ScopeMappingKey) other;
+            return Objects.equals(client, that.client) && Objects.equals(clientScope, that.clientScope);
         }
 
-        if (first == null || second == null) {
-            return false;
+        @Override
+        public int hashCode() {
+            return Objects.hash(client, clientScope);
         }
-
-        String client = first.getClient();
-        String clientScope = first.getClientScope();
-
-        return Objects.equals(second.getClient(), client)
-                && Objects.equals(second.getClientScope(), clientScope);
     }
 }
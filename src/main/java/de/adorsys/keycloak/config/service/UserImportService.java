@@ -18,10 +18,20 @@
 
 package de.adorsys.keycloak.config.service;
 
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.jfr.ImportEvents;
 import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.repository.AsyncClientRepository;
+import de.adorsys.keycloak.config.repository.AsyncRoleRepository;
+import de.adorsys.keycloak.config.repository.AsyncUserRepository;
 import de.adorsys.keycloak.config.repository.RoleRepository;
 import de.adorsys.keycloak.config.repository.UserRepository;
+import de.adorsys.keycloak.config.service.report.EntityOutcome;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
 import de.adorsys.keycloak.config.util.CloneUtil;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.PartialImportRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.slf4j.Logger;
@@ -29,10 +39,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -43,14 +64,35 @@ public class UserImportService {
 
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
+    private final AsyncUserRepository asyncUserRepository;
+    private final AsyncRoleRepository asyncRoleRepository;
+    private final AsyncClientRepository asyncClientRepository;
+    private final ImportReportService importReportService;
+    private final BulkImportService bulkImportService;
+    private final ConcurrentImportService concurrentImportService;
+    private final ImportConfigProperties importConfigProperties;
 
     @Autowired
     public UserImportService(
             UserRepository userRepository,
-            RoleRepository roleRepository
+            RoleRepository roleRepository,
+            AsyncUserRepository asyncUserRepository,
+            AsyncRoleRepository asyncRoleRepository,
+            AsyncClientRepository asyncClientRepository,
+            ImportReportService importReportService,
+            BulkImportService bulkImportService,
+            ConcurrentImportService concurrentImportService,
+            ImportConfigProperties importConfigProperties
     ) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
+        this.asyncUserRepository = asyncUserRepository;
+        this.asyncRoleRepository = asyncRoleRepository;
+        this.asyncClientRepository = asyncClientRepository;
+        this.importReportService = importReportService;
+        this.bulkImportService = bulkImportService;
+        this.concurrentImportService = concurrentImportService;
+        this.importConfigProperties = importConfigProperties;
     }
 
     public void doImport(RealmImport realmImport) {
@@ -65,14 +107,157 @@ public class UserImportService {
             return;
         }
 
+        String realm = realmImport.getRealm();
+
+        if (importConfigProperties.isSharded()) {
+            users = getUsersOfShard(users);
+            logger.debug("Import {} users of shard {} of {} into realm '{}'",
+                    users.size(), importConfigProperties.getShardIndex(), importConfigProperties.getShardCount(), realm);
+        }
+
+        // a partial import assigns the realm- and client-level roles of the new users, too
+        BulkImportService.Batch<UserRepresentation> usersToCreate = bulkImportService.batch(
+                realm, "users", PartialImportRepresentation::setUsers, user -> new UserImport(realm, user).createUser()
+        );
+
+        if (concurrentImportService.isConcurrent() && ConcurrentImportService.hasUniqueKeys(users, UserImportService::lowerCaseUsername)) {
+            concurrentImportService.forEach(users, user -> new UserImport(realm, user).importUser(usersToCreate));
+        } else if (importConfigProperties.getMaxInFlight() > 1) {
+            importUsersPipelined(realm, users, usersToCreate);
+        } else {
+            for (UserRepresentation user : users) {
+                new UserImport(realm, user).importUser(usersToCreate);
+            }
+        }
+
+        usersToCreate.flush();
+    }
+
+    /**
+     * Users are assigned to a shard by the hash of their username, in lower case like keycloak stores it, so every
+     * process of a sharded import picks the same users for a shard
+     */
+    private List<UserRepresentation> getUsersOfShard(List<UserRepresentation> users) {
+        int shardIndex = importConfigProperties.getShardIndex();
+        int shardCount = importConfigProperties.getShardCount();
+
+        return users.stream()
+                .filter(user -> Math.floorMod(user.getUsername().toLowerCase(Locale.ROOT).hashCode(), shardCount) == shardIndex)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Users with the same username have to be imported one after the other
+     */
+    private static String lowerCaseUsername(UserRepresentation user) {
+        return user.getUsername().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Looks up up to import.max-in-flight users and their role mappings ahead of the user being imported, while
+     * writes stay sequential on the calling thread. A username occurring twice is looked up when it is imported,
+     * because the earlier occurrence may change it.
+     */
+    private void importUsersPipelined(
+            String realm,
+            List<UserRepresentation> users,
+            BulkImportService.Batch<UserRepresentation> usersToCreate
+    ) {
+        Map<String, CompletableFuture<String>> clientIds = new HashMap<>();
+        Set<String> usernames = new HashSet<>();
+
+        Deque<CompletableFuture<ExistingUser>> pendingLookups = new ArrayDeque<>();
+        Iterator<UserRepresentation> usersToLookUp = users.iterator();
+
         for (UserRepresentation user : users) {
-            importUser(realmImport.getRealm(), user);
+            while (pendingLookups.size() < importConfigProperties.getMaxInFlight() && usersToLookUp.hasNext()) {
+                UserRepresentation userToLookUp = usersToLookUp.next();
+
+                pendingLookups.add(usernames.add(userToLookUp.getUsername().toLowerCase(Locale.ROOT))
+                        ? lookUpUser(realm, userToLookUp, clientIds)
+                        : CompletableFuture.completedFuture(null));
+            }
+
+            ExistingUser existingUser = await(pendingLookups.remove());
+            UserImport userImport = new UserImport(realm, user);
+
+            if (existingUser == null) {
+                userImport.importUser(usersToCreate);
+            } else {
+                userImport.importUser(existingUser, usersToCreate);
+            }
         }
     }
 
-    private void importUser(String realm, UserRepresentation user) {
-        UserImport userImport = new UserImport(realm, user);
-        userImport.importUser();
+    /**
+     * @param clientIds ids of the clients by clientId, only accessed from the calling thread
+     */
+    private CompletableFuture<ExistingUser> lookUpUser(
+            String realm,
+            UserRepresentation user,
+            Map<String, CompletableFuture<String>> clientIds
+    ) {
+        Map<String, CompletableFuture<String>> userClientIds = new HashMap<>();
+
+        if (user.getClientRoles() != null) {
+            for (String clientId : user.getClientRoles().keySet()) {
+                userClientIds.put(clientId, clientIds.computeIfAbsent(clientId, id -> asyncClientRepository
+                        .getClient(realm, id)
+                        .thenApply(ClientRepresentation::getId)));
+            }
+        }
+
+        return asyncUserRepository.tryToFindUser(realm, user.getUsername()).thenCompose(maybeUser -> {
+            if (!maybeUser.isPresent()) {
+                return CompletableFuture.completedFuture(new ExistingUser(null, null, null));
+            }
+
+            String userId = maybeUser.get().getId();
+
+            CompletableFuture<List<String>> realmRoles = asyncRoleRepository.getUserRealmLevelRoles(realm, userId);
+            Map<String, CompletableFuture<List<String>>> clientRoles = new HashMap<>();
+
+            userClientIds.forEach((clientId, id) -> clientRoles.put(clientId,
+                    id.thenCompose(clientUuid -> asyncRoleRepository.getUserClientLevelRoles(realm, userId, clientUuid))));
+
+            List<CompletableFuture<?>> lookups = new ArrayList<>(clientRoles.values());
+            lookups.add(realmRoles);
+
+            return CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(done -> new ExistingUser(
+                            maybeUser.get(),
+                            realmRoles.join(),
+                            clientRoles.entrySet().stream()
+                                    .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().join()))
+                    ));
+        });
+    }
+
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new ImportProcessingException("Cannot look up user", e.getCause());
+        }
+    }
+
+    /**
+     * The user and its effective role mappings as found before importing it, the user is null if it doesn't exist
+     */
+    private static class ExistingUser {
+        private final UserRepresentation user;
+        private final List<String> realmRoles;
+        private final Map<String, List<String>> clientRoles;
+
+        private ExistingUser(UserRepresentation user, List<String> realmRoles, Map<String, List<String>> clientRoles) {
+            this.user = user;
+            this.realmRoles = realmRoles;
+            this.clientRoles = clientRoles;
+        }
     }
 
     private class UserImport {
@@ -86,39 +271,62 @@ public class UserImportService {
             this.username = userToImport.getUsername();
         }
 
-        public void importUser() {
+        public void importUser(BulkImportService.Batch<UserRepresentation> usersToCreate) {
             Optional<UserRepresentation> maybeUser = userRepository.tryToFindUser(realm, username);
 
             if (maybeUser.isPresent()) {
                 updateUser(maybeUser.get());
+
+                handleRealmRoles(roleRepository.getUserRealmLevelRoles(realm, username));
+                handleClientRoles(clientId -> roleRepository.getUserClientLevelRoles(realm, username, clientId));
+            } else {
+                createUser(usersToCreate);
+            }
+        }
+
+        public void importUser(ExistingUser existingUser, BulkImportService.Batch<UserRepresentation> usersToCreate) {
+            if (existingUser.user != null) {
+                updateUser(existingUser.user);
+
+                handleRealmRoles(existingUser.realmRoles);
+                handleClientRoles(existingUser.clientRoles::get);
             } else {
-                logger.debug("Create user '{}' in realm '{}'", username, realm);
-                userRepository.create(realm, userToImport);
+                createUser(usersToCreate);
             }
+        }
+
+        public void createUser() {
+            userRepository.create(realm, userToImport);
 
-            handleRealmRoles();
-            handleClientRoles();
+            handleRealmRoles(roleRepository.getUserRealmLevelRoles(realm, username));
+            handleClientRoles(clientId -> roleRepository.getUserClientLevelRoles(realm, username, clientId));
+        }
+
+        private void createUser(BulkImportService.Batch<UserRepresentation> usersToCreate) {
+            logger.debug("Create user '{}' in realm '{}'", username, realm);
+            importReportService.count(EntityOutcome.CREATED);
+            usersToCreate.add(userToImport);
         }
 
         private void updateUser(UserRepresentation existingUser) {
             UserRepresentation patchedUser = CloneUtil.deepPatch(existingUser, userToImport, IGNORED_PROPERTIES_FOR_UPDATE);
 
-            if (!CloneUtil.deepEquals(existingUser, patchedUser)) {
+            if (!ImportEvents.deepEquals(existingUser, patchedUser)) {
                 logger.debug("Update user '{}' in realm '{}'", username, realm);
+                importReportService.count(EntityOutcome.UPDATED);
                 userRepository.updateUser(realm, patchedUser);
             } else {
                 logger.debug("No need to update user '{}' in realm '{}'", username, realm);
+                importReportService.count(EntityOutcome.UNCHANGED);
             }
         }
 
-        private void handleRealmRoles() {
+        private void handleRealmRoles(List<String> existingUsersRealmLevelRoles) {
             List<String> usersRealmLevelRolesToUpdate = userToImport.getRealmRoles();
             if (usersRealmLevelRolesToUpdate == null) {
                 usersRealmLevelRolesToUpdate = Collections.emptyList();
             }
 
-            List<String> existingUsersRealmLevelRoles = roleRepository.getUserRealmLevelRoles(realm, username);
-
             handleRolesToBeAdded(usersRealmLevelRolesToUpdate, existingUsersRealmLevelRoles);
             handleRolesToBeRemoved(usersRealmLevelRolesToUpdate, existingUsersRealmLevelRoles);
         }
@@ -145,19 +353,25 @@ public class UserImportService {
             roleRepository.removeRealmRolesForUser(realm, username, realmRoles);
         }
 
-        private void handleClientRoles() {
+        /**
+         * @param existingClientLevelRoles looks up the existing roles of the user by clientId
+         */
+        private void handleClientRoles(Function<String, List<String>> existingClientLevelRoles) {
             Map<String, List<String>> clientRolesToImport = userToImport.getClientRoles();
             if (clientRolesToImport == null) return;
 
             for (Map.Entry<String, List<String>> clientRoles : clientRolesToImport.entrySet()) {
-                setupClientRoles(clientRoles);
+                setupClientRoles(clientRoles, existingClientLevelRoles);
             }
         }
 
-        private void setupClientRoles(Map.Entry<String, List<String>> clientRoles) {
+        private void setupClientRoles(
+                Map.Entry<String, List<String>> clientRoles,
+                Function<String, List<String>> existingClientLevelRoles
+        ) {
             String clientId = clientRoles.getKey();
 
-            ClientRoleImport clientRoleImport = new ClientRoleImport(clientId);
+            ClientRoleImport clientRoleImport = new ClientRoleImport(clientId, existingClientLevelRoles.apply(clientId));
             clientRoleImport.importClientRoles();
         }
 
@@ -172,9 +386,9 @@ public class UserImportService {
             private final List<String> existingClientLevelRoles;
             private final List<String> clientRolesToImport;
 
-            private ClientRoleImport(String clientId) {
+            private ClientRoleImport(String clientId, List<String> existingClientLevelRoles) {
                 this.clientId = clientId;
-                this.existingClientLevelRoles = roleRepository.getUserClientLevelRoles(realm, username, clientId);
+                this.existingClientLevelRoles = existingClientLevelRoles;
 
                 Map<String, List<String>> clientsRolesToImport = userToImport.getClientRoles();
                 this.clientRolesToImport = clientsRolesToImport.get(clientId);
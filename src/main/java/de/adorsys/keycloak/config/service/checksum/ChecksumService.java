@@ -19,54 +19,79 @@
 package de.adorsys.keycloak.config.service.checksum;
 
 import de.adorsys.keycloak.config.model.RealmImport;
-import de.adorsys.keycloak.config.properties.ImportConfigProperties;
-import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
 import org.keycloak.representations.idm.RealmRepresentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @Service
 public class ChecksumService {
     private static final Logger logger = LoggerFactory.getLogger(ChecksumService.class);
 
-    private final RealmRepository realmRepository;
-    private final ImportConfigProperties importConfigProperties;
+    private static final String CHECKSUM_CACHE = "import-checksum";
+
+    private final ChecksumStore checksumStore;
+    private final ImportReportService importReportService;
 
     @Autowired
-    public ChecksumService(RealmRepository realmRepository, ImportConfigProperties importConfigProperties) {
-        this.realmRepository = realmRepository;
-        this.importConfigProperties = importConfigProperties;
+    public ChecksumService(ChecksumStore checksumStore, ImportReportService importReportService) {
+        this.checksumStore = checksumStore;
+        this.importReportService = importReportService;
     }
 
     public void doImport(RealmImport realmImport) {
-        RealmRepresentation existingRealm = realmRepository.get(realmImport.getRealm());
-        Map<String, String> customAttributes = existingRealm.getAttributes();
-
         String importChecksum = realmImport.getChecksum();
-        customAttributes.put(getCustomAttributeKey(), importChecksum);
-        realmRepository.update(existingRealm);
+        checksumStore.put(realmImport.getRealm(), importChecksum);
 
         logger.debug("Updated import checksum of realm '{}' to '{}'", realmImport.getRealm(), importChecksum);
     }
 
+    /**
+     * @param existingRealm the lookup of the changed realm the import does anyway, empty if it does not exist
+     */
+    public void verify(RealmImport realmImport, Optional<RealmRepresentation> existingRealm) {
+        checksumStore.verify(realmImport.getRealm(), existingRealm);
+    }
+
+    /**
+     * Returns true if the realm is unknown or its last imported checksum differs from the import
+     */
     public boolean hasToBeUpdated(RealmImport realmImport) {
-        RealmRepresentation existingRealm = realmRepository.get(realmImport.getRealm());
-        Map<String, String> customAttributes = existingRealm.getAttributes();
+        Optional<String> readChecksum = checksumStore.get(realmImport.getRealm());
+        boolean hasToBeUpdated = !readChecksum.isPresent() || !realmImport.getChecksum().equals(readChecksum.get());
 
-        String readChecksum = customAttributes.get(getCustomAttributeKey());
+        importReportService.recordCacheAccess(CHECKSUM_CACHE, !hasToBeUpdated);
 
-        return !realmImport.getChecksum().equals(readChecksum);
+        return hasToBeUpdated;
     }
 
-    private String getCustomAttributeKey() {
-        return MessageFormat.format(
-                ImportConfigProperties.REALM_CHECKSUM_ATTRIBUTE_PREFIX_KEY,
-                importConfigProperties.getCacheKey()
-        );
+    /**
+     * Looks up the stored checksums of many realms in one batch, to compare them with {@link #isUnchanged}
+     *
+     * @return the stored checksum per realm, realms without a checksum are missing
+     */
+    public Map<String, String> getStoredChecksums(Collection<String> realms) {
+        if (realms.isEmpty()) return Collections.emptyMap();
+
+        return checksumStore.getAll(realms);
+    }
+
+    /**
+     * @param storedChecksums the result of {@link #getStoredChecksums(Collection)}
+     */
+    public boolean isUnchanged(Map<String, String> storedChecksums, String realm, String importChecksum) {
+        boolean isUnchanged = Objects.equals(importChecksum, storedChecksums.get(realm));
+
+        importReportService.recordCacheAccess(CHECKSUM_CACHE, isUnchanged);
+
+        return isUnchanged;
     }
 }
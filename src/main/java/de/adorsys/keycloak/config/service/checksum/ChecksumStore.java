@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.checksum;
+
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stores the checksum of the last successful import per realm. Configure the implementation with
+ * {@code import.checksum-store}.
+ */
+public interface ChecksumStore {
+    Optional<String> get(String realm);
+
+    void put(String realm, String checksum);
+
+    /**
+     * Called with the lookup of a changed realm before it is imported, a store which does not keep its checksums in the
+     * realm itself can drop checksums of a deleted or recreated realm here
+     *
+     * @param existingRealm the realm in keycloak, empty if it does not exist
+     */
+    default void verify(String realm, Optional<RealmRepresentation> existingRealm) {
+    }
+
+    /**
+     * Looks up the checksums of many realms at once. Realms without checksum are missing in the result.
+     */
+    default Map<String, String> getAll(Collection<String> realms) {
+        Map<String, String> checksums = new HashMap<>();
+
+        for (String realm : realms) {
+            get(realm).ifPresent(checksum -> checksums.put(realm, checksum));
+        }
+
+        return checksums;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.checksum;
+
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Keeps the checksums in a local properties file, keyed by keycloak url, realm and cache-key. An unchanged import is
+ * detected without any call to keycloak, and storing a checksum does not write the realm.
+ * <p>
+ * If the file has no entry for a realm the realm attribute is read instead, so switching from the realm store or
+ * starting with an empty file does not force a full import.
+ * <p>
+ * Entries are trusted as long as the import is unchanged. Every checksum is stored with the id of the realm it was
+ * imported into, and the lookup of a changed realm drops all entries of a realm which was deleted or recreated since.
+ * A realm deleted outside of keycloak-config-cli is not imported again before its import changes, or with
+ * import.force.
+ */
+@Service
+@ConditionalOnProperty(prefix = "import", name = "checksum-store", havingValue = "file")
+public class FileChecksumStore implements ChecksumStore {
+    private static final Logger logger = LoggerFactory.getLogger(FileChecksumStore.class);
+    private static final String FILE_CACHE = "checksum-file";
+    private static final String REALM_ID_SUFFIX = "|id";
+
+    private final RealmRepository realmRepository;
+    private final ImportConfigProperties importConfigProperties;
+    private final KeycloakConfigProperties keycloakConfigProperties;
+    private final RealmAttributeChecksumStore realmAttributeStore;
+    private final ImportReportService importReportService;
+
+    private final Map<String, String> verifiedRealmIds = new HashMap<>();
+    private Properties checksums;
+
+    @Autowired
+    public FileChecksumStore(
+            RealmRepository realmRepository,
+            ImportConfigProperties importConfigProperties,
+            KeycloakConfigProperties keycloakConfigProperties,
+            ImportReportService importReportService
+    ) {
+        this.realmRepository = realmRepository;
+        this.importConfigProperties = importConfigProperties;
+        this.keycloakConfigProperties = keycloakConfigProperties;
+        this.realmAttributeStore = new RealmAttributeChecksumStore(realmRepository, importConfigProperties);
+        this.importReportService = importReportService;
+    }
+
+    @Override
+    public synchronized Optional<String> get(String realm) {
+        String storedChecksum = loadChecksums().getProperty(getKey(realm));
+        importReportService.recordCacheAccess(FILE_CACHE, storedChecksum != null);
+
+        if (storedChecksum != null) {
+            return Optional.of(storedChecksum);
+        }
+
+        logger.debug("No checksum of realm '{}' in '{}', verify against realm attribute", realm, getPath());
+
+        Optional<String> maybeRealmChecksum = realmRepository.tryToLoadRealm(realm)
+                .flatMap(this::getRealmChecksum);
+        maybeRealmChecksum.ifPresent(checksum -> storeChecksums());
+
+        return maybeRealmChecksum;
+    }
+
+    @Override
+    public synchronized Map<String, String> getAll(Collection<String> realms) {
+        Map<String, String> storedChecksums = new HashMap<>();
+        List<String> unknownRealms = new ArrayList<>();
+
+        for (String realm : realms) {
+            String storedChecksum = loadChecksums().getProperty(getKey(realm));
+            importReportService.recordCacheAccess(FILE_CACHE, storedChecksum != null);
+
+            if (storedChecksum != null) {
+                storedChecksums.put(realm, storedChecksum);
+            } else {
+                unknownRealms.add(realm);
+            }
+        }
+
+        if (!unknownRealms.isEmpty()) {
+            logger.debug("No checksum of realms {} in '{}', verify against realm attributes", unknownRealms, getPath());
+
+            Map<String, String> realmChecksums = new HashMap<>();
+            for (RealmRepresentation existingRealm : realmRepository.getAll()) {
+                if (unknownRealms.contains(existingRealm.getRealm())) {
+                    getRealmChecksum(existingRealm).ifPresent(checksum -> realmChecksums.put(existingRealm.getRealm(), checksum));
+                }
+            }
+
+            if (!realmChecksums.isEmpty()) {
+                storedChecksums.putAll(realmChecksums);
+                storeChecksums();
+            }
+        }
+
+        return storedChecksums;
+    }
+
+    /**
+     * Drops all entries of the realm, of every cache-key, if the realm is gone or has another id than the one they were
+     * stored with
+     */
+    @Override
+    public synchronized void verify(String realm, Optional<RealmRepresentation> existingRealm) {
+        String realmId = existingRealm.map(RealmRepresentation::getId).orElse(null);
+        String storedRealmId = loadChecksums().getProperty(getKey(realm) + REALM_ID_SUFFIX);
+
+        if (realmId != null) {
+            verifiedRealmIds.put(realm, realmId);
+        }
+
+        if (storedRealmId == null || storedRealmId.equals(realmId)) {
+            return;
+        }
+
+        logger.debug("Checksums of realm '{}' in '{}' were stored for a deleted or recreated realm, drop them", realm, getPath());
+
+        String realmKeyPrefix = keycloakConfigProperties.getUrl() + "|" + realm + "|";
+        loadChecksums().stringPropertyNames().stream()
+                .filter(key -> key.startsWith(realmKeyPrefix))
+                .forEach(key -> loadChecksums().remove(key));
+
+        storeChecksums();
+    }
+
+    /**
+     * The other shards of a sharded import wait for the checksum of shard 0 in the realm attribute, see
+     * {@link ImportConfigProperties#getLeaderChecksumKey()}, so only shard 0 of a sharded import writes it there as well
+     */
+    @Override
+    public synchronized void put(String realm, String checksum) {
+        if (importConfigProperties.isSharded() && importConfigProperties.isLeaderShard()) {
+            realmAttributeStore.put(realm, checksum);
+        }
+
+        setChecksum(realm, verifiedRealmIds.remove(realm), checksum);
+        storeChecksums();
+    }
+
+    private Optional<String> getRealmChecksum(RealmRepresentation existingRealm) {
+        Optional<String> maybeRealmChecksum = realmAttributeStore.getChecksum(existingRealm);
+        maybeRealmChecksum.ifPresent(checksum -> setChecksum(existingRealm.getRealm(), existingRealm.getId(), checksum));
+
+        return maybeRealmChecksum;
+    }
+
+    /**
+     * @param realmId null if unknown, like for a realm created by the import
+     */
+    private void setChecksum(String realm, String realmId, String checksum) {
+        String key = getKey(realm);
+
+        loadChecksums().setProperty(key, checksum);
+
+        if (realmId != null) {
+            loadChecksums().setProperty(key + REALM_ID_SUFFIX, realmId);
+        } else {
+            loadChecksums().remove(key + REALM_ID_SUFFIX);
+        }
+    }
+
+    private Properties loadChecksums() {
+        if (checksums != null) {
+            return checksums;
+        }
+
+        checksums = new Properties();
+        Path path = getPath();
+
+        if (Files.isRegularFile(path)) {
+            try (InputStream inputStream = Files.newInputStream(path)) {
+                checksums.load(inputStream);
+            } catch (IOException e) {
+                throw new ImportProcessingException("Cannot read checksum store '" + path.toAbsolutePath() + "'", e);
+            }
+        }
+
+        return checksums;
+    }
+
+    /**
+     * Writes to a temporary file first, so an aborted run never leaves a truncated store behind
+     */
+    private void storeChecksums() {
+        Path path = getPath().toAbsolutePath();
+
+        try {
+            Files.createDirectories(path.getParent());
+
+            Path temporaryPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temporaryPath)) {
+                checksums.store(outputStream, "keycloak-config-cli import checksums");
+            }
+
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ImportProcessingException("Cannot write checksum store '" + path + "'", e);
+        }
+    }
+
+    private Path getPath() {
+        return Paths.get(importConfigProperties.getChecksumStorePath());
+    }
+
+    private String getKey(String realm) {
+        return keycloakConfigProperties.getUrl() + "|" + realm + "|" + importConfigProperties.getChecksumKey();
+    }
+}
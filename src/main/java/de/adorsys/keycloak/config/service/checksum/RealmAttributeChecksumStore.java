@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.checksum;
+
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the checksum as custom attribute of the realm itself
+ */
+@Service
+@ConditionalOnProperty(prefix = "import", name = "checksum-store", havingValue = "realm", matchIfMissing = true)
+public class RealmAttributeChecksumStore implements ChecksumStore {
+
+    private final RealmRepository realmRepository;
+    private final ImportConfigProperties importConfigProperties;
+
+    @Autowired
+    public RealmAttributeChecksumStore(RealmRepository realmRepository, ImportConfigProperties importConfigProperties) {
+        this.realmRepository = realmRepository;
+        this.importConfigProperties = importConfigProperties;
+    }
+
+    @Override
+    public Optional<String> get(String realm) {
+        return realmRepository.tryToLoadRealm(realm).flatMap(this::getChecksum);
+    }
+
+    /**
+     * Reads the attributes of all realms with a single realm listing
+     */
+    @Override
+    public Map<String, String> getAll(Collection<String> realms) {
+        Map<String, String> checksums = new HashMap<>();
+
+        for (RealmRepresentation existingRealm : realmRepository.getAll()) {
+            if (realms.contains(existingRealm.getRealm())) {
+                getChecksum(existingRealm).ifPresent(checksum -> checksums.put(existingRealm.getRealm(), checksum));
+            }
+        }
+
+        return checksums;
+    }
+
+    @Override
+    public void put(String realm, String checksum) {
+        put(realmRepository.get(realm), checksum);
+    }
+
+    Optional<String> getChecksum(RealmRepresentation existingRealm) {
+        return Optional.ofNullable(existingRealm.getAttributes())
+                .map(customAttributes -> customAttributes.get(getCustomAttributeKey()));
+    }
+
+    /**
+     * @param existingRealm a fresh representation of the realm, read by {@link RealmRepository#get(String)}
+     */
+    void put(RealmRepresentation existingRealm, String checksum) {
+        Map<String, String> customAttributes = existingRealm.getAttributes();
+
+        customAttributes.put(getCustomAttributeKey(), checksum);
+        realmRepository.update(existingRealm);
+    }
+
+    private String getCustomAttributeKey() {
+        return getCustomAttributeKey(importConfigProperties.getChecksumKey());
+    }
+
+    /**
+     * @param checksumKey e.g. {@link ImportConfigProperties#getLeaderChecksumKey()}
+     */
+    public static String getCustomAttributeKey(String checksumKey) {
+        return MessageFormat.format(ImportConfigProperties.REALM_CHECKSUM_ATTRIBUTE_PREFIX_KEY, checksumKey);
+    }
+}
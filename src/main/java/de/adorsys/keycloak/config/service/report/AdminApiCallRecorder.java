@@ -0,0 +1,202 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.report;
+
+import de.adorsys.keycloak.config.jfr.ImportEvent;
+import de.adorsys.keycloak.config.jfr.ImportEvents;
+import de.adorsys.keycloak.config.service.trace.Span;
+import de.adorsys.keycloak.config.service.trace.TraceService;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures every admin API request of the keycloak client. The call is attributed to the first repository method on
+ * the calling stack, requests outside of repositories (e.g. token requests) by their http method and path. Async
+ * requests are sent by the shared AsyncAdminClient and complete on an io thread, they name their caller by
+ * {@link #CALLER_PROPERTY}.
+ * <p>
+ * Each request is also emitted as flight recorder event and as client span, with realm and entity type taken from the
+ * request path. A request failing without response, e.g. on a refused connection, never reaches the response filter,
+ * the http engine reports it by {@link #failed(Map, Throwable)}.
+ */
+public class AdminApiCallRecorder implements ClientRequestFilter, ClientResponseFilter {
+    public static final String CALLER_PROPERTY = AdminApiCallRecorder.class.getName() + ".caller";
+
+    private static final String REPOSITORY_PACKAGE = "de.adorsys.keycloak.config.repository.";
+    private static final String CALL_PROPERTY = AdminApiCallRecorder.class.getName() + ".call";
+
+    private final ImportReportService importReportService;
+    private final TraceService traceService;
+
+    public AdminApiCallRecorder(ImportReportService importReportService, TraceService traceService) {
+        this.importReportService = importReportService;
+        this.traceService = traceService;
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        String path = requestContext.getUri().getPath();
+        String[] realmAndEntityType = parsePath(path);
+
+        Call call = new Call(ImportEvents.adminCall(realmAndEntityType[0], realmAndEntityType[1], requestContext.getMethod(), path));
+        requestContext.setProperty(CALL_PROPERTY, call);
+
+        if (!importReportService.isEnabled() && !traceService.isEnabled()) return;
+
+        call.method = findCallingMethod(requestContext);
+        call.span = traceService.startClientSpan(call.method)
+                .setAttribute("http.method", requestContext.getMethod())
+                .setAttribute("http.target", path)
+                .setAttribute("realm", realmAndEntityType[0])
+                .setAttribute("entity.type", realmAndEntityType[1]);
+        call.startedAt = System.nanoTime();
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+        Call call = (Call) requestContext.getProperty(CALL_PROPERTY);
+
+        if (call == null || !call.end()) return;
+
+        call.event.end(String.valueOf(responseContext.getStatus()));
+
+        if (call.span != null) {
+            call.span.setAttribute("http.status_code", responseContext.getStatus());
+        }
+
+        record(call);
+    }
+
+    /**
+     * Ends the request of the given properties if the response filter has not seen it. The event status is the name of
+     * the exception instead of the http status.
+     *
+     * @param requestProperties the properties of the failed request, the same the request filter has set
+     */
+    public void failed(Map<String, Object> requestProperties, Throwable error) {
+        Call call = (Call) requestProperties.get(CALL_PROPERTY);
+
+        if (call == null || !call.end()) return;
+
+        // the io error, e.g. ConnectException, instead of the ProcessingException wrapping it
+        Throwable cause = error;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        call.event.end(cause.getClass().getSimpleName());
+
+        if (call.span != null) {
+            call.span.setError(error.getMessage());
+        }
+
+        record(call);
+    }
+
+    private void record(Call call) {
+        if (call.span != null) {
+            traceService.end(call.span);
+        }
+
+        if (call.startedAt != null) {
+            importReportService.recordAdminCall(call.method, System.nanoTime() - call.startedAt);
+        }
+    }
+
+    /**
+     * Admin paths look like '/auth/admin/realms/{realm}/{entityType}/...', token requests like
+     * '/auth/realms/{realm}/protocol/...'
+     *
+     * @return realm and entity type, each may be null
+     */
+    private String[] parsePath(String path) {
+        String[] segments = path.split("/");
+
+        for (int i = 0; i < segments.length - 1; i++) {
+            if ("realms".equals(segments[i])) {
+                boolean isAdminPath = i > 0 && "admin".equals(segments[i - 1]);
+                String entityType = i + 2 < segments.length ? segments[i + 2] : (isAdminPath ? "realm" : null);
+
+                return new String[]{segments[i + 1], entityType};
+            }
+        }
+
+        return new String[]{null, null};
+    }
+
+    private String findCallingMethod(ClientRequestContext requestContext) {
+        Object caller = requestContext.getProperty(CALLER_PROPERTY);
+
+        if (caller != null) {
+            return (String) caller;
+        }
+
+        for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+            String className = element.getClassName();
+
+            if (className.startsWith(REPOSITORY_PACKAGE)) {
+                return toName(className.substring(REPOSITORY_PACKAGE.length()), element.getMethodName());
+            }
+        }
+
+        return requestContext.getMethod() + " " + requestContext.getUri().getPath();
+    }
+
+    /**
+     * Strips synthetic suffixes of inner classes and lambdas, e.g. 'RoleRepository$1.lambda$find$0' to
+     * 'RoleRepository.find'
+     */
+    private String toName(String className, String methodName) {
+        String outerClassName = className.split("\\$")[0];
+        String[] methodNameParts = methodName.split("\\$");
+        String outerMethodName = methodNameParts.length > 1 && "lambda".equals(methodNameParts[0])
+                ? methodNameParts[1]
+                : methodNameParts[0];
+
+        return outerClassName + "." + outerMethodName;
+    }
+
+    /**
+     * A request in flight, ended either by its response or by its failure
+     */
+    private static class Call {
+        private final ImportEvent event;
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private String method;
+        private Span span;
+        private Long startedAt;
+
+        private Call(ImportEvent event) {
+            this.event = event;
+        }
+
+        /**
+         * @return false if the call has already ended
+         */
+        private boolean end() {
+            return ended.compareAndSet(false, true);
+        }
+    }
+}
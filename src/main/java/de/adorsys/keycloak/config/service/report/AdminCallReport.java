@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.report;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Count and latency percentiles of the admin API calls of one repository method
+ */
+public class AdminCallReport {
+    private final int count;
+    private final double totalMs;
+    private final double p50Ms;
+    private final double p90Ms;
+    private final double p99Ms;
+    private final double maxMs;
+
+    private AdminCallReport(long[] sortedDurationsNanos) {
+        this.count = sortedDurationsNanos.length;
+        this.totalMs = toMillis(Arrays.stream(sortedDurationsNanos).sum());
+        this.p50Ms = percentile(sortedDurationsNanos, 50);
+        this.p90Ms = percentile(sortedDurationsNanos, 90);
+        this.p99Ms = percentile(sortedDurationsNanos, 99);
+        this.maxMs = toMillis(sortedDurationsNanos[sortedDurationsNanos.length - 1]);
+    }
+
+    static AdminCallReport of(List<Long> durationsNanos) {
+        long[] sortedDurationsNanos = durationsNanos.stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray();
+
+        return new AdminCallReport(sortedDurationsNanos);
+    }
+
+    /**
+     * Nearest-rank percentile
+     */
+    private static double percentile(long[] sortedDurationsNanos, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedDurationsNanos.length);
+
+        return toMillis(sortedDurationsNanos[Math.max(rank, 1) - 1]);
+    }
+
+    static double toMillis(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getTotalMs() {
+        return totalMs;
+    }
+
+    public double getP50Ms() {
+        return p50Ms;
+    }
+
+    public double getP90Ms() {
+        return p90Ms;
+    }
+
+    public double getP99Ms() {
+        return p99Ms;
+    }
+
+    public double getMaxMs() {
+        return maxMs;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.report;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Machine-readable summary of a whole run, written as JSON to import.report-path
+ */
+public class ImportReport {
+    private final double durationMs;
+    private final Iterable<RealmReport> realms;
+    private final Map<String, AdminCallReport> adminCalls;
+    private final Map<String, CacheReport> caches;
+
+    ImportReport(
+            double durationMs,
+            Iterable<RealmReport> realms,
+            Map<String, AdminCallReport> adminCalls,
+            Map<String, CacheReport> caches
+    ) {
+        this.durationMs = durationMs;
+        this.realms = realms;
+        this.adminCalls = new TreeMap<>(adminCalls);
+        this.caches = new TreeMap<>(caches);
+    }
+
+    public double getDurationMs() {
+        return durationMs;
+    }
+
+    public Iterable<RealmReport> getRealms() {
+        return realms;
+    }
+
+    /**
+     * Admin API calls outside of a realm import, e.g. checksum lookups before the files are parsed
+     */
+    public Map<String, AdminCallReport> getAdminCalls() {
+        return adminCalls;
+    }
+
+    public Map<String, CacheReport> getCaches() {
+        return caches;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.jfr.ImportEvent;
+import de.adorsys.keycloak.config.jfr.ImportEvents;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.service.trace.Span;
+import de.adorsys.keycloak.config.service.trace.TraceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Collects phase timings, entity counts, admin API calls and cache accesses of a run. Nothing is recorded unless
+ * import.report-path is set or the application runs in server mode, where every request is a run of its own. Realm
+ * imports and phases are emitted as flight recorder events and spans independent of the report.
+ */
+@Service
+public class ImportReportService {
+    private static final Logger logger = LoggerFactory.getLogger(ImportReportService.class);
+
+    private final ImportConfigProperties importConfigProperties;
+    private final TraceService traceService;
+    private final ObjectWriter reportWriter = new ObjectMapper().writerWithDefaultPrettyPrinter();
+
+    private long runStartedAt = System.nanoTime();
+    private final List<RealmReport> realmReports = new ArrayList<>();
+    private final Map<String, CacheReport> cacheReports = new HashMap<>();
+    private final Map<String, List<Long>> adminCallsOutsideRealms = new HashMap<>();
+
+    private volatile String currentRealmName;
+    private ImportEvent currentRealmEvent = ImportEvent.NONE;
+    private Span currentRealmSpan;
+    private RealmReport currentRealm;
+    private long currentRealmStartedAt;
+    private Map<String, List<Long>> currentAdminCalls = adminCallsOutsideRealms;
+    private PhaseReport currentPhase;
+
+    @Autowired
+    public ImportReportService(ImportConfigProperties importConfigProperties, TraceService traceService) {
+        this.importConfigProperties = importConfigProperties;
+        this.traceService = traceService;
+    }
+
+    public boolean isEnabled() {
+        return !StringUtils.isEmpty(importConfigProperties.getReportPath()) || importConfigProperties.isServerMode();
+    }
+
+    /**
+     * Drops everything recorded so far, the next report only covers the run started now
+     */
+    public synchronized void startRun() {
+        runStartedAt = System.nanoTime();
+        realmReports.clear();
+        cacheReports.clear();
+        adminCallsOutsideRealms.clear();
+    }
+
+    public synchronized void startRealm(String realm) {
+        currentRealmName = realm;
+        currentRealmEvent = ImportEvents.realmImport(realm);
+        currentRealmSpan = traceService.start("realm " + realm).setAttribute("realm", realm);
+
+        if (!isEnabled()) return;
+
+        currentRealm = new RealmReport(realm);
+        currentRealmStartedAt = System.nanoTime();
+        currentAdminCalls = new HashMap<>();
+    }
+
+    public synchronized void finishRealm(String status) {
+        currentRealmEvent.end(status);
+        currentRealmEvent = ImportEvent.NONE;
+        currentRealmName = null;
+
+        if (currentRealmSpan != null) {
+            currentRealmSpan.setAttribute("status", status);
+            traceService.end(currentRealmSpan);
+            currentRealmSpan = null;
+        }
+
+        if (!isEnabled() || currentRealm == null) return;
+
+        currentRealm.finish(status, AdminCallReport.toMillis(System.nanoTime() - currentRealmStartedAt), toAdminCallReports(currentAdminCalls));
+        realmReports.add(currentRealm);
+
+        currentRealm = null;
+        currentPhase = null;
+        currentAdminCalls = adminCallsOutsideRealms;
+    }
+
+    /**
+     * Runs one phase of a realm import and records its duration. Entities and admin calls are counted for this phase
+     * until it returns.
+     */
+    public void phase(String name, Runnable phase) {
+        ImportEvent phaseEvent = ImportEvents.phase(currentRealmName, name);
+        Span phaseSpan = traceService.start("phase " + name).setAttribute("phase", name);
+        PhaseReport phaseReport = startPhase(name);
+        long startedAt = System.nanoTime();
+
+        try {
+            phase.run();
+        } catch (RuntimeException e) {
+            phaseSpan.setError(e.getMessage());
+            throw e;
+        } finally {
+            finishPhase(phaseReport, System.nanoTime() - startedAt);
+            traceService.end(phaseSpan);
+            phaseEvent.end(null);
+        }
+    }
+
+    private synchronized PhaseReport startPhase(String name) {
+        if (!isEnabled() || currentRealm == null) return null;
+
+        currentPhase = new PhaseReport(name);
+        currentRealm.addPhase(currentPhase);
+
+        return currentPhase;
+    }
+
+    private synchronized void finishPhase(PhaseReport phaseReport, long durationNanos) {
+        if (phaseReport == null) return;
+
+        phaseReport.setDurationMs(AdminCallReport.toMillis(durationNanos));
+        currentPhase = null;
+    }
+
+    public synchronized void count(EntityOutcome outcome) {
+        if (currentPhase != null) {
+            currentPhase.count(outcome);
+        }
+    }
+
+    public synchronized void recordAdminCall(String method, long durationNanos) {
+        if (!isEnabled()) return;
+
+        currentAdminCalls.computeIfAbsent(method, key -> new ArrayList<>()).add(durationNanos);
+
+        if (currentPhase != null) {
+            currentPhase.countAdminCall();
+        }
+    }
+
+    public synchronized void recordCacheAccess(String cache, boolean hit) {
+        if (!isEnabled()) return;
+
+        cacheReports.computeIfAbsent(cache, key -> new CacheReport()).count(hit);
+    }
+
+    /**
+     * Writes the report of the run so far. Does nothing if import.report-path is not set.
+     */
+    public synchronized void write() {
+        if (StringUtils.isEmpty(importConfigProperties.getReportPath())) return;
+
+        ImportReport report = getReport();
+
+        Path path = Paths.get(importConfigProperties.getReportPath()).toAbsolutePath();
+
+        try {
+            Files.createDirectories(path.getParent());
+            reportWriter.writeValue(path.toFile(), report);
+        } catch (IOException e) {
+            throw new ImportProcessingException("Cannot write import report '" + path + "'", e);
+        }
+
+        logger.info("Import report written to '{}'", path);
+    }
+
+    /**
+     * Report of the run so far
+     */
+    public synchronized ImportReport getReport() {
+        return new ImportReport(
+                AdminCallReport.toMillis(System.nanoTime() - runStartedAt),
+                new ArrayList<>(realmReports),
+                toAdminCallReports(adminCallsOutsideRealms),
+                cacheReports
+        );
+    }
+
+    private Map<String, AdminCallReport> toAdminCallReports(Map<String, List<Long>> adminCalls) {
+        return adminCalls.entrySet()
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> AdminCallReport.of(e.getValue())));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.report;
+
+public class PhaseReport {
+    private final String name;
+
+    private double durationMs;
+    private int created;
+    private int updated;
+    private int unchanged;
+    private int deleted;
+    private int adminCalls;
+
+    PhaseReport(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getDurationMs() {
+        return durationMs;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public int getAdminCalls() {
+        return adminCalls;
+    }
+
+    void setDurationMs(double durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    void count(EntityOutcome outcome) {
+        switch (outcome) {
+            case CREATED:
+                created++;
+                break;
+            case UPDATED:
+                updated++;
+                break;
+            case UNCHANGED:
+                unchanged++;
+                break;
+            case DELETED:
+                deleted++;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown outcome " + outcome);
+        }
+    }
+
+    void countAdminCall() {
+        adminCalls++;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.report;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class RealmReport {
+    private final String realm;
+    private final List<PhaseReport> phases = new ArrayList<>();
+    private final Map<String, AdminCallReport> adminCalls = new TreeMap<>();
+
+    private String status;
+    private double durationMs;
+
+    RealmReport(String realm) {
+        this.realm = realm;
+    }
+
+    public String getRealm() {
+        return realm;
+    }
+
+    /**
+     * One of created, updated, skipped or failed
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    public double getDurationMs() {
+        return durationMs;
+    }
+
+    public List<PhaseReport> getPhases() {
+        return phases;
+    }
+
+    public Map<String, AdminCallReport> getAdminCalls() {
+        return adminCalls;
+    }
+
+    void addPhase(PhaseReport phase) {
+        phases.add(phase);
+    }
+
+    void finish(String status, double durationMs, Map<String, AdminCallReport> adminCalls) {
+        this.status = status;
+        this.durationMs = durationMs;
+        this.adminCalls.putAll(adminCalls);
+    }
+}
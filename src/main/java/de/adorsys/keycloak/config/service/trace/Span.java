@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Span {
+    public static final int KIND_INTERNAL = 1;
+    public static final int KIND_CLIENT = 3;
+
+    /**
+     * Returned while tracing is disabled, ignores all attributes
+     */
+    static final Span NONE = new Span(null, null, null, null, KIND_INTERNAL, 0);
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final int kind;
+    private final long startTimeUnixNano;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+
+    private long endTimeUnixNano;
+    private String errorMessage;
+
+    Span(String traceId, String spanId, String parentSpanId, String name, int kind, long startTimeUnixNano) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        this.startTimeUnixNano = startTimeUnixNano;
+    }
+
+    public Span setAttribute(String key, Object value) {
+        if (this != NONE && value != null) {
+            attributes.put(key, value);
+        }
+
+        return this;
+    }
+
+    public void setError(String errorMessage) {
+        if (this == NONE) return;
+
+        this.errorMessage = errorMessage == null ? "" : errorMessage;
+    }
+
+    String getTraceId() {
+        return traceId;
+    }
+
+    String getSpanId() {
+        return spanId;
+    }
+
+    String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getKind() {
+        return kind;
+    }
+
+    long getStartTimeUnixNano() {
+        return startTimeUnixNano;
+    }
+
+    long getEndTimeUnixNano() {
+        return endTimeUnixNano;
+    }
+
+    void setEndTimeUnixNano(long endTimeUnixNano) {
+        this.endTimeUnixNano = endTimeUnixNano;
+    }
+
+    Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    String getErrorMessage() {
+        return errorMessage;
+    }
+
+    boolean isEnded() {
+        return endTimeUnixNano != 0;
+    }
+}
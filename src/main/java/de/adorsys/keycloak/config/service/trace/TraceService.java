@@ -0,0 +1,232 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Records spans of a run and exports them as OTLP/JSON file to import.trace-path, which can be loaded by an
+ * OpenTelemetry collector. Spans are nested per thread: a span started by {@link #start(String)} is the parent of
+ * all spans started on the same thread until it ends. Nothing is recorded unless import.trace-path is set.
+ */
+@Service
+public class TraceService {
+    private static final Logger logger = LoggerFactory.getLogger(TraceService.class);
+
+    private static final String SERVICE_NAME = "keycloak-config-cli";
+
+    private final ImportConfigProperties importConfigProperties;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final long epochOffsetNanos = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+    private volatile String traceId = randomHex(16);
+    private final List<Span> spans = new ArrayList<>();
+    private final ThreadLocal<Deque<Span>> activeSpans = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Autowired
+    public TraceService(ImportConfigProperties importConfigProperties) {
+        this.importConfigProperties = importConfigProperties;
+    }
+
+    public boolean isEnabled() {
+        return !StringUtils.isEmpty(importConfigProperties.getTracePath());
+    }
+
+    /**
+     * Drops all spans recorded so far and starts a new trace, e.g. for every request in server mode
+     */
+    public void startRun() {
+        synchronized (spans) {
+            spans.clear();
+            traceId = randomHex(16);
+        }
+    }
+
+    /**
+     * Starts a span as child of the active span of this thread and makes it the active span until {@link #end(Span)}
+     */
+    public Span start(String name) {
+        if (!isEnabled()) return Span.NONE;
+
+        Span span = createSpan(name, Span.KIND_INTERNAL);
+        activeSpans.get().push(span);
+
+        return span;
+    }
+
+    /**
+     * Starts a span for an outgoing call. It never becomes the active span, so a call which does not return cannot
+     * corrupt the nesting.
+     */
+    public Span startClientSpan(String name) {
+        if (!isEnabled()) return Span.NONE;
+
+        return createSpan(name, Span.KIND_CLIENT);
+    }
+
+    public void end(Span span) {
+        if (span == Span.NONE) return;
+
+        span.setEndTimeUnixNano(now());
+        activeSpans.get().remove(span);
+    }
+
+    public void span(String name, Runnable runnable) {
+        Span span = start(name);
+
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            span.setError(e.getMessage());
+            throw e;
+        } finally {
+            end(span);
+        }
+    }
+
+    /**
+     * Wraps the task to run with the active span of this thread as parent, for tasks handed to other threads
+     */
+    public Runnable withActiveSpan(Runnable runnable) {
+        Span parent = activeSpans.get().peek();
+        if (parent == null) return runnable;
+
+        return () -> {
+            Deque<Span> spansOfThread = activeSpans.get();
+            spansOfThread.push(parent);
+
+            try {
+                runnable.run();
+            } finally {
+                spansOfThread.remove(parent);
+            }
+        };
+    }
+
+    private Span createSpan(String name, int kind) {
+        Span parent = activeSpans.get().peek();
+        Span span = new Span(traceId, randomHex(8), parent == null ? null : parent.getSpanId(), name, kind, now());
+
+        synchronized (spans) {
+            spans.add(span);
+        }
+
+        return span;
+    }
+
+    /**
+     * Writes all ended spans of the run so far. Does nothing if import.trace-path is not set.
+     */
+    public void write() {
+        if (!isEnabled()) return;
+
+        ObjectNode export = objectMapper.createObjectNode();
+        ObjectNode resourceSpans = export.putArray("resourceSpans").addObject();
+        addAttribute(resourceSpans.putObject("resource").putArray("attributes"), "service.name", SERVICE_NAME);
+
+        ObjectNode scopeSpans = resourceSpans.putArray("scopeSpans").addObject();
+        scopeSpans.putObject("scope").put("name", SERVICE_NAME);
+        ArrayNode spanNodes = scopeSpans.putArray("spans");
+
+        synchronized (spans) {
+            spans.stream()
+                    .filter(Span::isEnded)
+                    .forEach(span -> addSpan(spanNodes, span));
+        }
+
+        Path path = Paths.get(importConfigProperties.getTracePath()).toAbsolutePath();
+
+        try {
+            Files.createDirectories(path.getParent());
+            objectMapper.writeValue(path.toFile(), export);
+        } catch (IOException e) {
+            throw new ImportProcessingException("Cannot write trace '" + path + "'", e);
+        }
+
+        logger.info("Trace written to '{}'", path);
+    }
+
+    private void addSpan(ArrayNode spanNodes, Span span) {
+        ObjectNode spanNode = spanNodes.addObject()
+                .put("traceId", span.getTraceId())
+                .put("spanId", span.getSpanId());
+
+        if (span.getParentSpanId() != null) {
+            spanNode.put("parentSpanId", span.getParentSpanId());
+        }
+
+        spanNode.put("name", span.getName())
+                .put("kind", span.getKind())
+                .put("startTimeUnixNano", String.valueOf(span.getStartTimeUnixNano()))
+                .put("endTimeUnixNano", String.valueOf(span.getEndTimeUnixNano()));
+
+        ArrayNode attributes = spanNode.putArray("attributes");
+        for (Map.Entry<String, Object> attribute : span.getAttributes().entrySet()) {
+            addAttribute(attributes, attribute.getKey(), attribute.getValue());
+        }
+
+        if (span.getErrorMessage() != null) {
+            spanNode.putObject("status").put("code", 2).put("message", span.getErrorMessage());
+        }
+    }
+
+    private void addAttribute(ArrayNode attributes, String key, Object value) {
+        ObjectNode valueNode = attributes.addObject().put("key", key).putObject("value");
+
+        if (value instanceof Integer || value instanceof Long) {
+            valueNode.put("intValue", String.valueOf(value));
+        } else {
+            valueNode.put("stringValue", String.valueOf(value));
+        }
+    }
+
+    private long now() {
+        return epochOffsetNanos + System.nanoTime();
+    }
+
+    private static String randomHex(int bytes) {
+        StringBuilder hex = new StringBuilder(bytes * 2);
+
+        for (int i = 0; i < bytes; i++) {
+            hex.append(String.format("%02x", ThreadLocalRandom.current().nextInt(256)));
+        }
+
+        return hex.toString();
+    }
+}
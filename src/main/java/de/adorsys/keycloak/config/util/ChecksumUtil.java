@@ -18,8 +18,13 @@
 
 package de.adorsys.keycloak.config.util;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
 public class ChecksumUtil {
 
     public static String checksum(String text) {
@@ -37,4 +42,24 @@ public class ChecksumUtil {
 
         return DigestUtils.sha256Hex(textInBytes);
     }
+
+    public static String checksum(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("Cannot calculate checksum of null");
+        }
+
+        return DigestUtils.sha256Hex(inputStream);
+    }
+
+    /**
+     * Creates a digest to calculate a checksum while the content is read anyway, e.g. by a
+     * {@link java.security.DigestInputStream}
+     */
+    public static MessageDigest createDigest() {
+        return DigestUtils.getSha256Digest();
+    }
+
+    public static String toChecksum(MessageDigest digest) {
+        return Hex.encodeHexString(digest.digest());
+    }
 }
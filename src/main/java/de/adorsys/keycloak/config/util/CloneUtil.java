@@ -19,23 +19,38 @@
 package de.adorsys.keycloak.config.util;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.StreamSupport;
 
 public class CloneUtil {
+    private static final String TOP_LEVEL_FILTER = "topLevelFilter";
+
     private static final ObjectMapper nonNullMapper;
     private static final ObjectMapper nonFailingMapper;
 
@@ -43,6 +58,8 @@ public class CloneUtil {
         nonNullMapper = new ObjectMapper();
         nonNullMapper.setSerializationInclusion(Include.NON_NULL);
         nonNullMapper.setDefaultMergeable(true);
+        nonNullMapper.setAnnotationIntrospector(new TopLevelFilterIntrospector());
+        nonNullMapper.setFilterProvider(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
 
         nonFailingMapper = new ObjectMapper();
         nonFailingMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -132,7 +149,8 @@ public class CloneUtil {
     }
 
     private static <S> JsonNode toJsonNode(S object, String... ignoredProperties) {
-        JsonNode objectAsNode = nonNullMapper.valueToTree(object);
+        Set<String> ignoredTopLevelProperties = new HashSet<>(Arrays.asList(ignoredProperties));
+        JsonNode objectAsNode = valueToTree(object, property -> !ignoredTopLevelProperties.contains(property));
 
         removeIgnoredProperties(objectAsNode, ignoredProperties);
 
@@ -140,7 +158,8 @@ public class CloneUtil {
     }
 
     private static <S> Map<String, Object> toMapFilteredBy(S object, String... allowedKeys) {
-        JsonNode objectAsNode = nonNullMapper.valueToTree(object);
+        Set<String> allowedTopLevelProperties = new HashSet<>(Arrays.asList(allowedKeys));
+        JsonNode objectAsNode = valueToTree(object, allowedTopLevelProperties::contains);
         Map<String, Object> objectAsMap = jsonNodeToMap(objectAsNode);
 
         // https://stackoverflow.com/a/43849125
@@ -149,6 +168,25 @@ public class CloneUtil {
         return filteredMap;
     }
 
+    /**
+     * Like {@link ObjectMapper#valueToTree(Object)}, but top-level properties of beans which are not included are not
+     * serialized at all. Ignoring large sections, like the users of a realm, costs nothing this way.
+     */
+    private static JsonNode valueToTree(Object object, Predicate<String> includedTopLevelProperties) {
+        if (object == null) return null;
+
+        SimpleFilterProvider filterProvider = new SimpleFilterProvider()
+                .setDefaultFilter(new TopLevelPropertyFilter(includedTopLevelProperties));
+        TokenBuffer buffer = new TokenBuffer(nonNullMapper, false);
+
+        try {
+            nonNullMapper.writer(filterProvider).writeValue(buffer, object);
+            return nonNullMapper.readTree(buffer.asParser());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private static <T> T fromMap(Map<String, Object> map, Class<T> targetClass) {
         JsonNode mapAsNode = nonNullMapper.valueToTree(map);
         try {
@@ -228,4 +266,43 @@ public class CloneUtil {
 
         objectNode.set(propertyKey, propertyValue);
     }
+
+    /**
+     * Puts the top-level filter on all beans which don't declare a filter on their own
+     */
+    private static class TopLevelFilterIntrospector extends JacksonAnnotationIntrospector {
+        @Override
+        public Object findFilterId(Annotated annotated) {
+            Object filterId = super.findFilterId(annotated);
+
+            if (filterId == null && annotated instanceof AnnotatedClass) {
+                return TOP_LEVEL_FILTER;
+            }
+
+            return filterId;
+        }
+    }
+
+    private static class TopLevelPropertyFilter extends SimpleBeanPropertyFilter {
+        private final Predicate<String> includedTopLevelProperties;
+
+        private TopLevelPropertyFilter(Predicate<String> includedTopLevelProperties) {
+            this.includedTopLevelProperties = includedTopLevelProperties;
+        }
+
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator generator, SerializerProvider provider, PropertyWriter writer) throws Exception {
+            if (isTopLevel(generator) && !includedTopLevelProperties.test(writer.getName())) {
+                return;
+            }
+
+            writer.serializeAsField(pojo, generator, provider);
+        }
+
+        private static boolean isTopLevel(JsonGenerator generator) {
+            JsonStreamContext parent = generator.getOutputContext().getParent();
+
+            return parent != null && parent.inRoot();
+        }
+    }
 }
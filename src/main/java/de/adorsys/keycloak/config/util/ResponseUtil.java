@@ -21,6 +21,7 @@ package de.adorsys.keycloak.config.util;
 import de.adorsys.keycloak.config.exception.KeycloakRepositoryException;
 
 import javax.ws.rs.core.Response;
+import java.net.URI;
 
 public class ResponseUtil {
 
@@ -33,4 +34,25 @@ public class ResponseUtil {
             response.close();
         }
     }
+
+    /**
+     * Returns the id of a created entity, taken from the last path segment of the Location header
+     */
+    public static String getCreatedId(Response response) {
+        try {
+            if (response.getStatus() > 201) {
+                throw new KeycloakRepositoryException(response.getStatusInfo().getReasonPhrase());
+            }
+
+            URI location = response.getLocation();
+            if (location == null) {
+                throw new KeycloakRepositoryException("Missing Location header in create response");
+            }
+
+            String path = location.getPath().replaceAll("/$", "");
+            return path.substring(path.lastIndexOf('/') + 1);
+        } finally {
+            response.close();
+        }
+    }
 }
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.provider.KeycloakImportProvider;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.service.RealmImportService;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
+import de.adorsys.keycloak.config.service.trace.TraceService;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import de.adorsys.keycloak.config.util.ResourceLoader;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+public class ImportServerTest {
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+    private static final int PORT = findFreePort();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    ImportServer importServer;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @Autowired
+    KeycloakImportProvider keycloakImportProvider;
+
+    @Autowired
+    RealmImportService realmImportService;
+
+    @Autowired
+    ImportReportService importReportService;
+
+    @Autowired
+    TraceService traceService;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+        registry.add("import.server-port", () -> PORT);
+        registry.add("import.path", () -> ResourceLoader.loadResource("import-files/users").getAbsolutePath());
+    }
+
+    @BeforeEach
+    public void setup() {
+        SIMULATOR.reset();
+        importServer.start();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        importServer.destroy();
+        keycloakProvider.close();
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @Test
+    public void shouldImportRequestBodyWithWarmAdminClient() throws IOException {
+        byte[] realmImport = Files.readAllBytes(ResourceLoader.loadResource("import-files/users/0_create_realm_with_user.json").toPath());
+
+        Response created = post("", realmImport);
+        assertThat(created.status, is(200));
+        assertThat(created.body.path("realms").get(0).path("realm").asText(), is("realmWithUsers"));
+        assertThat(created.body.path("realms").get(0).path("status").asText(), is("created"));
+
+        Response unchanged = post("", realmImport);
+        assertThat(unchanged.status, is(200));
+        assertThat(unchanged.body.path("realms").size(), is(1));
+        assertThat(unchanged.body.path("realms").get(0).path("status").asText(), is("skipped"));
+
+        assertThat(SIMULATOR.getCallCount("POST /realms/{realm}/protocol/openid-connect/token"), is(1));
+    }
+
+    @Test
+    public void shouldImportPath() throws IOException {
+        File importFile = ResourceLoader.loadResource("import-files/users/0_create_realm_with_user.json");
+
+        Response response = post("?path=" + URLEncoder.encode(importFile.getAbsolutePath(), StandardCharsets.UTF_8.name()), new byte[0]);
+
+        assertThat(response.status, is(200));
+        assertThat(response.body.path("realms").get(0).path("status").asText(), is("created"));
+        assertThat(SIMULATOR.hasRealm("realmWithUsers"), is(true));
+    }
+
+    @Test
+    public void shouldImportPathRelativeToImportPath() throws IOException {
+        Response response = post("?path=0_create_realm_with_user.json", new byte[0]);
+
+        assertThat(response.status, is(200));
+        assertThat(response.body.path("realms").get(0).path("status").asText(), is("created"));
+    }
+
+    @Test
+    public void shouldRejectPathOutsideOfImportPath() throws IOException {
+        File outsideFile = ResourceLoader.loadResource("import-files/simple-realm/0_create_simple-realm.json");
+
+        Response absolute = post("?path=" + URLEncoder.encode(outsideFile.getAbsolutePath(), StandardCharsets.UTF_8.name()), new byte[0]);
+        assertThat(absolute.status, is(403));
+
+        String relativePath = "../simple-realm/0_create_simple-realm.json";
+        Response relative = post("?path=" + URLEncoder.encode(relativePath, StandardCharsets.UTF_8.name()), new byte[0]);
+        assertThat(relative.status, is(403));
+        assertThat(relative.body.path("error").asText(), containsString("import.path"));
+
+        assertThat(SIMULATOR.hasRealm("simple"), is(false));
+    }
+
+    @Test
+    public void shouldRejectInvalidImport() throws IOException {
+        Response response = post("", "{\"realm\": \"invalid\", \"unknownProperty\": true}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(response.status, is(400));
+        assertThat(response.body.path("error").asText(), containsString("unknownProperty"));
+        assertThat(SIMULATOR.hasRealm("invalid"), is(false));
+    }
+
+    @Test
+    public void shouldRequireServerToken() throws IOException {
+        byte[] realmImport = Files.readAllBytes(ResourceLoader.loadResource("import-files/users/0_create_realm_with_user.json").toPath());
+
+        int port = findFreePort();
+        ImportServer tokenServer = createImportServer(port, "127.0.0.1", "secret");
+        tokenServer.start();
+
+        try {
+            Response missing = post(port, "", realmImport, null);
+            assertThat(missing.status, is(401));
+            assertThat(missing.body.path("error").asText(), containsString("import.server-token"));
+
+            Response invalid = post(port, "", realmImport, "Bearer other");
+            assertThat(invalid.status, is(401));
+            assertThat(SIMULATOR.hasRealm("realmWithUsers"), is(false));
+
+            Response valid = post(port, "", realmImport, "Bearer secret");
+            assertThat(valid.status, is(200));
+            assertThat(SIMULATOR.hasRealm("realmWithUsers"), is(true));
+        } finally {
+            tokenServer.destroy();
+        }
+    }
+
+    @Test
+    public void shouldNotStartOnNonLoopbackAddressWithoutServerToken() {
+        ImportServer openServer = createImportServer(findFreePort(), "0.0.0.0", "");
+
+        ImportProcessingException thrown = assertThrows(ImportProcessingException.class, openServer::start);
+
+        assertThat(thrown.getMessage(), containsString("import.server-token"));
+    }
+
+    private ImportServer createImportServer(int port, String address, String token) {
+        ImportConfigProperties importConfigProperties = new ImportConfigProperties(
+                ResourceLoader.loadResource("import-files/users").getAbsolutePath(), false, "default", "realm", "checksums.properties", 1, null, null, 0, port, address, token, 1, false, null, null, 0, 1, 0
+        );
+
+        return new ImportServer(keycloakImportProvider, realmImportService, importReportService, traceService, importConfigProperties);
+    }
+
+    private Response post(String query, byte[] body) throws IOException {
+        return post(PORT, query, body, null);
+    }
+
+    private Response post(int port, String query, byte[] body, String authorization) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/import" + query).openConnection();
+        connection.setRequestMethod("POST");
+        if (authorization != null) {
+            connection.setRequestProperty("Authorization", authorization);
+        }
+        connection.setDoOutput(true);
+
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body);
+        }
+
+        int status = connection.getResponseCode();
+        try (InputStream inputStream = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new Response(status, objectMapper.readTree(inputStream));
+        }
+    }
+
+    private static int findFreePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Response {
+        private final int status;
+        private final JsonNode body;
+
+        private Response(int status, JsonNode body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
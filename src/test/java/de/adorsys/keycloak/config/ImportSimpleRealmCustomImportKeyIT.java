@@ -49,7 +49,7 @@ public class ImportSimpleRealmCustomImportKeyIT extends AbstractImportTest {
         assertThat(createdRealm.getLoginTheme(), is(nullValue()));
         assertThat(
                 createdRealm.getAttributes().get("de.adorsys.keycloak.config.import-checksum-custom"),
-                is("f1fa7181b84f808b5402f47c1b875195dc9b6d8a1c1f9e22227985ac63eb2ada")
+                is("dff499db2558ce0dbd543c052520aa46c125bb2628e1a8e76f47af1580d41320")
         );
     }
 }
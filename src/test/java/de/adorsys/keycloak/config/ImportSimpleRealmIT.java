@@ -50,7 +50,7 @@ public class ImportSimpleRealmIT extends AbstractImportTest {
         assertThat(createdRealm.getLoginTheme(), is(nullValue()));
         assertThat(
                 createdRealm.getAttributes().get("de.adorsys.keycloak.config.import-checksum-default"),
-                is("6292be0628c50ff8fc02bd4092f48a731133e4802e158e7bc2ba174524b4ccf1")
+                is("9b44803f147991692aa952741947267883a55f8ffb240aefdad76e97275f2299")
         );
     }
 
@@ -66,7 +66,7 @@ public class ImportSimpleRealmIT extends AbstractImportTest {
         assertThat(createdRealm.getLoginTheme(), is(nullValue()));
         assertThat(
                 createdRealm.getAttributes().get("de.adorsys.keycloak.config.import-checksum-default"),
-                is("6292be0628c50ff8fc02bd4092f48a731133e4802e158e7bc2ba174524b4ccf1")
+                is("9b44803f147991692aa952741947267883a55f8ffb240aefdad76e97275f2299")
         );
     }
 
@@ -82,7 +82,7 @@ public class ImportSimpleRealmIT extends AbstractImportTest {
         assertThat(updatedRealm.getLoginTheme(), is("moped"));
         assertThat(
                 updatedRealm.getAttributes().get("de.adorsys.keycloak.config.import-checksum-default"),
-                is("4ac94d3adb91122979e80816a8a355a01f9c7c90a25b6b529bf2a572e1158b1c")
+                is("76b8f96a2f076f10facc31298cbba449f2e220d516242946499962df56c42951")
         );
     }
 
@@ -98,7 +98,7 @@ public class ImportSimpleRealmIT extends AbstractImportTest {
         assertThat(createdRealm.getLoginTheme(), is("moped"));
         assertThat(
                 createdRealm.getAttributes().get("de.adorsys.keycloak.config.import-checksum-default"),
-                is("9362cc7d2e91e9b9eee39d0b9306de0f7857f9d6326133335fc2d5cf767f7018")
+                is("310e0abc45e6c034cd09fcddd44788bf7b65783c690afa91f3b21af68d26fb43")
         );
     }
 
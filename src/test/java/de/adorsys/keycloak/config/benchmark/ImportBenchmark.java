@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.benchmark;
+
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.service.RealmImportService;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link RealmImportService#doImport} scenarios against a {@link KeycloakAdminSimulator} and measures for each
+ * <ul>
+ *     <li>wall time</li>
+ *     <li>admin API calls, in total and per endpoint</li>
+ *     <li>bytes allocated by the importing thread, the simulator is not included</li>
+ *     <li>peak heap usage</li>
+ * </ul>
+ */
+public class ImportBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ImportBenchmark.class);
+
+    private final RealmImportService realmImportService;
+    private final KeycloakAdminSimulator simulator;
+
+    private final List<Result> results = new ArrayList<>();
+
+    public ImportBenchmark(RealmImportService realmImportService, KeycloakAdminSimulator simulator) {
+        this.realmImportService = realmImportService;
+        this.simulator = simulator;
+    }
+
+    public Result run(String scenario, RealmImport realmImport) {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = heapPools();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        simulator.resetCallCounts();
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        realmImportService.doImport(realmImport);
+
+        long wallNanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+        Result result = new Result(scenario, wallNanos, simulator.getCallCounts(), allocated, peakHeap);
+        results.add(result);
+
+        logger.info(
+                "Benchmark '{}': {} ms, {} admin calls, {} MB allocated, {} MB peak heap",
+                scenario, result.getWallMillis(), result.getAdminCalls(), toMegabytes(allocated), toMegabytes(peakHeap)
+        );
+
+        return result;
+    }
+
+    public List<Result> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Table of all results, followed by the admin calls per endpoint of each scenario
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%-24s %12s %12s %14s %14s%n", "scenario", "wall ms", "admin calls", "allocated MB", "peak heap MB"));
+        for (Result result : results) {
+            summary.append(String.format(
+                    "%-24s %12d %12d %14d %14d%n",
+                    result.getScenario(), result.getWallMillis(), result.getAdminCalls(),
+                    toMegabytes(result.getAllocatedBytes()), toMegabytes(result.getPeakHeapBytes())
+            ));
+        }
+
+        for (Result result : results) {
+            summary.append(String.format("%n%s%n", result.getScenario()));
+            result.getCallCounts().forEach((endpoint, count) -> summary.append(String.format("%8d  %s%n", count, endpoint)));
+        }
+
+        return summary.toString();
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+            }
+        }
+        return heapPools;
+    }
+
+    /**
+     * Uses the HotSpot extension of the {@link ThreadMXBean}, -1 if the JVM doesn't support it
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long toMegabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+
+    public static class Result {
+        private final String scenario;
+        private final long wallNanos;
+        private final SortedMap<String, Integer> callCounts;
+        private final long allocatedBytes;
+        private final long peakHeapBytes;
+
+        Result(String scenario, long wallNanos, SortedMap<String, Integer> callCounts, long allocatedBytes, long peakHeapBytes) {
+            this.scenario = scenario;
+            this.wallNanos = wallNanos;
+            this.callCounts = callCounts;
+            this.allocatedBytes = allocatedBytes;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        public String getScenario() {
+            return scenario;
+        }
+
+        public long getWallMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(wallNanos);
+        }
+
+        public int getAdminCalls() {
+            return callCounts.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        public int getCallCount(String endpoint) {
+            return callCounts.getOrDefault(endpoint, 0);
+        }
+
+        public SortedMap<String, Integer> getCallCounts() {
+            return callCounts;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getPeakHeapBytes() {
+            return peakHeapBytes;
+        }
+    }
+}
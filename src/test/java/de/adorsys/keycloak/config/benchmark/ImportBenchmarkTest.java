@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.benchmark;
+
+import ch.qos.logback.classic.Level;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.service.RealmImportService;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Macro benchmark of a full realm import: create, no-op update and 1% delta update. Runs with a small realm by
+ * default, pass e.g. <code>-Dbenchmark.users=100000</code> to scale it up:
+ * <pre>
+ * mvn test -Dtest=ImportBenchmarkTest -Dbenchmark.users=100000 -Dbenchmark.latency-ms=1
+ * </pre>
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+public class ImportBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(ImportBenchmarkTest.class);
+
+    private static final String LOGGER_NAME = "de.adorsys.keycloak.config";
+
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+
+    @Autowired
+    RealmImportService realmImportService;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+        // the no-op update has to run through all import services instead of being skipped by its checksum
+        registry.add("import.force", () -> "true");
+    }
+
+    /**
+     * Measure with the default log level, debug logging of every entity would dominate the results
+     */
+    @BeforeAll
+    public static void setLogLevel() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(LOGGER_NAME)).setLevel(Level.INFO);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        keycloakProvider.close();
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(LOGGER_NAME)).setLevel(Level.DEBUG);
+        SIMULATOR.close();
+    }
+
+    @Test
+    public void shouldImportSyntheticRealm() {
+        SIMULATOR.reset();
+        SIMULATOR.setLatency(Duration.ofMillis(Long.getLong("benchmark.latency-ms", 0)));
+
+        RealmImportGenerator generator = new RealmImportGenerator()
+                .users(Integer.getInteger("benchmark.users", 20))
+                .groups(Integer.getInteger("benchmark.group-depth", 2), Integer.getInteger("benchmark.group-fan-out", 2))
+                .realmRoles(Integer.getInteger("benchmark.realm-roles", 6), Integer.getInteger("benchmark.composites", 2))
+                .clients(Integer.getInteger("benchmark.clients", 2), Integer.getInteger("benchmark.client-roles", 2))
+                .flows(Integer.getInteger("benchmark.flows", 1))
+                .components(Integer.getInteger("benchmark.components", 1));
+
+        ImportBenchmark benchmark = new ImportBenchmark(realmImportService, SIMULATOR);
+
+        ImportBenchmark.Result create = benchmark.run("create", generator.generate());
+        ImportBenchmark.Result noop = benchmark.run("no-op update", generator.generate());
+        ImportBenchmark.Result delta = benchmark.run("1% delta update", generator.generate(0.01));
+
+        logger.info("Import benchmark results:\n{}", benchmark.summary());
+
+        assertThat(create.getCallCount("POST /admin/realms/{realm}/users"), is(generator.getUsers()));
+        assertThat(noop.getCallCount("POST /admin/realms/{realm}/users"), is(0));
+        assertThat(noop.getCallCount("PUT /admin/realms/{realm}/users/{id}"), is(0));
+        assertThat(delta.getCallCount("PUT /admin/realms/{realm}/users/{id}"), greaterThan(0));
+    }
+}
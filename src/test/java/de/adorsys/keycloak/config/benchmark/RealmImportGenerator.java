@@ -0,0 +1,272 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.util.ChecksumUtil;
+
+/**
+ * Generates synthetic realm imports of tunable size. The output is deterministic, so two realms generated with the
+ * same settings are equal and a re-import is a no-op update.
+ * <p>
+ * With {@link #generate(double)} a share of the users, groups, roles and clients gets changed attributes, which
+ * simulates a typical small delta between two imports.
+ */
+public class RealmImportGenerator {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String realm = "benchmark";
+    private int users = 100;
+    private int groupDepth = 2;
+    private int groupFanOut = 5;
+    private int realmRoles = 20;
+    private int compositesPerRole = 2;
+    private int clients = 5;
+    private int clientRolesPerClient = 5;
+    private int flows = 2;
+    private int components = 2;
+
+    public RealmImportGenerator realm(String realm) {
+        this.realm = realm;
+        return this;
+    }
+
+    public RealmImportGenerator users(int users) {
+        this.users = users;
+        return this;
+    }
+
+    /**
+     * Creates <code>fanOut</code> top-level groups, each with <code>fanOut</code> sub-groups down to the given depth
+     */
+    public RealmImportGenerator groups(int depth, int fanOut) {
+        this.groupDepth = depth;
+        this.groupFanOut = fanOut;
+        return this;
+    }
+
+    /**
+     * Every second realm role is a composite of the given number of preceding realm roles
+     */
+    public RealmImportGenerator realmRoles(int realmRoles, int compositesPerRole) {
+        this.realmRoles = realmRoles;
+        this.compositesPerRole = compositesPerRole;
+        return this;
+    }
+
+    public RealmImportGenerator clients(int clients, int clientRolesPerClient) {
+        this.clients = clients;
+        this.clientRolesPerClient = clientRolesPerClient;
+        return this;
+    }
+
+    public RealmImportGenerator flows(int flows) {
+        this.flows = flows;
+        return this;
+    }
+
+    public RealmImportGenerator components(int components) {
+        this.components = components;
+        return this;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public RealmImport generate() {
+        return generate(0);
+    }
+
+    /**
+     * @param changedShare share of the entities (0.0 - 1.0) with changed attributes, e.g. 0.01 for a 1% delta
+     */
+    public RealmImport generate(double changedShare) {
+        ObjectNode json = generateJson(changedShare);
+
+        try {
+            RealmImport realmImport = objectMapper.treeToValue(json, RealmImport.class);
+            realmImport.setChecksum(ChecksumUtil.checksum(objectMapper.writeValueAsBytes(json)));
+            return realmImport;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public ObjectNode generateJson(double changedShare) {
+        int changedEvery = changedShare > 0 ? Math.max(1, (int) Math.round(1 / changedShare)) : 0;
+
+        ObjectNode json = objectMapper.createObjectNode();
+        json.put("realm", realm);
+        json.put("enabled", true);
+
+        ObjectNode roles = json.putObject("roles");
+        addRealmRoles(roles.putArray("realm"), changedEvery);
+        addClients(json.putArray("clients"), roles.putObject("client"), changedEvery);
+        addGroups(json.putArray("groups"), changedEvery);
+        addUsers(json.putArray("users"), changedEvery);
+        addFlows(json.putArray("authenticationFlows"));
+        addComponents(json.putObject("components").putArray("org.keycloak.keys.KeyProvider"));
+
+        return json;
+    }
+
+    private void addRealmRoles(ArrayNode realmRolesJson, int changedEvery) {
+        for (int index = 0; index < realmRoles; index++) {
+            ObjectNode role = realmRolesJson.addObject();
+            role.put("name", realmRoleName(index));
+            role.put("description", description("Realm role " + index, index, changedEvery));
+
+            if (index % 2 == 1 && compositesPerRole > 0) {
+                ArrayNode composites = role.putObject("composites").putArray("realm");
+                for (int composite = Math.max(0, index - compositesPerRole); composite < index; composite++) {
+                    composites.add(realmRoleName(composite));
+                }
+            }
+        }
+    }
+
+    private void addClients(ArrayNode clientsJson, ObjectNode clientRolesJson, int changedEvery) {
+        for (int index = 0; index < clients; index++) {
+            ObjectNode client = clientsJson.addObject();
+            client.put("clientId", clientId(index));
+            client.put("name", "Client " + index);
+            client.put("description", description("Client " + index, index, changedEvery));
+            client.put("enabled", true);
+            client.put("secret", "secret-" + index);
+            client.put("publicClient", false);
+            client.putArray("redirectUris").add("https://client-" + index + ".example.com/*");
+
+            ArrayNode clientRoles = clientRolesJson.putArray(clientId(index));
+            for (int roleIndex = 0; roleIndex < clientRolesPerClient; roleIndex++) {
+                ObjectNode role = clientRoles.addObject();
+                role.put("name", clientRoleName(roleIndex));
+                role.put("description", description("Client role " + roleIndex, roleIndex, changedEvery));
+            }
+        }
+    }
+
+    private void addGroups(ArrayNode groupsJson, int changedEvery) {
+        int[] groupCount = {0};
+        for (int index = 0; index < groupFanOut; index++) {
+            groupsJson.add(group("group-" + index, 1, groupCount, changedEvery));
+        }
+    }
+
+    private ObjectNode group(String name, int depth, int[] groupCount, int changedEvery) {
+        int index = groupCount[0]++;
+
+        ObjectNode group = objectMapper.createObjectNode();
+        group.put("name", name);
+        group.putObject("attributes").putArray("level").add(description("level " + depth, index, changedEvery));
+        if (realmRoles > 0) {
+            group.putArray("realmRoles").add(realmRoleName(index % realmRoles));
+        }
+        if (clients > 0 && clientRolesPerClient > 0) {
+            group.putObject("clientRoles")
+                    .putArray(clientId(index % clients))
+                    .add(clientRoleName(index % clientRolesPerClient));
+        }
+
+        if (depth < groupDepth) {
+            ArrayNode subGroups = group.putArray("subGroups");
+            for (int child = 0; child < groupFanOut; child++) {
+                subGroups.add(group(name + "-" + child, depth + 1, groupCount, changedEvery));
+            }
+        }
+
+        return group;
+    }
+
+    private void addUsers(ArrayNode usersJson, int changedEvery) {
+        for (int index = 0; index < users; index++) {
+            ObjectNode user = usersJson.addObject();
+            user.put("username", String.format("user-%07d", index));
+            user.put("email", String.format("user-%07d@example.com", index));
+            user.put("firstName", description("First", index, changedEvery));
+            user.put("lastName", "Last " + index);
+            user.put("enabled", true);
+
+            if (realmRoles > 0) {
+                user.putArray("realmRoles").add(realmRoleName(index % realmRoles));
+            }
+            if (clients > 0 && clientRolesPerClient > 0) {
+                user.putObject("clientRoles")
+                        .putArray(clientId(index % clients))
+                        .add(clientRoleName(index % clientRolesPerClient));
+            }
+        }
+    }
+
+    private void addFlows(ArrayNode flowsJson) {
+        for (int index = 0; index < flows; index++) {
+            ObjectNode flow = flowsJson.addObject();
+            flow.put("alias", "flow-" + index);
+            flow.put("description", "Flow " + index);
+            flow.put("providerId", "basic-flow");
+            flow.put("topLevel", true);
+            flow.put("builtIn", false);
+
+            ArrayNode executions = flow.putArray("authenticationExecutions");
+            executions.add(execution("auth-cookie", "ALTERNATIVE", 0));
+            executions.add(execution("identity-provider-redirector", "ALTERNATIVE", 1));
+        }
+    }
+
+    private ObjectNode execution(String authenticator, String requirement, int priority) {
+        ObjectNode execution = objectMapper.createObjectNode();
+        execution.put("authenticator", authenticator);
+        execution.put("requirement", requirement);
+        execution.put("priority", priority);
+        execution.put("userSetupAllowed", false);
+        execution.put("autheticatorFlow", false);
+        return execution;
+    }
+
+    private void addComponents(ArrayNode keyProviders) {
+        for (int index = 0; index < components; index++) {
+            ObjectNode component = keyProviders.addObject();
+            component.put("name", "rsa-" + index);
+            component.put("providerId", "rsa-generated");
+            ObjectNode config = component.putObject("config");
+            config.putArray("priority").add(String.valueOf(100 + index));
+            config.putArray("keySize").add("2048");
+        }
+    }
+
+    private static String description(String value, int index, int changedEvery) {
+        return changedEvery > 0 && index % changedEvery == 0 ? value + " (changed)" : value;
+    }
+
+    private static String realmRoleName(int index) {
+        return String.format("role-%04d", index);
+    }
+
+    private static String clientId(int index) {
+        return String.format("client-%04d", index);
+    }
+
+    private static String clientRoleName(int index) {
+        return String.format("client-role-%03d", index);
+    }
+}
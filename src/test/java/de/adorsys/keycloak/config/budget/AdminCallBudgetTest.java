@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.budget;
+
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.model.KeycloakImport;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.provider.KeycloakImportProvider;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.service.RealmImportService;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import de.adorsys.keycloak.config.util.ResourceLoader;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Replays the import files of each IT scenario against the {@link KeycloakAdminSimulator} and compares the admin API
+ * calls per endpoint with the budget recorded in <code>src/test/resources/admin-call-budgets</code>. More calls than
+ * budgeted fail the build, fewer calls only log a hint to record the new budget:
+ * <pre>
+ * mvn test -Dtest=AdminCallBudgetTest -Dadmin-call-budgets.record=true
+ * </pre>
+ * Some scenarios need a different number of calls from run to run, e.g. the client composites of roles are compared in
+ * the iteration order of hash sets. A budget is recorded from several replays of the scenario: an endpoint whose calls
+ * vary between the replays gets their spread on top of the maximum.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+public class AdminCallBudgetTest {
+    private static final Logger logger = LoggerFactory.getLogger(AdminCallBudgetTest.class);
+
+    private static final List<String> SCENARIOS = Arrays.asList(
+            "auth-config",
+            "auth-flows",
+            "client-scopes",
+            "clients",
+            "components",
+            "custom-import",
+            "groups",
+            "identity-providers",
+            "required-actions",
+            "roles",
+            "scope-mappings",
+            "simple-realm",
+            "users"
+    );
+
+    private static final int RECORD_REPLAYS = 5;
+
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+
+    @Autowired
+    RealmImportService realmImportService;
+
+    @Autowired
+    KeycloakImportProvider keycloakImportProvider;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @TestFactory
+    public Stream<DynamicTest> shouldStayWithinAdminCallBudget() {
+        boolean record = Boolean.getBoolean("admin-call-budgets.record");
+        AdminCallBudgets budgets = new AdminCallBudgets(record);
+
+        return SCENARIOS.stream().map(scenario -> DynamicTest.dynamicTest(scenario, () -> {
+            SortedMap<String, Integer> callCounts = record ? replayWithHeadroom(scenario) : replay(scenario);
+
+            List<String> exceeded = budgets.check(scenario, callCounts);
+            if (!exceeded.isEmpty()) {
+                fail("Scenario '" + scenario + "' exceeds its admin call budget:\n" + String.join("\n", exceeded));
+            }
+        }));
+    }
+
+    private SortedMap<String, Integer> replayWithHeadroom(String scenario) {
+        List<SortedMap<String, Integer>> replays = new ArrayList<>();
+        for (int i = 0; i < RECORD_REPLAYS; i++) {
+            replays.add(replay(scenario));
+        }
+
+        SortedMap<String, Integer> budget = new TreeMap<>();
+        replays.forEach(callCounts -> budget.putAll(callCounts));
+        budget.replaceAll((endpoint, ignored) -> {
+            IntSummaryStatistics callCounts = replays.stream()
+                    .mapToInt(replay -> replay.getOrDefault(endpoint, 0))
+                    .summaryStatistics();
+
+            return callCounts.getMax() + (callCounts.getMax() - callCounts.getMin());
+        });
+
+        return budget;
+    }
+
+    /**
+     * Imports all files of the scenario in the order of their numeric prefixes, like the ITs do. Import errors are
+     * part of some scenarios, the calls until the error count as well.
+     */
+    private SortedMap<String, Integer> replay(String scenario) {
+        SIMULATOR.reset();
+
+        File scenarioDirectory = ResourceLoader.loadResource("import-files/" + scenario);
+        KeycloakImport keycloakImport = keycloakImportProvider.readRealmImportsFromDirectory(scenarioDirectory);
+
+        keycloakImport.getRealmImports()
+                .entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByKey(new ImportFileNameComparator()))
+                .forEach(realmImport -> doImport(scenario, realmImport.getKey(), realmImport.getValue()));
+
+        return SIMULATOR.getCallCounts();
+    }
+
+    private void doImport(String scenario, String fileName, RealmImport realmImport) {
+        try {
+            realmImportService.doImport(realmImport);
+        } catch (RuntimeException e) {
+            logger.debug("Import of '{}/{}' failed: {}", scenario, fileName, e.getMessage());
+        } finally {
+            keycloakProvider.close();
+        }
+    }
+}
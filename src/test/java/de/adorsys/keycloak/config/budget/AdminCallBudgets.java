@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.budget;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Admin API call budgets per scenario, stored as <code>endpoint=calls</code> properties files
+ */
+class AdminCallBudgets {
+    private static final Logger logger = LoggerFactory.getLogger(AdminCallBudgets.class);
+
+    private static final String RESOURCE_DIRECTORY = "admin-call-budgets";
+    private static final Path RECORD_DIRECTORY = Paths.get("src", "test", "resources", RESOURCE_DIRECTORY);
+
+    private final boolean record;
+
+    AdminCallBudgets(boolean record) {
+        this.record = record;
+    }
+
+    /**
+     * @return one line per endpoint with more calls than budgeted, empty if the scenario is within its budget
+     */
+    List<String> check(String scenario, SortedMap<String, Integer> callCounts) {
+        if (record) {
+            write(scenario, callCounts);
+            return new ArrayList<>();
+        }
+
+        SortedMap<String, Integer> budget = load(scenario);
+        if (budget == null) {
+            List<String> missingBudget = new ArrayList<>();
+            missingBudget.add("No budget recorded, run with -Dadmin-call-budgets.record=true");
+            return missingBudget;
+        }
+
+        List<String> exceeded = new ArrayList<>();
+        List<String> undercut = new ArrayList<>();
+
+        TreeSet<String> endpoints = new TreeSet<>(budget.keySet());
+        endpoints.addAll(callCounts.keySet());
+        for (String endpoint : endpoints) {
+            int budgeted = budget.getOrDefault(endpoint, 0);
+            int actual = callCounts.getOrDefault(endpoint, 0);
+
+            if (actual > budgeted) {
+                exceeded.add(diffLine('+', endpoint, budgeted, actual));
+            } else if (actual < budgeted) {
+                undercut.add(diffLine('-', endpoint, budgeted, actual));
+            }
+        }
+
+        if (!exceeded.isEmpty()) {
+            exceeded.add(0, String.format("  %-80s %8s %8s", "endpoint", "budget", "actual"));
+        }
+        if (exceeded.isEmpty() && !undercut.isEmpty()) {
+            logger.info(
+                    "Scenario '{}' needs less admin calls than budgeted, consider to record the new budget:\n{}",
+                    scenario, String.join("\n", undercut)
+            );
+        }
+
+        return exceeded;
+    }
+
+    private static String diffLine(char sign, String endpoint, int budgeted, int actual) {
+        return String.format("%c %-80s %8d %8d (%+d)", sign, endpoint, budgeted, actual, actual - budgeted);
+    }
+
+    private SortedMap<String, Integer> load(String scenario) {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(RESOURCE_DIRECTORY + "/" + scenario + ".properties")) {
+            if (inputStream == null) {
+                return null;
+            }
+
+            Properties properties = new Properties();
+            properties.load(inputStream);
+
+            SortedMap<String, Integer> budget = new TreeMap<>();
+            properties.stringPropertyNames().forEach(endpoint -> budget.put(endpoint, Integer.parseInt(properties.getProperty(endpoint).trim())));
+            return budget;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the budget sorted by endpoint, so re-recording a budget gives a readable diff
+     */
+    private void write(String scenario, SortedMap<String, Integer> callCounts) {
+        List<String> lines = new ArrayList<>();
+        lines.add("# Admin API calls of the '" + scenario + "' import scenario, recorded by AdminCallBudgetTest");
+        for (Map.Entry<String, Integer> callCount : callCounts.entrySet()) {
+            lines.add(callCount.getKey().replace(" ", "\\ ") + "=" + callCount.getValue());
+        }
+
+        try {
+            Files.createDirectories(RECORD_DIRECTORY);
+            Files.write(RECORD_DIRECTORY.resolve(scenario + ".properties"), lines, StandardCharsets.ISO_8859_1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        logger.info("Recorded admin call budget of scenario '{}'", scenario);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.budget;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Orders import files by their numeric prefix, e.g. <code>0_</code>, <code>0.1_</code>, <code>4_1_</code>,
+ * <code>10_</code>, like the ITs import them
+ */
+class ImportFileNameComparator implements Comparator<String>, Serializable {
+    private static final Pattern NUMERIC_PREFIX = Pattern.compile("^\\d+(?:[._]\\d+)*");
+
+    @Override
+    public int compare(String first, String second) {
+        List<Integer> firstPrefix = numericPrefix(first);
+        List<Integer> secondPrefix = numericPrefix(second);
+
+        for (int index = 0; index < Math.min(firstPrefix.size(), secondPrefix.size()); index++) {
+            int result = Integer.compare(firstPrefix.get(index), secondPrefix.get(index));
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        int result = Integer.compare(firstPrefix.size(), secondPrefix.size());
+        return result != 0 ? result : first.compareTo(second);
+    }
+
+    private static List<Integer> numericPrefix(String fileName) {
+        List<Integer> prefix = new ArrayList<>();
+
+        Matcher matcher = NUMERIC_PREFIX.matcher(fileName);
+        if (matcher.find()) {
+            for (String number : matcher.group().split("[._]")) {
+                prefix.add(Integer.parseInt(number));
+            }
+        }
+
+        return prefix;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+
+public class ImportEventsTest {
+    @Test
+    public void shouldNotCreateEventsWithoutRecording() {
+        assertThat(ImportEvents.realmImport("simple"), sameInstance(ImportEvent.NONE));
+        assertThat(ImportEvents.adminCall("simple", "users", "GET", "/auth/admin/realms/simple/users"), sameInstance(ImportEvent.NONE));
+    }
+
+    @Test
+    public void shouldRecordEvents(@TempDir Path tempDir) throws IOException {
+        Path recordingPath = tempDir.resolve("import.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("de.adorsys.keycloak.config.RealmImport");
+            recording.enable("de.adorsys.keycloak.config.Diff");
+            recording.start();
+
+            ImportEvent realmImport = ImportEvents.realmImport("simple");
+            ImportEvents.deepEquals(new UserRepresentation(), new UserRepresentation());
+            realmImport.end("updated");
+
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath)
+                .stream()
+                .filter(event -> event.getEventType().getName().startsWith("de.adorsys.keycloak.config."))
+                .collect(Collectors.toList());
+
+        assertThat(events.size(), is(2));
+
+        RecordedEvent realmImportEvent = findEvent(events, "de.adorsys.keycloak.config.RealmImport");
+        assertThat(realmImportEvent.getString("realm"), is("simple"));
+        assertThat(realmImportEvent.getString("status"), is("updated"));
+
+        RecordedEvent diffEvent = findEvent(events, "de.adorsys.keycloak.config.Diff");
+        assertThat(diffEvent.getString("type"), is("UserRepresentation"));
+        assertThat(diffEvent.getString("result"), is("equal"));
+    }
+
+    private RecordedEvent findEvent(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No event " + name));
+    }
+}
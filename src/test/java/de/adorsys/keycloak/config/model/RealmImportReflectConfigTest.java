@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.keycloak.common.Version;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+
+/**
+ * The native image binds import files to {@link RealmImport} by reflection. Every type reachable from it needs an entry
+ * in the reflect-config.json of the keycloak version, otherwise its properties are silently dropped.
+ */
+public class RealmImportReflectConfigTest {
+    private static final String REFLECT_CONFIG = "META-INF/native-image/" + Version.VERSION_KEYCLOAK + "/reflect-config.json";
+
+    @Test
+    public void shouldRegisterAllTypesReachableFromRealmImport() throws IOException {
+        Map<String, JsonNode> reflectConfig = readReflectConfig();
+
+        Set<String> missing = new TreeSet<>();
+        for (Class<?> type : reachableTypes(RealmImport.class)) {
+            JsonNode entry = reflectConfig.get(type.getName());
+
+            boolean instantiable = !type.isEnum() && !Modifier.isAbstract(type.getModifiers());
+            if (entry == null
+                    || !entry.path("allDeclaredFields").asBoolean()
+                    || !entry.path("allDeclaredMethods").asBoolean()
+                    || instantiable && !entry.path("allDeclaredConstructors").asBoolean()) {
+                missing.add(type.getName());
+            }
+        }
+
+        assertThat("Types without complete reflection metadata in " + REFLECT_CONFIG, missing, empty());
+    }
+
+    private static Map<String, JsonNode> readReflectConfig() throws IOException {
+        Map<String, JsonNode> entries = new HashMap<>();
+
+        try (InputStream inputStream = RealmImportReflectConfigTest.class.getClassLoader().getResourceAsStream(REFLECT_CONFIG)) {
+            new ObjectMapper().readTree(inputStream).forEach(entry -> entries.put(entry.path("name").asText(), entry));
+        }
+
+        return entries;
+    }
+
+    private static Set<Class<?>> reachableTypes(Class<?> root) {
+        Set<Class<?>> reachable = new LinkedHashSet<>();
+        Deque<Type> queue = new ArrayDeque<>();
+        queue.add(root);
+
+        while (!queue.isEmpty()) {
+            Type type = queue.poll();
+
+            if (type instanceof ParameterizedType) {
+                queue.add(((ParameterizedType) type).getRawType());
+                queue.addAll(Arrays.asList(((ParameterizedType) type).getActualTypeArguments()));
+            } else if (type instanceof WildcardType) {
+                queue.addAll(Arrays.asList(((WildcardType) type).getUpperBounds()));
+            } else if (type instanceof GenericArrayType) {
+                queue.add(((GenericArrayType) type).getGenericComponentType());
+            } else if (type instanceof Class && ((Class<?>) type).isArray()) {
+                queue.add(((Class<?>) type).getComponentType());
+            } else if (type instanceof Class && isBoundType((Class<?>) type) && reachable.add((Class<?>) type)) {
+                Class<?> clazz = (Class<?>) type;
+
+                queue.add(clazz.getGenericSuperclass());
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        queue.add(field.getGenericType());
+                    }
+                }
+            }
+        }
+
+        return reachable;
+    }
+
+    private static boolean isBoundType(Class<?> type) {
+        String name = type.getName();
+
+        return name.startsWith("org.keycloak.") || name.startsWith("de.adorsys.keycloak.config.model.");
+    }
+}
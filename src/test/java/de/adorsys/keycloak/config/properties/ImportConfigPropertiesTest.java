@@ -22,11 +22,17 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.core.Is.is;
 
 // From: https://tuhrig.de/testing-configurationproperties-in-spring-boot/
@@ -37,6 +43,22 @@ import static org.hamcrest.core.Is.is;
         "import.cache-key=custom",
         "import.force=true",
         "import.path=other",
+        "import.checksum-store=file",
+        "import.checksum-store-path=other/checksums.properties",
+        "import.parallelism=2",
+        "import.report-path=other/report.json",
+        "import.trace-path=other/trace.json",
+        "import.bulk-size=100",
+        "import.server-port=8081",
+        "import.server-address=0.0.0.0",
+        "import.server-token=secret",
+        "import.max-in-flight=16",
+        "import.virtual-threads=true",
+        "import.include-sections=users,groups",
+        "import.exclude-sections=groups",
+        "import.shard-index=1",
+        "import.shard-count=4",
+        "import.shard-wait-timeout=60",
 })
 public class ImportConfigPropertiesTest {
 
@@ -48,6 +70,43 @@ public class ImportConfigPropertiesTest {
         assertThat(properties.getPath(), is("other"));
         assertThat(properties.isForce(), is(true));
         assertThat(properties.getCacheKey(), is("custom"));
+        assertThat(properties.getChecksumStore(), is("file"));
+        assertThat(properties.getChecksumStorePath(), is("other/checksums.properties"));
+        assertThat(properties.getParallelism(), is(2));
+        assertThat(properties.getReportPath(), is("other/report.json"));
+        assertThat(properties.getTracePath(), is("other/trace.json"));
+        assertThat(properties.getBulkSize(), is(100));
+        assertThat(properties.getServerPort(), is(8081));
+        assertThat(properties.getServerAddress(), is("0.0.0.0"));
+        assertThat(properties.getServerToken(), is("secret"));
+        assertThat(properties.isServerMode(), is(true));
+        assertThat(properties.getMaxInFlight(), is(16));
+        assertThat(properties.isVirtualThreads(), is(true));
+        assertThat(properties.getIncludeSections(), contains("users", "groups"));
+        assertThat(properties.getExcludeSections(), contains("groups"));
+        assertThat(properties.isSectionIncluded("users"), is(true));
+        assertThat(properties.isSectionIncluded("groups"), is(false));
+        assertThat(properties.isSectionIncluded("clients"), is(false));
+        assertThat(properties.getShardIndex(), is(1));
+        assertThat(properties.getShardCount(), is(4));
+        assertThat(properties.isSharded(), is(true));
+        assertThat(properties.isLeaderShard(), is(false));
+        assertThat(properties.getIncludedSections(), contains("users"));
+        assertThat(properties.getShardWaitTimeout(), is(60));
+        assertThat(properties.getChecksumKey(), is("custom-shard-1-of-4-sections-users"));
+        assertThat(properties.getLeaderChecksumKey(), is("custom-shard-0-of-4-sections-users"));
+    }
+
+    @Test
+    public void shouldRejectUnknownSections() {
+        new ApplicationContextRunner()
+                .withInitializer(new ConfigFileApplicationContextInitializer())
+                .withUserConfiguration(TestConfiguration.class)
+                .withPropertyValues("import.exclude-sections=flows")
+                .run(context -> {
+                    assertThat(context.getStartupFailure(), notNullValue());
+                    assertThat(NestedExceptionUtils.getMostSpecificCause(context.getStartupFailure()).getMessage(), containsString("accept only the sections"));
+                });
     }
 
     @EnableConfigurationProperties(ImportConfigProperties.class)
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package de.adorsys.keycloak.config.provider;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ImportFileFormatTest {
+
+    @Test
+    public void shouldDetectFormatByExtension() throws IOException {
+        assertThat(ImportFileFormat.detect("realm.yml", stream('{')), is(ImportFileFormat.YAML));
+        assertThat(ImportFileFormat.detect("realm.cbor", stream(0xA1)), is(ImportFileFormat.CBOR));
+    }
+
+    @Test
+    public void shouldDetectBinaryFormatsByMagicBytes() throws IOException {
+        assertThat(ImportFileFormat.detect("realm", stream(':', ')', '\n', 0xFA)), is(ImportFileFormat.SMILE));
+        assertThat(ImportFileFormat.detect("realm", stream(0xD9, 0xD9, 0xF7, 0xA1)), is(ImportFileFormat.CBOR));
+    }
+
+    @Test
+    public void shouldNotDetectCborWithoutSelfDescribeTag() throws IOException {
+        assertThat(ImportFileFormat.detect("realm", stream(0xA1, 0x65, 'r')), is(ImportFileFormat.JSON));
+        assertThat(ImportFileFormat.detect("realm", stream(0xD9, 0x01, 0x00)), is(ImportFileFormat.JSON));
+    }
+
+    private static ByteArrayInputStream stream(int... bytes) {
+        byte[] content = new byte[bytes.length];
+
+        for (int i = 0; i < bytes.length; i++) {
+            content[i] = (byte) bytes[i];
+        }
+
+        return new ByteArrayInputStream(content);
+    }
+}
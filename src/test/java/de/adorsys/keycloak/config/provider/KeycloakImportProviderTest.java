@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.adorsys.keycloak.config.ImportFileConverter;
+import de.adorsys.keycloak.config.model.KeycloakImport;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.service.checksum.ChecksumService;
+import de.adorsys.keycloak.config.service.checksum.ChecksumStore;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
+import de.adorsys.keycloak.config.service.trace.TraceService;
+import de.adorsys.keycloak.config.util.ChecksumUtil;
+import de.adorsys.keycloak.config.util.ResourceLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class KeycloakImportProviderTest {
+    private static final String CREATE_SIMPLE_REALM_CHECKSUM = "6292be0628c50ff8fc02bd4092f48a731133e4802e158e7bc2ba174524b4ccf1";
+
+    private final ChecksumStore checksumStore = mock(ChecksumStore.class);
+
+    @Test
+    public void shouldReadChecksumOfRawFile() {
+        File configsFolder = ResourceLoader.loadResource("import-files/simple-realm");
+
+        KeycloakImport keycloakImport = buildProvider("default", false).readRealmImportsFromDirectory(configsFolder);
+
+        RealmImport realmImport = keycloakImport.getRealmImports().get("0_create_simple-realm.json");
+        assertThat(realmImport.getRealm(), is("simple"));
+        assertThat(realmImport.getChecksum(), is(CREATE_SIMPLE_REALM_CHECKSUM));
+
+        RealmImport updatedRealmImport = keycloakImport.getRealmImports().get("1_update_login-theme_to_simple-realm.json");
+        assertThat(updatedRealmImport.getChecksum(), is("4ac94d3adb91122979e80816a8a355a01f9c7c90a25b6b529bf2a572e1158b1c"));
+        verifyNoInteractions(checksumStore);
+    }
+
+    @Test
+    public void shouldSkipFilesOfUnchangedRealms() {
+        File configsFolder = ResourceLoader.loadResource("import-files/cli/dir");
+        String file1Checksum = buildProvider("default", false).readRealmImportsFromDirectory(configsFolder).getRealmImports().get("file1.json").getChecksum();
+        when(checksumStore.getAll(anyCollection())).thenReturn(Collections.singletonMap("file1", file1Checksum));
+
+        KeycloakImport keycloakImport = buildProvider(configsFolder.getPath(), false).get();
+
+        assertThat(keycloakImport.getRealmImports(), not(hasKey("file1.json")));
+        assertThat(keycloakImport.getRealmImports().get("file2.json").getRealm(), is("file2"));
+        verify(checksumStore).getAll(new HashSet<>(Arrays.asList("file1", "file2")));
+    }
+
+    @Test
+    public void shouldNotBindFilesOfUnchangedRealms(@TempDir Path tempDir) throws IOException {
+        byte[] unbindableImport = "{\"realm\": \"simple\", \"unknownProperty\": true}".getBytes(StandardCharsets.UTF_8);
+        Files.write(tempDir.resolve("simple-realm.json"), unbindableImport);
+        when(checksumStore.getAll(anyCollection())).thenReturn(Collections.singletonMap("simple", ChecksumUtil.checksum(unbindableImport)));
+
+        KeycloakImport keycloakImport = buildProvider(tempDir.toString(), false).get();
+
+        assertThat(keycloakImport.getRealmImports().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldReadAllFilesOnForce() {
+        File configsFolder = ResourceLoader.loadResource("import-files/cli/dir");
+
+        KeycloakImport keycloakImport = buildProvider(configsFolder.getPath(), true).get();
+
+        assertThat(keycloakImport.getRealmImports().size(), is(2));
+        verifyNoInteractions(checksumStore);
+    }
+
+    @Test
+    public void shouldPassRealmImportsOrderedByFileName(@TempDir Path tempDir) throws IOException {
+        for (int i = 9; i >= 0; i--) {
+            Files.write(tempDir.resolve(i + "_realm.json"), ("{\"realm\": \"realm" + i + "\"}").getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<String> realms = new ArrayList<>();
+        buildProvider(tempDir.toString(), true).readRealmImports((fileName, realmImport) -> realms.add(realmImport.getRealm()));
+
+        assertThat(realms, contains("realm0", "realm1", "realm2", "realm3", "realm4", "realm5", "realm6", "realm7", "realm8", "realm9"));
+    }
+
+    @Test
+    public void shouldReadSmileFileDetectedByMagicBytes(@TempDir Path tempDir) throws IOException {
+        File jsonFile = ResourceLoader.loadResource("import-files/simple-realm/0_create_simple-realm.json");
+        File smileFile = ImportFileConverter.convertToSmile(jsonFile, tempDir.toFile());
+        File importFile = Files.move(smileFile.toPath(), tempDir.resolve("simple-realm")).toFile();
+
+        RealmImport realmImport = buildProvider("default", false)
+                .readRealmImportsFromDirectory(tempDir.toFile())
+                .getRealmImports()
+                .get("simple-realm");
+
+        assertThat(realmImport.getRealm(), is("simple"));
+        assertThat(realmImport.isEnabled(), is(true));
+        assertThat(realmImport.getChecksum(), is(ChecksumUtil.checksum(Files.readAllBytes(importFile.toPath()))));
+    }
+
+    @Test
+    public void shouldNotConvertFileIntoItself(@TempDir Path tempDir) throws IOException {
+        Path smileFile = tempDir.resolve("simple-realm.smile");
+        Files.write(smileFile, new byte[]{':', ')', '\n'});
+
+        assertThrows(IOException.class, () -> ImportFileConverter.convertToSmile(smileFile.toFile(), tempDir.toFile()));
+        assertThat(Files.size(smileFile), is(3L));
+    }
+
+    @Test
+    public void shouldReadYamlFile(@TempDir Path tempDir) throws IOException {
+        Path importFile = tempDir.resolve("simple-realm.yaml");
+        Files.write(importFile, "enabled: true\nrealm: simple\n".getBytes(StandardCharsets.UTF_8));
+
+        KeycloakImport keycloakImport = buildProvider(tempDir.toString(), false).get();
+
+        RealmImport realmImport = keycloakImport.getRealmImports().get("simple-realm.yaml");
+        assertThat(realmImport.getRealm(), is("simple"));
+        assertThat(realmImport.getChecksum(), is(ChecksumUtil.checksum("enabled: true\nrealm: simple\n")));
+    }
+
+    private KeycloakImportProvider buildProvider(String path, boolean force) {
+        ImportConfigProperties importConfigProperties = new ImportConfigProperties(
+                path, force, "default", "realm", "checksums.properties", 2, null, null, 0, 0, "127.0.0.1", null, 1, false, null, null, 0, 1, 0
+        );
+
+        ImportReportService importReportService = new ImportReportService(importConfigProperties, new TraceService(importConfigProperties));
+
+        return new KeycloakImportProvider(new ObjectMapper(), importConfigProperties, new ChecksumService(checksumStore, importReportService));
+    }
+}
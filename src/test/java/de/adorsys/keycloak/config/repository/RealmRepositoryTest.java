@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package de.adorsys.keycloak.config.repository;
+
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+public class RealmRepositoryTest {
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+
+    private static final String GET_REALM = "GET /admin/realms/{realm}";
+
+    @Autowired
+    RealmRepository realmRepository;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+    }
+
+    @BeforeEach
+    public void setup() {
+        SIMULATOR.reset();
+        realmRepository.forgetAll();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        keycloakProvider.close();
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @Test
+    public void shouldAnswerFromRealmListing() {
+        realmRepository.create(realm("listed"));
+        realmRepository.getAll();
+
+        SIMULATOR.resetCallCounts();
+
+        assertThat(realmRepository.exists("listed"), is(true));
+        assertThat(realmRepository.tryToLoadRealm("listed").isPresent(), is(true));
+        assertThat(SIMULATOR.getCallCount(GET_REALM), is(0));
+    }
+
+    @Test
+    public void shouldLoadRealmOnceUntilUpdated() {
+        assertThat(realmRepository.exists("realm"), is(false));
+        realmRepository.create(realm("realm"));
+
+        SIMULATOR.resetCallCounts();
+
+        assertThat(realmRepository.exists("realm"), is(true));
+        assertThat(realmRepository.exists("realm"), is(true));
+        assertThat(SIMULATOR.getCallCount(GET_REALM), is(1));
+
+        RealmRepresentation realmToUpdate = realm("realm");
+        realmToUpdate.setDisplayName("updated");
+        realmRepository.update(realmToUpdate);
+
+        assertThat(realmRepository.tryToLoadRealm("realm").get().getDisplayName(), is("updated"));
+        assertThat(SIMULATOR.getCallCount(GET_REALM), is(2));
+
+        realmRepository.forget("realm");
+        realmRepository.exists("realm");
+
+        assertThat(SIMULATOR.getCallCount(GET_REALM), is(3));
+    }
+
+    private static RealmRepresentation realm(String name) {
+        RealmRepresentation realm = new RealmRepresentation();
+        realm.setRealm(name);
+        realm.setEnabled(true);
+
+        return realm;
+    }
+}
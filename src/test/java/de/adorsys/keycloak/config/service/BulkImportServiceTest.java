@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.benchmark.RealmImportGenerator;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.repository.ClientRepository;
+import de.adorsys.keycloak.config.repository.GroupRepository;
+import de.adorsys.keycloak.config.repository.RoleRepository;
+import de.adorsys.keycloak.config.repository.UserRepository;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.core.Is.is;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+@TestPropertySource(properties = "import.bulk-size=2")
+public class BulkImportServiceTest {
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+
+    private static final String REALM = "bulk";
+    private static final String PARTIAL_IMPORT = "POST /admin/realms/{realm}/partialImport";
+
+    @Autowired
+    RealmImportService realmImportService;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    GroupRepository groupRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    RoleRepository roleRepository;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+    }
+
+    @BeforeEach
+    public void setup() {
+        SIMULATOR.reset();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        keycloakProvider.close();
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @Test
+    public void shouldCreateUsersAndGroupsInChunks() {
+        realmImportService.doImport(generator().generate());
+
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms/{realm}/users"), is(0));
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms/{realm}/groups"), is(0));
+        assertThat(SIMULATOR.getCallCount(PARTIAL_IMPORT), is(3 + 2));
+
+        assertUsersWithRoles();
+
+        GroupRepresentation group = groupRepository.getGroupByName(REALM, "group-0");
+        assertThat(group.getRealmRoles(), contains("role-0000"));
+        assertThat(group.getSubGroups().size(), is(3));
+    }
+
+    @Test
+    public void shouldCreateEntitiesOneByOneIfChunkFails() {
+        SIMULATOR.failNext(PARTIAL_IMPORT, 500, 1);
+
+        realmImportService.doImport(generator().generate());
+
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms/{realm}/users"), is(2));
+        assertUsersWithRoles();
+    }
+
+    @Test
+    public void shouldCreateNewClientsInChunks() {
+        realmImportService.doImport(generator().users(0).groups(0, 0).clients(0, 0).generate());
+        realmImportService.doImport(generator().users(0).groups(0, 0).clients(3, 0).generate());
+
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms/{realm}/clients"), is(0));
+        assertThat(SIMULATOR.getCallCount(PARTIAL_IMPORT), is(2));
+        assertThat(clientRepository.getClient(REALM, "client-0002").getClientId(), is("client-0002"));
+    }
+
+    private void assertUsersWithRoles() {
+        for (int index = 0; index < 5; index++) {
+            String username = String.format("user-%07d", index);
+
+            assertThat(userRepository.findUser(REALM, username).getUsername(), is(username));
+            assertThat(roleRepository.getUserRealmLevelRoles(REALM, username), contains(String.format("role-%04d", index % 4)));
+            assertThat(
+                    roleRepository.getUserClientLevelRoles(REALM, username, String.format("client-%04d", index % 2)),
+                    contains(String.format("client-role-%03d", index % 2))
+            );
+        }
+    }
+
+    private static RealmImportGenerator generator() {
+        return new RealmImportGenerator()
+                .realm(REALM)
+                .users(5)
+                .groups(2, 3)
+                .realmRoles(4, 0)
+                .clients(2, 2)
+                .flows(0)
+                .components(0);
+    }
+}
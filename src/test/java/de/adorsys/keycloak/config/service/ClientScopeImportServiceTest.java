@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.benchmark.RealmImportGenerator;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.repository.ClientScopeRepository;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.ClientScopeRepresentation;
+import org.keycloak.representations.idm.ProtocolMapperRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+public class ClientScopeImportServiceTest {
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+
+    private static final String REALM = "client-scopes";
+    private static final String PROTOCOL_MAPPER = "/admin/realms/{realm}/client-scopes/{id}/protocol-mappers/models";
+
+    @Autowired
+    RealmImportService realmImportService;
+
+    @Autowired
+    ClientScopeImportService clientScopeImportService;
+
+    @Autowired
+    ClientScopeRepository clientScopeRepository;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+    }
+
+    @BeforeEach
+    public void setup() {
+        SIMULATOR.reset();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        keycloakProvider.close();
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @Test
+    public void shouldSendOnlyChangedProtocolMappers() {
+        realmImportService.doImport(generator().generate());
+
+        clientScopeImportService.importClientScopes(withClientScope(null));
+        clientScopeImportService.importClientScopes(withClientScope(Arrays.asList(
+                protocolMapper("unchanged", "a"),
+                protocolMapper("changed", "a"),
+                protocolMapper("removed", "a")
+        )));
+
+        SIMULATOR.resetCallCounts();
+        clientScopeImportService.importClientScopes(withClientScope(Arrays.asList(
+                protocolMapper("unchanged", "a"),
+                protocolMapper("changed", "b"),
+                protocolMapper("added", "a")
+        )));
+
+        assertThat(SIMULATOR.getCallCount("GET /admin/realms/{realm}/client-scopes"), is(1));
+        assertThat(SIMULATOR.getCallCount("POST " + PROTOCOL_MAPPER), is(1));
+        assertThat(SIMULATOR.getCallCount("PUT " + PROTOCOL_MAPPER + "/{model}"), is(1));
+        assertThat(SIMULATOR.getCallCount("DELETE " + PROTOCOL_MAPPER + "/{model}"), is(1));
+
+        ClientScopeRepresentation clientScope = clientScopeRepository.getClientScopes(REALM).stream()
+                .filter(existingClientScope -> existingClientScope.getName().equals("my-scope"))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+
+        Map<String, ProtocolMapperRepresentation> protocolMappers = clientScope.getProtocolMappers().stream()
+                .collect(Collectors.toMap(ProtocolMapperRepresentation::getName, Function.identity()));
+
+        assertThat(protocolMappers.keySet(), containsInAnyOrder("unchanged", "changed", "added"));
+        assertThat(protocolMappers.get("changed").getConfig().get("claim.name"), is("b"));
+    }
+
+    private static RealmImport withClientScope(List<ProtocolMapperRepresentation> protocolMappers) {
+        ClientScopeRepresentation clientScope = new ClientScopeRepresentation();
+        clientScope.setName("my-scope");
+        clientScope.setProtocol("openid-connect");
+        clientScope.setProtocolMappers(protocolMappers);
+
+        RealmImport realmImport = generator().generate();
+        realmImport.setClientScopes(Collections.singletonList(clientScope));
+
+        return realmImport;
+    }
+
+    private static ProtocolMapperRepresentation protocolMapper(String name, String claimName) {
+        ProtocolMapperRepresentation protocolMapper = new ProtocolMapperRepresentation();
+        protocolMapper.setName(name);
+        protocolMapper.setProtocol("openid-connect");
+        protocolMapper.setProtocolMapper("oidc-usermodel-attribute-mapper");
+        protocolMapper.setConfig(Collections.singletonMap("claim.name", claimName));
+
+        return protocolMapper;
+    }
+
+    private static RealmImportGenerator generator() {
+        return new RealmImportGenerator()
+                .realm(REALM)
+                .users(0)
+                .groups(0, 0)
+                .realmRoles(0, 0)
+                .clients(0, 0)
+                .flows(0)
+                .components(0);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.service.trace.TraceService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class ConcurrentImportServiceTest {
+    private static final List<Integer> ENTITIES = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+
+    @Test
+    public void shouldImportOnCallingThreadIfDisabled() {
+        ConcurrentImportService service = service(4, false);
+        List<Integer> imported = new ArrayList<>();
+        Thread caller = Thread.currentThread();
+
+        service.forEach(ENTITIES, entity -> {
+            assertThat(Thread.currentThread(), is(caller));
+            imported.add(entity);
+        });
+
+        assertThat(service.isConcurrent(), is(false));
+        assertThat(imported, is(ENTITIES));
+    }
+
+    @Test
+    public void shouldImportOneAfterTheOtherWithoutVirtualThreads() {
+        assumeFalse(hasVirtualThreads());
+
+        ConcurrentImportService service = service(4, true);
+        List<Integer> imported = new ArrayList<>();
+
+        service.forEach(ENTITIES, imported::add);
+
+        assertThat(service.isConcurrent(), is(false));
+        assertThat(imported, is(ENTITIES));
+    }
+
+    @Test
+    public void shouldImportAtMostMaxInFlightEntitiesAtOnce() {
+        ConcurrentImportService service = concurrentService(4);
+        List<Integer> imported = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        service.forEach(ENTITIES, entity -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleep();
+            imported.add(entity);
+            inFlight.decrementAndGet();
+        });
+
+        assertThat(service.isConcurrent(), is(true));
+        assertThat(maxInFlight.get(), is(lessThanOrEqualTo(4)));
+        assertThat(imported, containsInAnyOrder(ENTITIES.toArray()));
+    }
+
+    @Test
+    public void shouldThrowFirstFailureAfterAllStartedEntitiesAreDone() {
+        ConcurrentImportService service = concurrentService(2);
+        List<Integer> imported = Collections.synchronizedList(new ArrayList<>());
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> service.forEach(Arrays.asList(0, 1, 2), entity -> {
+            sleep();
+            if (entity > 0) throw new IllegalStateException("entity " + entity);
+            imported.add(entity);
+        }));
+
+        assertThat(thrown.getMessage(), is("entity 1"));
+        assertThat(imported, contains(0));
+    }
+
+    @Test
+    public void shouldImportOneAfterTheOtherOnDuplicateKeys() {
+        ConcurrentImportService service = concurrentService(4);
+        List<String> entities = Arrays.asList("client-a", "client-b", "client-a", "client-c");
+        List<String> imported = new ArrayList<>();
+        Thread caller = Thread.currentThread();
+
+        service.forEach(entities, entity -> entity, entity -> {
+            assertThat(Thread.currentThread(), is(caller));
+            imported.add(entity);
+        });
+
+        assertThat(service.isConcurrent(), is(true));
+        assertThat(imported, is(entities));
+    }
+
+    @Test
+    public void shouldImportConcurrentlyOnUniqueKeys() {
+        ConcurrentImportService service = concurrentService(4);
+        List<String> entities = Arrays.asList("client-a", "client-b", "client-c");
+        List<String> imported = Collections.synchronizedList(new ArrayList<>());
+        Thread caller = Thread.currentThread();
+
+        service.forEach(entities, entity -> entity, entity -> {
+            assertThat(Thread.currentThread(), is(not(caller)));
+            imported.add(entity);
+        });
+
+        assertThat(imported, containsInAnyOrder(entities.toArray()));
+    }
+
+    @Test
+    public void shouldDetectDuplicateKeys() {
+        assertThat(ConcurrentImportService.hasUniqueKeys(Arrays.asList("a", "b", "c"), entity -> entity), is(true));
+        assertThat(ConcurrentImportService.hasUniqueKeys(Arrays.asList("a", "B", "b"), entity -> entity), is(true));
+        assertThat(ConcurrentImportService.hasUniqueKeys(Arrays.asList("a", "B", "b"), String::toLowerCase), is(false));
+    }
+
+    private static ConcurrentImportService service(int maxInFlight, boolean virtualThreads) {
+        ImportConfigProperties importConfigProperties = new ImportConfigProperties(
+                "default", false, "default", "realm", "checksums.properties", 1, null, null, 0, 0, "127.0.0.1", null, maxInFlight, virtualThreads, null, null, 0, 1, 0
+        );
+
+        return new ConcurrentImportService(importConfigProperties, new TraceService(importConfigProperties));
+    }
+
+    // a platform thread pool stands in for virtual threads, so the concurrent path runs on every JDK
+    private static ConcurrentImportService concurrentService(int maxInFlight) {
+        ImportConfigProperties importConfigProperties = new ImportConfigProperties(
+                "default", false, "default", "realm", "checksums.properties", 1, null, null, 0, 0, "127.0.0.1", null, maxInFlight, true, null, null, 0, 1, 0
+        );
+
+        return new ConcurrentImportService(importConfigProperties, new TraceService(importConfigProperties), Executors::newCachedThreadPool);
+    }
+
+    private static boolean hasVirtualThreads() {
+        return Arrays.stream(Executors.class.getMethods())
+                .anyMatch(method -> method.getName().equals("newVirtualThreadPerTaskExecutor"));
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.benchmark.RealmImportGenerator;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.repository.GroupRepository;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+public class GroupImportServiceTest {
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+
+    private static final String REALM = "groups";
+    private static final String GROUPS = "/admin/realms/{realm}/groups";
+
+    @Autowired
+    RealmImportService realmImportService;
+
+    @Autowired
+    GroupImportService groupImportService;
+
+    @Autowired
+    GroupRepository groupRepository;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+    }
+
+    @BeforeEach
+    public void setup() {
+        SIMULATOR.reset();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        keycloakProvider.close();
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @Test
+    public void shouldNotReadCreatedGroupsBack() {
+        realmImportService.doImport(generator().groups(0, 0).generate());
+
+        SIMULATOR.resetCallCounts();
+        groupImportService.importGroups(generator().groups(2, 2).generate());
+
+        assertThat(SIMULATOR.getCallCount("POST " + GROUPS), is(2));
+        assertThat(SIMULATOR.getCallCount("POST " + GROUPS + "/{id}/children"), is(4));
+        assertThat(SIMULATOR.getCallCount("POST " + GROUPS + "/{id}/role-mappings/realm"), is(6));
+        assertThat(SIMULATOR.getCallCount("GET " + GROUPS + "/{id}"), is(0));
+
+        GroupRepresentation group = groupRepository.getGroupByName(REALM, "group-0");
+
+        assertThat(group.getSubGroups().stream().map(GroupRepresentation::getName).collect(Collectors.toList()),
+                containsInAnyOrder("group-0-0", "group-0-1"));
+        assertThat(group.getRealmRoles(), containsInAnyOrder("role-0000"));
+    }
+
+    private static RealmImportGenerator generator() {
+        return new RealmImportGenerator()
+                .realm(REALM)
+                .users(0)
+                .realmRoles(2, 0)
+                .clients(0, 0)
+                .flows(0)
+                .components(0);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.benchmark.RealmImportGenerator;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.repository.IdentityProviderRepository;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.IdentityProviderMapperRepresentation;
+import org.keycloak.representations.idm.IdentityProviderRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+public class IdentityProviderImportServiceTest {
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+
+    private static final String REALM = "identity-providers";
+    private static final String INSTANCES = "/admin/realms/{realm}/identity-provider/instances";
+
+    @Autowired
+    RealmImportService realmImportService;
+
+    @Autowired
+    IdentityProviderImportService identityProviderImportService;
+
+    @Autowired
+    IdentityProviderRepository identityProviderRepository;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+    }
+
+    @BeforeEach
+    public void setup() {
+        SIMULATOR.reset();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        keycloakProvider.close();
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @Test
+    public void shouldWriteOnlyChangedIdentityProvidersAndMappers() {
+        RealmImport realmImport = generator().generate();
+        realmImport.setIdentityProviders(Arrays.asList(
+                identityProvider("unchanged", "a"),
+                identityProvider("changed", "a")
+        ));
+        realmImport.setIdentityProviderMappers(Arrays.asList(
+                mapper("unchanged", "unchanged", "a"),
+                mapper("changed", "unchanged", "a")
+        ));
+        realmImportService.doImport(realmImport);
+
+        RealmImport realmImportToUpdate = generator().generate();
+        realmImportToUpdate.setIdentityProviders(Arrays.asList(
+                identityProvider("unchanged", "a"),
+                identityProvider("changed", "b"),
+                identityProvider("added", "a")
+        ));
+        realmImportToUpdate.setIdentityProviderMappers(Arrays.asList(
+                mapper("unchanged", "unchanged", "a"),
+                mapper("changed", "unchanged", "b"),
+                mapper("added", "unchanged", "a"),
+                mapper("added", "added", "a")
+        ));
+
+        SIMULATOR.resetCallCounts();
+        identityProviderImportService.doImport(realmImportToUpdate);
+
+        assertThat(SIMULATOR.getCallCount("GET " + INSTANCES), is(1));
+        assertThat(SIMULATOR.getCallCount("GET " + INSTANCES + "/{alias}"), is(0));
+        assertThat(SIMULATOR.getCallCount("POST " + INSTANCES), is(1));
+        assertThat(SIMULATOR.getCallCount("PUT " + INSTANCES + "/{alias}"), is(1));
+        assertThat(SIMULATOR.getCallCount("GET " + INSTANCES + "/{alias}/mappers"), is(1));
+        assertThat(SIMULATOR.getCallCount("POST " + INSTANCES + "/{alias}/mappers"), is(2));
+        assertThat(SIMULATOR.getCallCount("PUT " + INSTANCES + "/{alias}/mappers/{id}"), is(1));
+
+        Map<String, IdentityProviderRepresentation> identityProviders = identityProviderRepository.getIdentityProviders(REALM)
+                .stream()
+                .collect(Collectors.toMap(IdentityProviderRepresentation::getAlias, Function.identity()));
+
+        assertThat(identityProviders.keySet(), containsInAnyOrder("unchanged", "changed", "added"));
+        assertThat(identityProviders.get("changed").getConfig().get("clientId"), is("b"));
+
+        Map<String, IdentityProviderMapperRepresentation> mappers = identityProviderRepository.getIdentityProviderMappers(REALM, "unchanged")
+                .stream()
+                .collect(Collectors.toMap(IdentityProviderMapperRepresentation::getName, Function.identity()));
+
+        assertThat(mappers.keySet(), containsInAnyOrder("unchanged", "changed", "added"));
+        assertThat(mappers.get("changed").getConfig().get("claim"), is("b"));
+        assertThat(identityProviderRepository.getIdentityProviderMappers(REALM, "added").size(), is(1));
+    }
+
+    @Test
+    public void shouldWriteIdentityProviderWhenOnlyClientSecretIsRotated() {
+        RealmImport realmImport = generator().generate();
+        realmImport.setIdentityProviders(Arrays.asList(
+                identityProvider("rotated", "a", "old-secret"),
+                identityProvider("without-secret", "a", "stored-secret")
+        ));
+        realmImportService.doImport(realmImport);
+
+        RealmImport realmImportToUpdate = generator().generate();
+        realmImportToUpdate.setIdentityProviders(Arrays.asList(
+                identityProvider("rotated", "a", "new-secret"),
+                identityProvider("without-secret", "a")
+        ));
+
+        SIMULATOR.resetCallCounts();
+        identityProviderImportService.doImport(realmImportToUpdate);
+
+        assertThat(SIMULATOR.getCallCount("PUT " + INSTANCES + "/{alias}"), is(1));
+        assertThat(SIMULATOR.getIdentityProviderClientSecret(REALM, "rotated"), is("new-secret"));
+        assertThat(SIMULATOR.getIdentityProviderClientSecret(REALM, "without-secret"), is("stored-secret"));
+    }
+
+    private static IdentityProviderRepresentation identityProvider(String alias, String clientId, String clientSecret) {
+        IdentityProviderRepresentation identityProvider = identityProvider(alias, clientId);
+
+        Map<String, String> config = new HashMap<>(identityProvider.getConfig());
+        config.put("clientSecret", clientSecret);
+        identityProvider.setConfig(config);
+
+        return identityProvider;
+    }
+
+    private static IdentityProviderRepresentation identityProvider(String alias, String clientId) {
+        IdentityProviderRepresentation identityProvider = new IdentityProviderRepresentation();
+        identityProvider.setAlias(alias);
+        identityProvider.setProviderId("oidc");
+        identityProvider.setEnabled(true);
+        identityProvider.setConfig(Collections.singletonMap("clientId", clientId));
+
+        return identityProvider;
+    }
+
+    private static IdentityProviderMapperRepresentation mapper(String name, String alias, String claim) {
+        IdentityProviderMapperRepresentation mapper = new IdentityProviderMapperRepresentation();
+        mapper.setName(name);
+        mapper.setIdentityProviderAlias(alias);
+        mapper.setIdentityProviderMapper("oidc-user-attribute-idp-mapper");
+        mapper.setConfig(Collections.singletonMap("claim", claim));
+
+        return mapper;
+    }
+
+    private static RealmImportGenerator generator() {
+        return new RealmImportGenerator()
+                .realm(REALM)
+                .users(0)
+                .groups(0, 0)
+                .realmRoles(0, 0)
+                .clients(0, 0)
+                .flows(0)
+                .components(0);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.service.checksum.ChecksumService;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
+import de.adorsys.keycloak.config.service.trace.TraceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.RolesRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class RealmImportServiceTest {
+    private final RealmRepository realmRepository = mock(RealmRepository.class);
+    private final UserImportService userImportService = mock(UserImportService.class);
+    private final GroupImportService groupImportService = mock(GroupImportService.class);
+    private final ClientImportService clientImportService = mock(ClientImportService.class);
+    private final ChecksumService checksumService = mock(ChecksumService.class);
+
+    private RealmImportService realmImportService;
+    private RealmImport realmImport;
+
+    @BeforeEach
+    public void setup() {
+        realmImportService = createRealmImportService(null, null);
+
+        realmImport = new RealmImport();
+        realmImport.setRealm("realm");
+        realmImport.setClients(Collections.singletonList(new ClientRepresentation()));
+        realmImport.setUsers(Collections.singletonList(new UserRepresentation()));
+        realmImport.setGroups(Collections.singletonList(new GroupRepresentation()));
+
+        RolesRepresentation roles = new RolesRepresentation();
+        roles.setRealm(Collections.singletonList(new RoleRepresentation()));
+        realmImport.setRoles(roles);
+
+        when(realmRepository.get("realm")).thenReturn(new RealmRepresentation());
+    }
+
+    @Test
+    public void shouldReleaseSectionsOfFinishedPhasesOnUpdate() {
+        when(realmRepository.tryToLoadRealm("realm")).thenReturn(Optional.of(new RealmRepresentation()));
+
+        doAnswer(invocation -> {
+            assertThat(realmImport.getClients(), nullValue());
+            assertThat(realmImport.getRoles(), nullValue());
+            assertThat(realmImport.getUsers(), notNullValue());
+            return null;
+        }).when(groupImportService).importGroups(any());
+
+        doAnswer(invocation -> {
+            assertThat(realmImport.getGroups(), nullValue());
+            assertThat(realmImport.getUsers(), notNullValue());
+            return null;
+        }).when(userImportService).doImport(any());
+
+        realmImportService.doImport(realmImport);
+
+        assertReleased();
+    }
+
+    @Test
+    public void shouldReleaseSectionsOfFinishedPhasesOnCreate() {
+        when(realmRepository.tryToLoadRealm("realm")).thenReturn(Optional.empty());
+
+        doAnswer(invocation -> {
+            assertThat(realmImport.getClients(), nullValue());
+            assertThat(realmImport.getRoles(), nullValue());
+            assertThat(realmImport.getGroups(), notNullValue());
+            return null;
+        }).when(userImportService).doImport(any());
+
+        realmImportService.doImport(realmImport);
+
+        assertReleased();
+    }
+
+    @Test
+    public void shouldImportOnlySelectedSections() {
+        realmImportService = createRealmImportService(Collections.singletonList("users"), null);
+        when(realmRepository.tryToLoadRealm("realm")).thenReturn(Optional.of(new RealmRepresentation()));
+
+        realmImportService.doImport(realmImport);
+
+        verify(userImportService).doImport(realmImport);
+        verify(checksumService).doImport(realmImport);
+        verify(realmRepository, never()).update(any());
+        verifyNoInteractions(clientImportService, groupImportService);
+    }
+
+    private RealmImportService createRealmImportService(List<String> includeSections, List<String> excludeSections) {
+        ImportConfigProperties importConfigProperties = new ImportConfigProperties(
+                "default", true, "default", "realm", "checksums.properties", 1, null, null, 0, 0, "127.0.0.1", null, 1, false, includeSections, excludeSections, 0, 1, 0
+        );
+
+        return new RealmImportService(
+                importConfigProperties,
+                mock(KeycloakProvider.class),
+                realmRepository,
+                userImportService,
+                mock(RoleImportService.class),
+                clientImportService,
+                groupImportService,
+                mock(ClientScopeImportService.class),
+                mock(ComponentImportService.class),
+                mock(AuthenticationFlowsImportService.class),
+                mock(AuthenticatorConfigImportService.class),
+                mock(RequiredActionsImportService.class),
+                mock(CustomImportService.class),
+                mock(ScopeMappingImportService.class),
+                mock(IdentityProviderImportService.class),
+                checksumService,
+                new ImportReportService(importConfigProperties, new TraceService(importConfigProperties))
+        );
+    }
+
+    private void assertReleased() {
+        assertThat(realmImport.getClients(), nullValue());
+        assertThat(realmImport.getRoles(), nullValue());
+        assertThat(realmImport.getUsers(), nullValue());
+        assertThat(realmImport.getGroups(), nullValue());
+        assertThat(realmImport.getComponents(), nullValue());
+        assertThat(realmImport.getAuthenticationFlows(), empty());
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.benchmark.RealmImportGenerator;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.repository.ScopeMappingRepository;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.ScopeMappingRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+public class ScopeMappingImportServiceTest {
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+
+    private static final String REALM = "scope-mappings";
+    private static final String CLIENT_SCOPE_MAPPINGS = "/admin/realms/{realm}/clients/{id}/scope-mappings/realm";
+
+    @Autowired
+    RealmImportService realmImportService;
+
+    @Autowired
+    ScopeMappingImportService scopeMappingImportService;
+
+    @Autowired
+    ScopeMappingRepository scopeMappingRepository;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+    }
+
+    @BeforeEach
+    public void setup() {
+        SIMULATOR.reset();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        keycloakProvider.close();
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @Test
+    public void shouldSendOnlyChangedScopeMappingsAfterOnePartialExport() {
+        RealmImport realmImport = generator().generate();
+        realmImport.setScopeMappings(Arrays.asList(
+                clientScopeMapping("client-0000", "role-0000", "role-0001"),
+                clientScopeMapping("client-0001", "role-0002")
+        ));
+        realmImportService.doImport(realmImport);
+
+        RealmImport updatedRealmImport = generator().generate();
+        updatedRealmImport.setScopeMappings(Arrays.asList(
+                clientScopeMapping("client-0000", "role-0000", "role-0003"),
+                clientScopeMapping("client-0002", "role-0001")
+        ));
+
+        SIMULATOR.resetCallCounts();
+        scopeMappingImportService.doImport(updatedRealmImport);
+
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms/{realm}/partial-export"), is(1));
+        assertThat(SIMULATOR.getCallCount("GET " + CLIENT_SCOPE_MAPPINGS), is(0));
+        assertThat(SIMULATOR.getCallCount("POST " + CLIENT_SCOPE_MAPPINGS), is(2));
+        assertThat(SIMULATOR.getCallCount("DELETE " + CLIENT_SCOPE_MAPPINGS), is(2));
+
+        List<ScopeMappingRepresentation> scopeMappings = scopeMappingRepository.getScopeMappings(REALM);
+        assertThat(scopeMappings, hasSize(2));
+
+        for (ScopeMappingRepresentation scopeMapping : scopeMappings) {
+            if (scopeMapping.getClient().equals("client-0000")) {
+                assertThat(scopeMapping.getRoles(), containsInAnyOrder("role-0000", "role-0003"));
+            } else {
+                assertThat(scopeMapping.getClient(), is("client-0002"));
+                assertThat(scopeMapping.getRoles(), containsInAnyOrder("role-0001"));
+            }
+        }
+    }
+
+    private static ScopeMappingRepresentation clientScopeMapping(String client, String... roles) {
+        ScopeMappingRepresentation scopeMapping = new ScopeMappingRepresentation();
+        scopeMapping.setClient(client);
+        scopeMapping.setRoles(new HashSet<>(Arrays.asList(roles)));
+
+        return scopeMapping;
+    }
+
+    private static RealmImportGenerator generator() {
+        return new RealmImportGenerator()
+                .realm(REALM)
+                .users(0)
+                .groups(0, 0)
+                .realmRoles(4, 0)
+                .clients(3, 0)
+                .flows(0)
+                .components(0);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.benchmark.RealmImportGenerator;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.exception.ImportProcessingException;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.repository.UserRepository;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import de.adorsys.keycloak.config.util.CloneUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+@TestPropertySource(properties = {"import.shard-index=1", "import.shard-count=3", "import.shard-wait-timeout=1"})
+public class ShardedUserImportTest {
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+
+    private static final String REALM = "sharded";
+    private static final int USERS = 30;
+    private static final String LEADER_CHECKSUM_ATTRIBUTE = "de.adorsys.keycloak.config.import-checksum-default-shard-0-of-3";
+
+    @Autowired
+    RealmImportService realmImportService;
+
+    @Autowired
+    RealmRepository realmRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+    }
+
+    @BeforeEach
+    public void setup() {
+        SIMULATOR.reset();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        keycloakProvider.close();
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @Test
+    public void shouldImportOnlyUsersOfShard() {
+        RealmImport realmImport = generator().generate();
+        createRealmAsLeaderShard(realmImport, realmImport.getChecksum());
+
+        SIMULATOR.resetCallCounts();
+        realmImportService.doImport(realmImport);
+
+        int importedUsers = 0;
+        for (int index = 0; index < USERS; index++) {
+            String username = String.format("user-%07d", index);
+            boolean isInShard = Math.floorMod(username.hashCode(), 3) == 1;
+
+            boolean exists = userRepository.tryToFindUser(REALM, username).isPresent();
+            assertThat(username, exists, is(isInShard));
+            if (exists) importedUsers++;
+        }
+
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms/{realm}/users"), is(importedUsers));
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms/{realm}/roles"), is(0));
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms/{realm}/clients"), is(0));
+
+        RealmRepresentation realm = realmRepository.get(REALM);
+        assertThat(realm.getAttributes().containsKey("de.adorsys.keycloak.config.import-checksum-default-shard-1-of-3"), is(true));
+        assertThat(realm.getAttributes().containsKey("de.adorsys.keycloak.config.import-checksum-default"), is(false));
+    }
+
+    @Test
+    public void shouldNotCreateRealmOnOtherShards() {
+        ImportProcessingException thrown = assertThrows(
+                ImportProcessingException.class, () -> realmImportService.doImport(generator().generate())
+        );
+
+        assertThat(thrown.getMessage(), containsString("start it first or together with the other shards"));
+        assertThat(SIMULATOR.hasRealm(REALM), is(false));
+    }
+
+    @Test
+    public void shouldNotImportUsersBeforeLeaderShardImportedSameFile() {
+        RealmImport realmImport = generator().generate();
+        createRealmAsLeaderShard(realmImport, "checksum of another file");
+
+        assertThrows(ImportProcessingException.class, () -> realmImportService.doImport(realmImport));
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms/{realm}/users"), is(0));
+    }
+
+    @Test
+    public void shouldWaitForLeaderShard() throws InterruptedException {
+        RealmImport realmImport = generator().generate();
+        Thread leaderShard = new Thread(() -> {
+            sleep(300);
+            createRealmAsLeaderShard(realmImport, realmImport.getChecksum());
+        });
+
+        leaderShard.start();
+        realmImportService.doImport(realmImport);
+        leaderShard.join();
+
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms/{realm}/users"), is(greaterThan(0)));
+    }
+
+    private void createRealmAsLeaderShard(RealmImport realmImport, String leaderChecksum) {
+        RealmRepresentation realm = CloneUtil.deepClone(realmImport, RealmRepresentation.class, "users");
+        realm.setAttributes(new HashMap<>(Collections.singletonMap(LEADER_CHECKSUM_ATTRIBUTE, leaderChecksum)));
+
+        realmRepository.create(realm);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static RealmImportGenerator generator() {
+        return new RealmImportGenerator()
+                .realm(REALM)
+                .users(USERS)
+                .groups(0, 0)
+                .realmRoles(2, 0)
+                .clients(2, 2)
+                .flows(0)
+                .components(0);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service;
+
+import de.adorsys.keycloak.config.benchmark.RealmImportGenerator;
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.model.RealmImport;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.repository.RoleRepository;
+import de.adorsys.keycloak.config.simulator.KeycloakAdminSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+@TestPropertySource(properties = "import.max-in-flight=4")
+public class UserImportServiceTest {
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+
+    private static final String REALM = "pipelined";
+    private static final int USERS = 10;
+
+    @Autowired
+    RealmImportService realmImportService;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @Autowired
+    RoleRepository roleRepository;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+    }
+
+    @BeforeEach
+    public void setup() {
+        SIMULATOR.reset();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        keycloakProvider.close();
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @Test
+    public void shouldUpdateRolesOfExistingUsersFromPrefetchedLookups() {
+        realmImportService.doImport(generator().generate());
+
+        RealmImport realmImport = generator().generate();
+        for (UserRepresentation user : realmImport.getUsers()) {
+            user.setRealmRoles(Collections.singletonList("role-0003"));
+            user.getClientRoles().replaceAll((clientId, roles) -> Collections.emptyList());
+        }
+        realmImport.setChecksum("changed");
+
+        SIMULATOR.resetCallCounts();
+        realmImportService.doImport(realmImport);
+
+        assertThat(SIMULATOR.getCallCount("GET /admin/realms/{realm}/users/{id}/role-mappings/realm/composite"), is(USERS));
+
+        for (int index = 0; index < USERS; index++) {
+            String username = String.format("user-%07d", index);
+
+            assertThat(roleRepository.getUserRealmLevelRoles(REALM, username), contains("role-0003"));
+            assertThat(roleRepository.getUserClientLevelRoles(REALM, username, String.format("client-%04d", index % 2)), is(empty()));
+        }
+    }
+
+    @Test
+    public void shouldImportDuplicateUsernamesInOrder() {
+        realmImportService.doImport(generator().generate());
+
+        RealmImport realmImport = generator().generate();
+        List<UserRepresentation> users = new ArrayList<>(realmImport.getUsers());
+
+        UserRepresentation duplicate = generator().generate().getUsers().get(0);
+        duplicate.setRealmRoles(Collections.singletonList("role-0002"));
+        users.add(duplicate);
+        realmImport.setUsers(users);
+        realmImport.setChecksum("changed");
+
+        realmImportService.doImport(realmImport);
+
+        assertThat(roleRepository.getUserRealmLevelRoles(REALM, "user-0000000"), contains("role-0002"));
+    }
+
+    private static RealmImportGenerator generator() {
+        return new RealmImportGenerator()
+                .realm(REALM)
+                .users(USERS)
+                .groups(0, 0)
+                .realmRoles(4, 0)
+                .clients(2, 1)
+                .flows(0)
+                .components(0);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.checksum;
+
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.service.report.ImportReportService;
+import de.adorsys.keycloak.config.service.trace.TraceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.*;
+
+public class FileChecksumStoreTest {
+    private static final String CHECKSUM_ATTRIBUTE = "de.adorsys.keycloak.config.import-checksum-default";
+
+    @TempDir
+    Path tempDir;
+
+    private RealmRepository realmRepository;
+    private ImportConfigProperties importConfigProperties;
+
+    @BeforeEach
+    public void setup() {
+        realmRepository = mock(RealmRepository.class);
+        importConfigProperties = new ImportConfigProperties(
+                "default", false, "default", "file", tempDir.resolve("checksums.properties").toString(), 1, null, null, 0, 0, "127.0.0.1", null, 1, false, null, null, 0, 1, 0
+        );
+    }
+
+    @Test
+    public void shouldStoreChecksumWithoutRealmWrite() {
+        FileChecksumStore store = buildStore("http://localhost:8080");
+        store.verify("simple", Optional.of(realm("id-1", null)));
+        store.put("simple", "abc");
+
+        verifyNoInteractions(realmRepository);
+    }
+
+    @Test
+    public void shouldReadStoredChecksumWithoutRealmLookup() {
+        buildStore("http://localhost:8080").put("simple", "abc");
+
+        FileChecksumStore store = buildStore("http://localhost:8080");
+
+        assertThat(store.get("simple"), is(Optional.of("abc")));
+        assertThat(store.getAll(Collections.singletonList("simple")), is(Collections.singletonMap("simple", "abc")));
+        verifyNoInteractions(realmRepository);
+    }
+
+    @Test
+    public void shouldDropChecksumsOfDeletedRealm() {
+        FileChecksumStore store = buildStore("http://localhost:8080");
+        store.verify("simple", Optional.of(realm("id-1", null)));
+        store.put("simple", "abc");
+
+        when(realmRepository.tryToLoadRealm("simple")).thenReturn(Optional.empty());
+        buildStore("http://localhost:8080").verify("simple", Optional.empty());
+
+        assertThat(buildStore("http://localhost:8080").get("simple"), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldDropChecksumsOfRecreatedRealm() {
+        FileChecksumStore store = buildStore("http://localhost:8080");
+        store.verify("simple", Optional.of(realm("id-1", null)));
+        store.put("simple", "abc");
+
+        when(realmRepository.getAll()).thenReturn(Collections.singletonList(realm("id-2", null)));
+        buildStore("http://localhost:8080").verify("simple", Optional.of(realm("id-2", null)));
+        Map<String, String> checksums = buildStore("http://localhost:8080").getAll(Collections.singletonList("simple"));
+
+        assertThat(checksums.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldKeepChecksumsOfSameRealm() {
+        FileChecksumStore store = buildStore("http://localhost:8080");
+        store.verify("simple", Optional.of(realm("id-1", null)));
+        store.put("simple", "abc");
+
+        buildStore("http://localhost:8080").verify("simple", Optional.of(realm("id-1", null)));
+
+        assertThat(buildStore("http://localhost:8080").get("simple"), is(Optional.of("abc")));
+    }
+
+    @Test
+    public void shouldSeparateChecksumsByUrl() {
+        buildStore("http://localhost:8080").put("simple", "abc");
+
+        when(realmRepository.tryToLoadRealm("simple")).thenReturn(Optional.of(realm("id-1", null)));
+        Optional<String> checksum = buildStore("http://other:8080").get("simple");
+
+        assertThat(checksum, is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldFallbackToRealmAttribute() {
+        RealmRepresentation realm = realm("id-1", "def");
+        when(realmRepository.tryToLoadRealm("simple")).thenReturn(Optional.of(realm));
+
+        assertThat(buildStore("http://localhost:8080").get("simple"), is(Optional.of("def")));
+        assertThat(buildStore("http://localhost:8080").get("simple"), is(Optional.of("def")));
+
+        verify(realmRepository, times(1)).tryToLoadRealm("simple");
+    }
+
+    @Test
+    public void shouldWriteChecksumOfLeaderShardToRealmAttribute() {
+        importConfigProperties = new ImportConfigProperties(
+                "default", false, "default", "file", tempDir.resolve("checksums.properties").toString(), 1, null, null, 0, 0, "127.0.0.1", null, 1, false, null, null, 0, 2, 0
+        );
+        RealmRepresentation realm = realm("id-1", null);
+        when(realmRepository.get("simple")).thenReturn(realm);
+
+        buildStore("http://localhost:8080").put("simple", "abc");
+
+        verify(realmRepository).update(realm);
+        assertThat(realm.getAttributes().get(CHECKSUM_ATTRIBUTE + "-shard-0-of-2"), is("abc"));
+    }
+
+    private static RealmRepresentation realm(String id, String checksum) {
+        RealmRepresentation realm = new RealmRepresentation();
+        realm.setId(id);
+        realm.setRealm("simple");
+        realm.setAttributes(new HashMap<>());
+
+        if (checksum != null) {
+            realm.getAttributes().put(CHECKSUM_ATTRIBUTE, checksum);
+        }
+
+        return realm;
+    }
+
+    private FileChecksumStore buildStore(String url) {
+        KeycloakConfigProperties keycloakConfigProperties = new KeycloakConfigProperties(
+                "master", "admin-cli", url, "admin", "admin123", true
+        );
+
+        return new FileChecksumStore(
+                realmRepository, importConfigProperties, keycloakConfigProperties, new ImportReportService(importConfigProperties, new TraceService(importConfigProperties))
+        );
+    }
+}
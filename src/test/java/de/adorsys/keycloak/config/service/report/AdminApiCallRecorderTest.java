@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package de.adorsys.keycloak.config.service.report;
+
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.properties.KeycloakConfigProperties;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.service.trace.TraceService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.ws.rs.ProcessingException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AdminApiCallRecorderTest {
+    @Test
+    public void shouldRecordRequestFailingWithoutResponse(@TempDir Path tempDir) throws IOException {
+        ImportConfigProperties importConfigProperties = new ImportConfigProperties(
+                "default", false, "default", "realm", "checksums.properties", 1, tempDir.resolve("report.json").toString(), null, 0, 0, "127.0.0.1", null, 1, false, null, null, 0, 1, 0
+        );
+        TraceService traceService = new TraceService(importConfigProperties);
+        ImportReportService importReportService = new ImportReportService(importConfigProperties, traceService);
+        KeycloakConfigProperties keycloakConfigProperties = new KeycloakConfigProperties(
+                "master", "admin-cli", "http://127.0.0.1:" + findClosedPort(), "admin", "admin123", true
+        );
+        KeycloakProvider keycloakProvider = new KeycloakProvider(keycloakConfigProperties, importConfigProperties, importReportService, traceService);
+
+        Path recordingPath = tempDir.resolve("import.jfr");
+        importReportService.startRun();
+
+        try (Recording recording = new Recording()) {
+            recording.enable("de.adorsys.keycloak.config.AdminCall");
+            recording.start();
+
+            assertThrows(ProcessingException.class, () -> keycloakProvider.get().realms().findAll());
+
+            recording.stop();
+            recording.dump(recordingPath);
+        } finally {
+            keycloakProvider.close();
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath)
+                .stream()
+                .filter(event -> event.getEventType().getName().equals("de.adorsys.keycloak.config.AdminCall"))
+                .collect(Collectors.toList());
+
+        assertThat(events, hasSize(1));
+        assertThat(events.get(0).getString("httpMethod"), is("POST"));
+        assertThat(events.get(0).getString("path"), endsWith("/protocol/openid-connect/token"));
+        assertThat(events.get(0).getString("status"), is("ConnectException"));
+
+        String tokenCall = "POST /auth/realms/master/protocol/openid-connect/token";
+        assertThat(importReportService.getReport().getAdminCalls().get(tokenCall).getCount(), is(1));
+    }
+
+    private static int findClosedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
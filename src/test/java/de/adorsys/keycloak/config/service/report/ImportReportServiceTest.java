@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.report;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import de.adorsys.keycloak.config.service.trace.TraceService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ImportReportServiceTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldWriteRealmReport() throws IOException {
+        Path reportPath = tempDir.resolve("report/report.json");
+        ImportReportService importReportService = buildService(reportPath.toString());
+
+        importReportService.recordCacheAccess("import-checksum", true);
+        importReportService.recordCacheAccess("import-checksum", false);
+
+        importReportService.startRealm("simple");
+        importReportService.phase("users", () -> {
+            importReportService.count(EntityOutcome.CREATED);
+            importReportService.count(EntityOutcome.CREATED);
+            importReportService.count(EntityOutcome.UNCHANGED);
+
+            for (int i = 1; i <= 100; i++) {
+                importReportService.recordAdminCall("UserRepository.create", TimeUnit.MILLISECONDS.toNanos(i));
+            }
+        });
+        importReportService.finishRealm("updated");
+
+        importReportService.write();
+
+        JsonNode report = new ObjectMapper().readTree(reportPath.toFile());
+        JsonNode realm = report.get("realms").get(0);
+        assertThat(realm.get("realm").asText(), is("simple"));
+        assertThat(realm.get("status").asText(), is("updated"));
+
+        JsonNode phase = realm.get("phases").get(0);
+        assertThat(phase.get("name").asText(), is("users"));
+        assertThat(phase.get("created").asInt(), is(2));
+        assertThat(phase.get("unchanged").asInt(), is(1));
+        assertThat(phase.get("updated").asInt(), is(0));
+        assertThat(phase.get("adminCalls").asInt(), is(100));
+
+        JsonNode adminCalls = realm.get("adminCalls").get("UserRepository.create");
+        assertThat(adminCalls.get("count").asInt(), is(100));
+        assertThat(adminCalls.get("p50Ms").asDouble(), is(50.0));
+        assertThat(adminCalls.get("p99Ms").asDouble(), is(99.0));
+        assertThat(adminCalls.get("maxMs").asDouble(), is(100.0));
+
+        assertThat(report.get("caches").get("import-checksum").get("hitRate").asDouble(), is(0.5));
+    }
+
+    @Test
+    public void shouldNotWriteReportWithoutPath() {
+        ImportReportService importReportService = buildService("");
+
+        importReportService.startRealm("simple");
+        importReportService.finishRealm("created");
+        importReportService.write();
+
+        assertThat(importReportService.isEnabled(), is(false));
+        assertThat(tempDir.toFile().list().length, is(0));
+    }
+
+    private ImportReportService buildService(String reportPath) {
+        ImportConfigProperties importConfigProperties = new ImportConfigProperties(
+                "default", false, "default", "realm", "checksums.properties", 1, reportPath, null, 0, 0, "127.0.0.1", null, 1, false, null, null, 0, 1, 0
+        );
+
+        return new ImportReportService(importConfigProperties, new TraceService(importConfigProperties));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.service.trace;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.adorsys.keycloak.config.properties.ImportConfigProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+
+public class TraceServiceTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldExportNestedSpans() throws IOException {
+        Path tracePath = tempDir.resolve("trace.json");
+        TraceService traceService = buildService(tracePath.toString());
+
+        Span runSpan = traceService.start("keycloak-config-cli");
+        traceService.span("phase users", () -> {
+            Span clientSpan = traceService.startClientSpan("UserRepository.create").setAttribute("http.status_code", 201);
+            traceService.end(clientSpan);
+        });
+        traceService.end(runSpan);
+
+        traceService.write();
+
+        JsonNode export = new ObjectMapper().readTree(tracePath.toFile());
+        JsonNode spans = export.at("/resourceSpans/0/scopeSpans/0/spans");
+        assertThat(spans.size(), is(3));
+
+        Map<String, JsonNode> spansByName = new HashMap<>();
+        spans.forEach(span -> spansByName.put(span.get("name").asText(), span));
+
+        JsonNode rootSpan = spansByName.get("keycloak-config-cli");
+        JsonNode phaseSpan = spansByName.get("phase users");
+        JsonNode clientSpan = spansByName.get("UserRepository.create");
+
+        assertThat(rootSpan.has("parentSpanId"), is(false));
+        assertThat(phaseSpan.get("parentSpanId").asText(), is(rootSpan.get("spanId").asText()));
+        assertThat(clientSpan.get("parentSpanId").asText(), is(phaseSpan.get("spanId").asText()));
+        assertThat(clientSpan.get("kind").asInt(), is(Span.KIND_CLIENT));
+        assertThat(clientSpan.get("traceId").asText(), is(rootSpan.get("traceId").asText()));
+        assertThat(clientSpan.at("/attributes/0/value/intValue").asText(), is("201"));
+        assertThat(rootSpan.get("endTimeUnixNano").asLong(), greaterThanOrEqualTo(clientSpan.get("endTimeUnixNano").asLong()));
+    }
+
+    @Test
+    public void shouldNotRecordWithoutPath() {
+        TraceService traceService = buildService("");
+
+        assertThat(traceService.start("keycloak-config-cli"), sameInstance(Span.NONE));
+        assertThat(traceService.startClientSpan("UserRepository.create"), sameInstance(Span.NONE));
+    }
+
+    private TraceService buildService(String tracePath) {
+        ImportConfigProperties importConfigProperties = new ImportConfigProperties(
+                "default", false, "default", "realm", "checksums.properties", 1, null, tracePath, 0, 0, "127.0.0.1", null, 1, false, null, null, 0, 1, 0
+        );
+
+        return new TraceService(importConfigProperties);
+    }
+}
@@ -0,0 +1,794 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded, in-memory stand-in for the keycloak admin REST API, serving the endpoints used by the repositories of
+ * this project. Point <code>keycloak.url</code> to {@link #getUrl()} to run imports without a keycloak server.
+ * <p>
+ * Every call is counted per endpoint, e.g. <code>GET /admin/realms/{realm}/users</code>, and can be slowed down
+ * ({@link #setLatency}) or failed ({@link #failNext}, {@link #setErrorRate}) to measure and stress the import
+ * services in isolation. Calls to endpoints which are not simulated are answered with <code>501</code>.
+ */
+public class KeycloakAdminSimulator implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(KeycloakAdminSimulator.class);
+
+    private static final String REALM = "/admin/realms/{realm}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Route> routes = new ArrayList<>();
+    private final Map<String, SimulatedRealm> realms = new LinkedHashMap<>();
+
+    private final Map<String, AtomicInteger> callCounts = new ConcurrentHashMap<>();
+    private final Map<String, Long> endpointLatencies = new ConcurrentHashMap<>();
+    private final List<Fault> faults = new ArrayList<>();
+    private final Random random = new Random(0);
+    private volatile long latencyNanos;
+    private volatile double errorRate;
+    private volatile int errorStatus = 500;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    static {
+        // without TCP_NODELAY small responses wait for the delayed ACK of the client, ~40ms per call
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private KeycloakAdminSimulator(int port) {
+        registerRoutes();
+        createMasterRealm();
+
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        AtomicLong threadCount = new AtomicLong();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "keycloak-simulator-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Starts a simulator on a free local port
+     */
+    public static KeycloakAdminSimulator start() {
+        return new KeycloakAdminSimulator(0);
+    }
+
+    /**
+     * Base url of the simulator, the value for <code>keycloak.url</code>
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Delays every call by the given latency, until overridden per endpoint
+     */
+    public void setLatency(Duration latency) {
+        latencyNanos = latency.toNanos();
+    }
+
+    /**
+     * Delays every call of the given endpoint, e.g. <code>GET /admin/realms/{realm}/users</code>
+     */
+    public void setLatency(String endpoint, Duration latency) {
+        endpointLatencies.put(endpoint, latency.toNanos());
+    }
+
+    /**
+     * Answers the next <code>times</code> calls of the given endpoint with the given http status
+     */
+    public synchronized void failNext(String endpoint, int status, int times) {
+        faults.add(new Fault(endpoint, status, times));
+    }
+
+    /**
+     * Answers the given share of all calls (0.0 - 1.0) with the given http status. The random sequence is seeded,
+     * so a single threaded run fails the same calls every time.
+     */
+    public void setErrorRate(double errorRate, int status) {
+        this.errorRate = errorRate;
+        this.errorStatus = status;
+    }
+
+    /**
+     * Number of calls per endpoint since start or the last {@link #resetCallCounts()}
+     */
+    public SortedMap<String, Integer> getCallCounts() {
+        SortedMap<String, Integer> counts = new TreeMap<>();
+        callCounts.forEach((endpoint, count) -> counts.put(endpoint, count.get()));
+        return counts;
+    }
+
+    public int getCallCount(String endpoint) {
+        AtomicInteger count = callCounts.get(endpoint);
+        return count == null ? 0 : count.get();
+    }
+
+    public int getTotalCallCount() {
+        return callCounts.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    public void resetCallCounts() {
+        callCounts.clear();
+    }
+
+    /**
+     * Drops all realms except master, all counters, latencies and injected errors
+     */
+    public synchronized void reset() {
+        realms.clear();
+        createMasterRealm();
+
+        resetCallCounts();
+        endpointLatencies.clear();
+        faults.clear();
+        latencyNanos = 0;
+        errorRate = 0;
+    }
+
+    public synchronized boolean hasRealm(String realm) {
+        return realms.containsKey(realm);
+    }
+
+    /**
+     * The stored client secret of an identity provider, the admin API only returns it masked
+     */
+    public synchronized String getIdentityProviderClientSecret(String realm, String alias) {
+        return realms.get(realm).getIdentityProviderClientSecret(alias);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void createMasterRealm() {
+        ObjectNode master = objectMapper.createObjectNode();
+        master.put("realm", "master");
+        master.put("enabled", true);
+        realms.put("master", new SimulatedRealm(objectMapper, master));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Reply reply = dispatch(exchange);
+            send(exchange, reply);
+        } catch (RuntimeException e) {
+            logger.error("Simulated admin call failed", e);
+            send(exchange, error(500, e.toString()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Reply dispatch(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getRawPath().replaceFirst("^/auth", "").replaceFirst("/$", "");
+
+        for (Route route : routes) {
+            Matcher matcher = route.pattern.matcher(path);
+            if (route.method.equals(method) && matcher.matches()) {
+                String endpoint = method + " " + route.template;
+                callCounts.computeIfAbsent(endpoint, k -> new AtomicInteger()).incrementAndGet();
+
+                sleep(endpointLatencies.getOrDefault(endpoint, latencyNanos));
+
+                Integer injectedStatus = nextInjectedError(endpoint);
+                if (injectedStatus != null) {
+                    return error(injectedStatus, "Injected error for " + endpoint);
+                }
+
+                Call call = new Call(exchange, matcher, readBody(exchange));
+                try {
+                    synchronized (this) {
+                        return route.handler.handle(call);
+                    }
+                } catch (SimulatorException e) {
+                    return error(e.getStatus(), e.getMessage());
+                }
+            }
+        }
+
+        String endpoint = method + " " + path;
+        callCounts.computeIfAbsent(endpoint, k -> new AtomicInteger()).incrementAndGet();
+        logger.warn("No simulated endpoint for '{}'", endpoint);
+
+        return error(501, "No simulated endpoint for " + endpoint);
+    }
+
+    private synchronized Integer nextInjectedError(String endpoint) {
+        Iterator<Fault> iterator = faults.iterator();
+        while (iterator.hasNext()) {
+            Fault fault = iterator.next();
+            if (fault.endpoint.equals(endpoint)) {
+                if (--fault.remaining <= 0) {
+                    iterator.remove();
+                }
+                return fault.status;
+            }
+        }
+
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            return errorStatus;
+        }
+
+        return null;
+    }
+
+    private JsonNode readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+
+        // the body is always consumed, an unread body breaks the next request on the kept-alive connection
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (body.size() == 0 || contentType == null || !contentType.contains("json")) {
+            return MissingNode.getInstance();
+        }
+
+        return objectMapper.readTree(body.toByteArray());
+    }
+
+    private void send(HttpExchange exchange, Reply reply) throws IOException {
+        if (reply.location != null) {
+            exchange.getResponseHeaders().set("Location", reply.location);
+        }
+
+        if (reply.body == null) {
+            exchange.sendResponseHeaders(reply.status, -1);
+            return;
+        }
+
+        byte[] body = objectMapper.writeValueAsBytes(reply.body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(reply.status, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* --------------------------------------------------------------------------------------------- routes */
+
+    private void registerRoutes() {
+        route("POST", "/realms/{realm}/protocol/openid-connect/token", call -> {
+            ObjectNode token = objectMapper.createObjectNode();
+            token.put("access_token", "simulated-access-token");
+            token.put("expires_in", 3600);
+            token.put("refresh_token", "simulated-refresh-token");
+            token.put("refresh_expires_in", 3600);
+            token.put("token_type", "bearer");
+            return json(token);
+        });
+
+        registerRealmRoutes();
+        registerUserRoutes();
+        registerGroupRoutes();
+        registerRoleRoutes(REALM + "/roles", call -> null);
+        registerRoleRoutes(REALM + "/clients/{client}/roles", call -> call.param(1));
+        registerClientRoutes();
+        registerClientScopeRoutes();
+        registerMappingRoutes("users", "role-mappings");
+        registerMappingRoutes("groups", "role-mappings");
+        registerMappingRoutes("clients", "scope-mappings");
+        registerMappingRoutes("client-scopes", "scope-mappings");
+        registerAuthenticationRoutes();
+        registerComponentRoutes();
+        registerIdentityProviderRoutes();
+    }
+
+    private void registerRealmRoutes() {
+        route("GET", "/admin/realms", call -> json(realms.values()
+                .stream()
+                .map(SimulatedRealm::getRepresentation)
+                .toArray()));
+        route("POST", "/admin/realms", call -> {
+            String name = call.body().path("realm").asText();
+            if (realms.containsKey(name)) {
+                throw SimulatorException.conflict("Conflict detected. See logs for details");
+            }
+            realms.put(name, new SimulatedRealm(objectMapper, (ObjectNode) call.body()));
+            return created(call, name);
+        });
+        route("GET", REALM, call -> json(call.realm().getRepresentation()));
+        route("PUT", REALM, call -> {
+            call.realm().update(call.body());
+            return noContent();
+        });
+        route("DELETE", REALM, call -> {
+            realms.remove(call.realm().getName());
+            return noContent();
+        });
+        route("POST", REALM + "/partial-export", call -> json(call.realm().partialExport(
+                !"false".equals(call.query("exportGroupsAndRoles")), !"false".equals(call.query("exportClients"))
+        )));
+        route("POST", REALM + "/partialImport", call -> json(call.realm().partialImport(call.body())));
+    }
+
+    private void registerUserRoutes() {
+        route("GET", REALM + "/users", call -> json(call.realm().searchUsers(
+                call.query("search"), call.query("username"), call.queryInt("first", 0), call.queryInt("max", 100)
+        )));
+        route("POST", REALM + "/users", call -> created(call, call.realm().createUser(call.body())));
+        route("GET", REALM + "/users/{id}", call -> json(call.realm().getUser(call.param(1))));
+        route("PUT", REALM + "/users/{id}", call -> {
+            call.realm().updateUser(call.param(1), call.body());
+            return noContent();
+        });
+        route("DELETE", REALM + "/users/{id}", call -> {
+            call.realm().deleteUser(call.param(1));
+            return noContent();
+        });
+        route("GET", REALM + "/users/{id}/groups", call -> json(call.realm().getUserGroups(call.param(1))));
+        route("PUT", REALM + "/users/{id}/groups/{group}", call -> {
+            call.realm().joinGroup(call.param(1), call.param(2));
+            return noContent();
+        });
+        route("DELETE", REALM + "/users/{id}/groups/{group}", call -> {
+            call.realm().leaveGroup(call.param(1), call.param(2));
+            return noContent();
+        });
+    }
+
+    private void registerGroupRoutes() {
+        route("GET", REALM + "/groups", call -> json(call.realm().getTopLevelGroups(
+                "false".equals(call.query("briefRepresentation"))
+        )));
+        route("POST", REALM + "/groups", call -> created(call, call.realm().createGroup(null, call.body())));
+        route("GET", REALM + "/groups/{id}", call -> json(call.realm().getGroup(call.param(1))));
+        route("PUT", REALM + "/groups/{id}", call -> {
+            call.realm().updateGroup(call.param(1), call.body());
+            return noContent();
+        });
+        route("DELETE", REALM + "/groups/{id}", call -> {
+            call.realm().deleteGroup(call.param(1));
+            return noContent();
+        });
+        route("POST", REALM + "/groups/{id}/children", call ->
+                created(call, call.realm().createGroup(call.param(1), call.body()))
+        );
+    }
+
+    /**
+     * Realm and client roles share the same sub-resources, the container is null for realm roles
+     */
+    private void registerRoleRoutes(String rolesPath, Handler<String> container) {
+        int nameParam = rolesPath.contains("{client}") ? 2 : 1;
+
+        route("GET", rolesPath, call -> json(call.realm().getRoles(container.handle(call))));
+        route("POST", rolesPath, call -> {
+            call.realm().createRole(container.handle(call), call.body());
+            return created(call, call.body().path("name").asText());
+        });
+        route("GET", rolesPath + "/{role}", call -> json(call.realm().getRole(container.handle(call), call.param(nameParam))));
+        route("PUT", rolesPath + "/{role}", call -> {
+            call.realm().updateRole(container.handle(call), call.param(nameParam), call.body());
+            return noContent();
+        });
+        route("DELETE", rolesPath + "/{role}", call -> {
+            call.realm().deleteRole(container.handle(call), call.param(nameParam));
+            return noContent();
+        });
+
+        route("GET", rolesPath + "/{role}/composites", call -> {
+            SimulatedRealm realm = call.realm();
+            String compositeKey = realm.compositeKey(container.handle(call), call.param(nameParam));
+            List<ObjectNode> composites = new ArrayList<>(realm.getMappedRoles(compositeKey, null, false));
+            realm.findClients(null).forEach(client ->
+                    composites.addAll(realm.getMappedRoles(compositeKey, client.path("id").asText(), false))
+            );
+            return json(composites);
+        });
+        route("GET", rolesPath + "/{role}/composites/realm", call -> {
+            String compositeKey = call.realm().compositeKey(container.handle(call), call.param(nameParam));
+            return json(call.realm().getMappedRoles(compositeKey, null, false));
+        });
+        route("GET", rolesPath + "/{role}/composites/clients/{compositeClient}", call -> {
+            String compositeKey = call.realm().compositeKey(container.handle(call), call.param(nameParam));
+            return json(call.realm().getMappedRoles(compositeKey, call.param(nameParam + 1), false));
+        });
+        route("POST", rolesPath + "/{role}/composites", call -> {
+            String compositeKey = call.realm().compositeKey(container.handle(call), call.param(nameParam));
+            call.body().forEach(role -> call.realm().addMappedRoles(compositeKey, containerOf(role), objectMapper.createArrayNode().add(role)));
+            return noContent();
+        });
+        route("DELETE", rolesPath + "/{role}/composites", call -> {
+            String compositeKey = call.realm().compositeKey(container.handle(call), call.param(nameParam));
+            call.body().forEach(role -> call.realm().removeMappedRoles(compositeKey, containerOf(role), objectMapper.createArrayNode().add(role)));
+            return noContent();
+        });
+    }
+
+    private void registerClientRoutes() {
+        route("GET", REALM + "/clients", call -> json(call.realm().findClients(call.query("clientId"))));
+        route("POST", REALM + "/clients", call -> created(call, call.realm().createClient(call.body())));
+        route("GET", REALM + "/clients/{id}", call -> json(call.realm().getClient(call.param(1))));
+        route("PUT", REALM + "/clients/{id}", call -> {
+            call.realm().updateClient(call.param(1), call.body());
+            return noContent();
+        });
+        route("DELETE", REALM + "/clients/{id}", call -> {
+            call.realm().deleteClient(call.param(1));
+            return noContent();
+        });
+        route("GET", REALM + "/clients/{id}/client-secret", call -> json(call.realm().getClientSecret(call.param(1))));
+    }
+
+    private void registerClientScopeRoutes() {
+        route("GET", REALM + "/client-scopes", call -> json(call.realm().getClientScopes()));
+        route("POST", REALM + "/client-scopes", call -> created(call, call.realm().createClientScope(call.body())));
+        route("GET", REALM + "/client-scopes/{id}", call -> json(call.realm().getClientScope(call.param(1))));
+        route("PUT", REALM + "/client-scopes/{id}", call -> {
+            call.realm().updateClientScope(call.param(1), call.body());
+            return noContent();
+        });
+        route("DELETE", REALM + "/client-scopes/{id}", call -> {
+            call.realm().deleteClientScope(call.param(1));
+            return noContent();
+        });
+
+        String models = REALM + "/client-scopes/{id}/protocol-mappers/models";
+        route("GET", models, call -> json(call.realm().getProtocolMappers(call.param(1))));
+        route("POST", models, call -> created(call, call.realm().createProtocolMapper(call.param(1), call.body())));
+        route("PUT", models + "/{model}", call -> {
+            call.realm().updateProtocolMapper(call.param(1), call.param(2), call.body());
+            return noContent();
+        });
+        route("DELETE", models + "/{model}", call -> {
+            call.realm().deleteProtocolMapper(call.param(1), call.param(2));
+            return noContent();
+        });
+
+        route("GET", REALM + "/default-default-client-scopes", call ->
+                json(call.realm().getDefaultClientScopes("defaultDefaultClientScopes"))
+        );
+        route("GET", REALM + "/default-optional-client-scopes", call ->
+                json(call.realm().getDefaultClientScopes("defaultOptionalClientScopes"))
+        );
+    }
+
+    /**
+     * Role mappings of users and groups, scope mappings of clients and client-scopes
+     */
+    private void registerMappingRoutes(String ownerType, String mappingType) {
+        String mappings = REALM + "/" + ownerType + "/{id}/" + mappingType;
+
+        registerMappingLevelRoutes(ownerType, mappings + "/realm", call -> null);
+        registerMappingLevelRoutes(ownerType, mappings + "/clients/{client}", call -> call.param(2));
+    }
+
+    private void registerMappingLevelRoutes(String ownerType, String levelPath, Handler<String> client) {
+        route("GET", levelPath, call -> json(call.realm().getMappedRoles(
+                call.realm().mappingKey(ownerType, call.param(1)), client.handle(call), false
+        )));
+        route("GET", levelPath + "/composite", call -> json(call.realm().getMappedRoles(
+                call.realm().mappingKey(ownerType, call.param(1)), client.handle(call), true
+        )));
+        route("POST", levelPath, call -> {
+            call.realm().addMappedRoles(call.realm().mappingKey(ownerType, call.param(1)), client.handle(call), call.body());
+            return noContent();
+        });
+        route("DELETE", levelPath, call -> {
+            call.realm().removeMappedRoles(call.realm().mappingKey(ownerType, call.param(1)), client.handle(call), call.body());
+            return noContent();
+        });
+    }
+
+    private void registerAuthenticationRoutes() {
+        String authentication = REALM + "/authentication";
+
+        route("GET", authentication + "/flows", call -> json(call.realm().getTopLevelFlows()));
+        route("POST", authentication + "/flows", call -> created(call, call.realm().createFlow(call.body())));
+        route("GET", authentication + "/flows/{id}", call -> json(call.realm().getFlow(call.param(1))));
+        route("DELETE", authentication + "/flows/{id}", call -> {
+            call.realm().deleteFlow(call.param(1));
+            return noContent();
+        });
+        route("GET", authentication + "/flows/{flowAlias}/executions", call ->
+                json(call.realm().getExecutions(call.param(1)))
+        );
+        route("PUT", authentication + "/flows/{flowAlias}/executions", call -> {
+            call.realm().updateExecution(call.param(1), call.body());
+            return noContent();
+        });
+        route("POST", authentication + "/flows/{flowAlias}/executions/flow", call ->
+                created(call, call.realm().addExecutionFlow(call.param(1), call.body()))
+        );
+        route("POST", authentication + "/flows/{flowAlias}/executions/execution", call ->
+                created(call, call.realm().addExecution(call.param(1), call.body()))
+        );
+        route("POST", authentication + "/executions", call -> created(call, call.realm().addExecution(call.body())));
+        route("POST", authentication + "/executions/{executionId}/config", call ->
+                created(call, call.realm().createExecutionConfig(call.param(1), call.body()))
+        );
+
+        route("GET", authentication + "/config/{id}", call -> json(call.realm().getAuthenticatorConfig(call.param(1))));
+        route("PUT", authentication + "/config/{id}", call -> {
+            call.realm().updateAuthenticatorConfig(call.param(1), call.body());
+            return noContent();
+        });
+        route("DELETE", authentication + "/config/{id}", call -> {
+            call.realm().deleteAuthenticatorConfig(call.param(1));
+            return noContent();
+        });
+
+        route("GET", authentication + "/required-actions", call -> json(call.realm().getRequiredActions()));
+        route("POST", authentication + "/register-required-action", call -> {
+            call.realm().registerRequiredAction(call.body());
+            return noContent();
+        });
+        route("GET", authentication + "/required-actions/{alias}", call ->
+                json(call.realm().getRequiredAction(call.param(1)))
+        );
+        route("PUT", authentication + "/required-actions/{alias}", call -> {
+            call.realm().updateRequiredAction(call.param(1), call.body());
+            return noContent();
+        });
+        route("DELETE", authentication + "/required-actions/{alias}", call -> {
+            call.realm().deleteRequiredAction(call.param(1));
+            return noContent();
+        });
+    }
+
+    private void registerComponentRoutes() {
+        route("GET", REALM + "/components", call -> json(call.realm().queryComponents(
+                call.query("parent"), call.query("type"), call.query("name")
+        )));
+        route("POST", REALM + "/components", call -> created(call, call.realm().createComponent(call.body())));
+        route("GET", REALM + "/components/{id}", call -> json(call.realm().getComponent(call.param(1))));
+        route("PUT", REALM + "/components/{id}", call -> {
+            call.realm().updateComponent(call.param(1), call.body());
+            return noContent();
+        });
+        route("DELETE", REALM + "/components/{id}", call -> {
+            call.realm().deleteComponent(call.param(1));
+            return noContent();
+        });
+    }
+
+    private void registerIdentityProviderRoutes() {
+        String instances = REALM + "/identity-provider/instances";
+
+        route("GET", instances, call -> json(call.realm().getIdentityProviders()));
+        route("POST", instances, call -> {
+            call.realm().createIdentityProvider(call.body());
+            return created(call, call.body().path("alias").asText());
+        });
+        route("GET", instances + "/{alias}", call -> json(call.realm().getIdentityProvider(call.param(1))));
+        route("PUT", instances + "/{alias}", call -> {
+            call.realm().updateIdentityProvider(call.param(1), call.body());
+            return noContent();
+        });
+        route("DELETE", instances + "/{alias}", call -> {
+            call.realm().deleteIdentityProvider(call.param(1));
+            return noContent();
+        });
+
+        route("GET", instances + "/{alias}/mappers", call -> json(call.realm().getIdentityProviderMappers(call.param(1))));
+        route("POST", instances + "/{alias}/mappers", call ->
+                created(call, call.realm().createIdentityProviderMapper(call.param(1), call.body()))
+        );
+        route("GET", instances + "/{alias}/mappers/{id}", call ->
+                json(call.realm().getIdentityProviderMapper(call.param(1), call.param(2)))
+        );
+        route("PUT", instances + "/{alias}/mappers/{id}", call -> {
+            call.realm().updateIdentityProviderMapper(call.param(1), call.param(2), call.body());
+            return noContent();
+        });
+        route("DELETE", instances + "/{alias}/mappers/{id}", call -> {
+            call.realm().deleteIdentityProviderMapper(call.param(1), call.param(2));
+            return noContent();
+        });
+    }
+
+    private void route(String method, String template, Handler<Reply> handler) {
+        routes.add(new Route(method, template, handler));
+    }
+
+    /**
+     * Composites reference client roles by their container, realm roles have none
+     */
+    private static String containerOf(JsonNode role) {
+        return role.path("clientRole").asBoolean() ? role.path("containerId").asText() : null;
+    }
+
+    /* -------------------------------------------------------------------------------------------- replies */
+
+    private Reply json(Object body) {
+        return new Reply(200, objectMapper.valueToTree(body), null);
+    }
+
+    private Reply created(Call call, String id) {
+        return new Reply(201, null, getUrl() + "/auth" + call.path + "/" + id);
+    }
+
+    private static Reply noContent() {
+        return new Reply(204, null, null);
+    }
+
+    private Reply error(int status, String message) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("errorMessage", message);
+        return new Reply(status, body, null);
+    }
+
+    @FunctionalInterface
+    private interface Handler<T> {
+        T handle(Call call);
+    }
+
+    private static class Route {
+        private final String method;
+        private final String template;
+        private final Pattern pattern;
+        private final Handler<Reply> handler;
+
+        Route(String method, String template, Handler<Reply> handler) {
+            this.method = method;
+            this.template = template;
+            this.pattern = Pattern.compile(template.replaceAll("\\{[^/]+}", "([^/]+)"));
+            this.handler = handler;
+        }
+    }
+
+    private static class Reply {
+        private final int status;
+        private final JsonNode body;
+        private final String location;
+
+        Reply(int status, JsonNode body, String location) {
+            this.status = status;
+            this.body = body;
+            this.location = location;
+        }
+    }
+
+    private static class Fault {
+        private final String endpoint;
+        private final int status;
+        private int remaining;
+
+        Fault(String endpoint, int status, int remaining) {
+            this.endpoint = endpoint;
+            this.status = status;
+            this.remaining = remaining;
+        }
+    }
+
+    private class Call {
+        private final String path;
+        private final List<String> params = new ArrayList<>();
+        private final Map<String, String> query = new HashMap<>();
+        private final JsonNode body;
+
+        Call(HttpExchange exchange, Matcher matcher, JsonNode body) {
+            this.path = exchange.getRequestURI().getRawPath().replaceFirst("^/auth", "").replaceFirst("/$", "");
+            this.body = body;
+
+            for (int group = 1; group <= matcher.groupCount(); group++) {
+                params.add(decode(matcher.group(group)));
+            }
+
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            if (rawQuery != null) {
+                for (String parameter : rawQuery.split("&")) {
+                    String[] keyValue = parameter.split("=", 2);
+                    query.put(decode(keyValue[0]), keyValue.length > 1 ? decode(keyValue[1]) : "");
+                }
+            }
+        }
+
+        SimulatedRealm realm() {
+            SimulatedRealm realm = realms.get(params.get(0));
+            if (realm == null) {
+                throw SimulatorException.notFound("Realm not found.");
+            }
+            return realm;
+        }
+
+        String param(int index) {
+            return params.get(index);
+        }
+
+        String query(String name) {
+            return query.get(name);
+        }
+
+        int queryInt(String name, int defaultValue) {
+            String value = query.get(name);
+            return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+        }
+
+        JsonNode body() {
+            return body;
+        }
+
+        private String decode(String value) {
+            try {
+                return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
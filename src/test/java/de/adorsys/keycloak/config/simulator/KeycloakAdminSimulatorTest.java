@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.simulator;
+
+import de.adorsys.keycloak.config.configuration.TestConfiguration;
+import de.adorsys.keycloak.config.model.KeycloakImport;
+import de.adorsys.keycloak.config.provider.KeycloakImportProvider;
+import de.adorsys.keycloak.config.provider.KeycloakProvider;
+import de.adorsys.keycloak.config.repository.GroupRepository;
+import de.adorsys.keycloak.config.repository.RealmRepository;
+import de.adorsys.keycloak.config.repository.RoleRepository;
+import de.adorsys.keycloak.config.repository.UserRepository;
+import de.adorsys.keycloak.config.service.RealmImportService;
+import de.adorsys.keycloak.config.util.ResourceLoader;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigFileApplicationContextInitializer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.ws.rs.ServiceUnavailableException;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(
+        classes = {TestConfiguration.class},
+        initializers = {ConfigFileApplicationContextInitializer.class}
+)
+@ActiveProfiles("IT")
+public class KeycloakAdminSimulatorTest {
+    private static final KeycloakAdminSimulator SIMULATOR = KeycloakAdminSimulator.start();
+
+    @Autowired
+    RealmImportService realmImportService;
+
+    @Autowired
+    KeycloakImportProvider keycloakImportProvider;
+
+    @Autowired
+    KeycloakProvider keycloakProvider;
+
+    @Autowired
+    RealmRepository realmRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    RoleRepository roleRepository;
+
+    @Autowired
+    GroupRepository groupRepository;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.url", SIMULATOR::getUrl);
+    }
+
+    @BeforeEach
+    public void setup() {
+        SIMULATOR.reset();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        keycloakProvider.close();
+    }
+
+    @AfterAll
+    public static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @Test
+    public void shouldImportRealmWithUsers() {
+        KeycloakImport keycloakImport = keycloakImportProvider.readRealmImportsFromDirectory(
+                ResourceLoader.loadResource("import-files/users")
+        );
+
+        realmImportService.doImport(keycloakImport.getRealmImports().get("0_create_realm_with_user.json"));
+        realmImportService.doImport(keycloakImport.getRealmImports().get("1_update_realm_add_clientuser.json"));
+
+        UserRepresentation user = userRepository.findUser("realmWithUsers", "myuser");
+        assertThat(user.getEmail(), is("myuser@mail.de"));
+        assertThat(user.isEnabled(), is(true));
+
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms"), is(1));
+        assertThat(SIMULATOR.getCallCount("POST /admin/realms/{realm}/users"), is(2));
+        assertThat(SIMULATOR.getCallCounts().keySet().stream().anyMatch(endpoint -> !endpoint.contains("{")
+                && !endpoint.equals("GET /admin/realms") && !endpoint.equals("POST /admin/realms")), is(false));
+    }
+
+    @Test
+    public void shouldMapRolesToGroups() {
+        realmImportService.doImport(keycloakImportProvider.readRealmImportsFromDirectory(
+                ResourceLoader.loadResource("import-files/groups")
+        ).getRealmImports().get("3_update_realm_add_group_with_realm_role.json"));
+
+        GroupRepresentation group = groupRepository.getGroupByName("realmWithGroups", "Group with realm role");
+        assertThat(group.getRealmRoles(), contains("my_realm_role"));
+
+        RoleRepresentation role = roleRepository.findRealmRole("realmWithGroups", "my_realm_role");
+        groupRepository.removeRealmRoles("realmWithGroups", group.getId(), Collections.singletonList(role.getName()));
+
+        assertThat(groupRepository.getGroupById("realmWithGroups", group.getId()).getRealmRoles().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldDelayCalls() {
+        realmRepository.get("master");
+        SIMULATOR.setLatency("GET /admin/realms/{realm}", Duration.ofMillis(50));
+
+        long start = System.nanoTime();
+        realmRepository.get("master");
+
+        assertThat(System.nanoTime() - start, greaterThanOrEqualTo(Duration.ofMillis(50).toNanos()));
+    }
+
+    @Test
+    public void shouldInjectErrors() {
+        SIMULATOR.failNext("GET /admin/realms/{realm}", 503, 1);
+
+        assertThrows(ServiceUnavailableException.class, () -> realmRepository.get("master"));
+        assertThat(realmRepository.get("master").getRealm(), is("master"));
+        assertThat(SIMULATOR.getCallCount("GET /admin/realms/{realm}"), is(2));
+    }
+}
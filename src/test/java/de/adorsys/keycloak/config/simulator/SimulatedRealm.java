@@ -0,0 +1,1567 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory state of a single realm. Entities are kept as plain json trees in the same shape the admin REST API
+ * sends and receives them, mappings between entities only store ids.
+ * Not thread-safe, the {@link KeycloakAdminSimulator} serializes all calls.
+ */
+class SimulatedRealm {
+    private static final List<String> NESTED_PROPERTIES = Arrays.asList(
+            "users", "groups", "roles", "clients", "clientScopes", "authenticationFlows", "authenticatorConfig",
+            "requiredActions", "components", "identityProviders", "identityProviderMappers", "scopeMappings",
+            "clientScopeMappings"
+    );
+
+    private static final List<String> DEFAULT_CLIENTS = Arrays.asList(
+            "account", "account-console", "admin-cli", "broker", "realm-management", "security-admin-console"
+    );
+
+    private static final List<String> DEFAULT_DEFAULT_CLIENT_SCOPES = Arrays.asList(
+            "role_list", "profile", "email", "roles", "web-origins"
+    );
+
+    private static final List<String> DEFAULT_OPTIONAL_CLIENT_SCOPES = Arrays.asList(
+            "offline_access", "address", "phone", "microprofile-jwt"
+    );
+
+    private static final List<String> DEFAULT_REQUIRED_ACTIONS = Arrays.asList(
+            "CONFIGURE_TOTP", "terms_and_conditions", "UPDATE_PASSWORD", "UPDATE_PROFILE", "VERIFY_EMAIL",
+            "update_user_locale"
+    );
+
+    private static final Map<String, String> DEFAULT_FLOWS = new LinkedHashMap<>();
+
+    private static final String CLIENT_SECRET = "clientSecret";
+    private static final String SECRET_MASK = "**********";
+
+    static {
+        DEFAULT_FLOWS.put("browser", "browserFlow");
+        DEFAULT_FLOWS.put("direct grant", "directGrantFlow");
+        DEFAULT_FLOWS.put("registration", "registrationFlow");
+        DEFAULT_FLOWS.put("reset credentials", "resetCredentialsFlow");
+        DEFAULT_FLOWS.put("clients", "clientAuthenticationFlow");
+        DEFAULT_FLOWS.put("first broker login", null);
+        DEFAULT_FLOWS.put("docker auth", "dockerAuthenticationFlow");
+        DEFAULT_FLOWS.put("http challenge", null);
+    }
+
+    private final ObjectMapper objectMapper;
+    private final ObjectNode representation;
+
+    private final Map<String, ObjectNode> users = new LinkedHashMap<>();
+    private final Map<String, Set<String>> userGroups = new HashMap<>();
+    private final Map<String, ObjectNode> groups = new LinkedHashMap<>();
+    private final Map<String, String> groupParents = new HashMap<>();
+    private final Map<String, ObjectNode> roles = new LinkedHashMap<>();
+    private final Map<String, Set<String>> roleMappings = new HashMap<>();
+    private final Map<String, ObjectNode> clients = new LinkedHashMap<>();
+    private final Map<String, ObjectNode> clientScopes = new LinkedHashMap<>();
+    private final Map<String, ObjectNode> flows = new LinkedHashMap<>();
+    private final Map<String, List<ObjectNode>> executions = new HashMap<>();
+    private final Map<String, ObjectNode> authenticatorConfigs = new LinkedHashMap<>();
+    private final Map<String, ObjectNode> requiredActions = new LinkedHashMap<>();
+    private final Map<String, ObjectNode> components = new LinkedHashMap<>();
+    private final Map<String, ObjectNode> identityProviders = new LinkedHashMap<>();
+    private final Map<String, ObjectNode> identityProviderMappers = new LinkedHashMap<>();
+
+    /**
+     * Creates the realm like keycloak does on <code>POST /admin/realms</code>: with the nested entities of the given
+     * representation, and with keycloak's defaults wherever the representation does not define them.
+     */
+    SimulatedRealm(ObjectMapper objectMapper, ObjectNode realmToCreate) {
+        this.objectMapper = objectMapper;
+
+        representation = realmToCreate.deepCopy();
+        representation.remove(NESTED_PROPERTIES);
+        if (!representation.hasNonNull("id")) {
+            representation.put("id", representation.path("realm").asText());
+        }
+        if (!representation.hasNonNull("enabled")) {
+            representation.put("enabled", false);
+        }
+        if (!representation.hasNonNull("attributes")) {
+            representation.putObject("attributes");
+        }
+
+        importNestedEntities(realmToCreate);
+    }
+
+    String getName() {
+        return representation.path("realm").asText();
+    }
+
+    ObjectNode getRepresentation() {
+        return representation.deepCopy();
+    }
+
+    /**
+     * <code>PUT /admin/realms/{realm}</code> updates the realm attributes only, nested entities are ignored
+     */
+    void update(JsonNode realmToUpdate) {
+        ObjectNode patch = patch(realmToUpdate, "id");
+        patch.remove(NESTED_PROPERTIES);
+
+        representation.setAll(patch);
+    }
+
+    /**
+     * Like keycloak, roles and groups are only exported with <code>exportGroupsAndRoles</code>, clients and their scope
+     * mappings only with <code>exportClients</code>
+     */
+    ObjectNode partialExport(boolean exportGroupsAndRoles, boolean exportClients) {
+        ObjectNode export = getRepresentation();
+
+        if (exportGroupsAndRoles) {
+            ObjectNode exportedRoles = export.putObject("roles");
+            exportedRoles.set("realm", toArray(rolesOf(representation.path("id").asText()), this::roleView));
+            ObjectNode exportedClientRoles = exportedRoles.putObject("client");
+            for (ObjectNode client : clients.values()) {
+                exportedClientRoles.set(client.path("clientId").asText(), toArray(rolesOf(id(client)), this::roleView));
+            }
+
+            export.set("groups", toArray(topLevelGroups(), group -> groupView(group, true)));
+        }
+        if (exportClients) {
+            export.set("clients", toArray(clients.values(), ObjectNode::deepCopy));
+        }
+
+        export.set("clientScopes", toArray(clientScopes.values(), ObjectNode::deepCopy));
+        export.set("authenticationFlows", toArray(flows.values(), this::flowExport));
+        export.set("authenticatorConfig", toArray(authenticatorConfigs.values(), ObjectNode::deepCopy));
+        export.set("requiredActions", toArray(requiredActions.values(), ObjectNode::deepCopy));
+        export.set("identityProviders", toArray(identityProviders.values(), SimulatedRealm::maskClientSecret));
+        export.set("scopeMappings", exportScopeMappings(exportClients));
+
+        return export;
+    }
+
+    /* ------------------------------------------------------------------------------------------------ users */
+
+    List<ObjectNode> searchUsers(String search, String username, int first, int max) {
+        return users.values()
+                .stream()
+                .filter(user -> search == null || matchesUserSearch(user, search))
+                .filter(user -> username == null || containsIgnoreCase(user.path("username").asText(), username))
+                .skip(first)
+                .limit(max)
+                .map(ObjectNode::deepCopy)
+                .collect(Collectors.toList());
+    }
+
+    String createUser(JsonNode userToCreate) {
+        String username = userToCreate.path("username").asText().toLowerCase();
+        if (username.isEmpty()) {
+            throw new SimulatorException(400, "User name is missing");
+        }
+        if (users.values().stream().anyMatch(u -> u.path("username").asText().equals(username))) {
+            throw SimulatorException.conflict("User exists with same username");
+        }
+
+        ObjectNode user = copyWithId(userToCreate);
+        user.put("username", username);
+        user.put("createdTimestamp", System.currentTimeMillis());
+        user.remove(Arrays.asList("credentials", "realmRoles", "clientRoles", "groups"));
+        if (!user.hasNonNull("enabled")) {
+            user.put("enabled", false);
+        }
+        users.put(id(user), user);
+
+        for (JsonNode groupPath : userToCreate.path("groups")) {
+            ObjectNode group = findGroupByPath(groupPath.asText())
+                    .orElseThrow(() -> new SimulatorException(400, "Group " + groupPath.asText() + " not found"));
+            userGroups.computeIfAbsent(id(user), k -> new LinkedHashSet<>()).add(id(group));
+        }
+
+        return id(user);
+    }
+
+    ObjectNode getUser(String id) {
+        return loadUser(id).deepCopy();
+    }
+
+    void updateUser(String id, JsonNode userToUpdate) {
+        ObjectNode patch = patch(userToUpdate, "id", "credentials", "realmRoles", "clientRoles", "groups");
+        if (patch.has("username")) {
+            patch.put("username", patch.path("username").asText().toLowerCase());
+        }
+
+        loadUser(id).setAll(patch);
+    }
+
+    void deleteUser(String id) {
+        loadUser(id);
+
+        users.remove(id);
+        userGroups.remove(id);
+        roleMappings.remove("users/" + id);
+    }
+
+    List<ObjectNode> getUserGroups(String id) {
+        loadUser(id);
+
+        return userGroups.getOrDefault(id, new LinkedHashSet<>())
+                .stream()
+                .map(groups::get)
+                .filter(Objects::nonNull)
+                .map(group -> groupView(group, false))
+                .collect(Collectors.toList());
+    }
+
+    void joinGroup(String id, String groupId) {
+        loadUser(id);
+        loadGroup(groupId);
+
+        userGroups.computeIfAbsent(id, k -> new LinkedHashSet<>()).add(groupId);
+    }
+
+    void leaveGroup(String id, String groupId) {
+        loadUser(id);
+
+        userGroups.getOrDefault(id, new LinkedHashSet<>()).remove(groupId);
+    }
+
+    private ObjectNode loadUser(String id) {
+        return require(users.get(id), "User not found");
+    }
+
+    private boolean matchesUserSearch(ObjectNode user, String search) {
+        return containsIgnoreCase(user.path("username").asText(), search)
+                || containsIgnoreCase(user.path("email").asText(), search)
+                || containsIgnoreCase(user.path("firstName").asText(), search)
+                || containsIgnoreCase(user.path("lastName").asText(), search);
+    }
+
+    /* ----------------------------------------------------------------------------------------------- groups */
+
+    List<ObjectNode> getTopLevelGroups(boolean full) {
+        return topLevelGroups()
+                .stream()
+                .map(group -> groupView(group, full))
+                .collect(Collectors.toList());
+    }
+
+    ObjectNode getGroup(String id) {
+        return groupView(loadGroup(id), true);
+    }
+
+    String createGroup(String parentId, JsonNode groupToCreate) {
+        if (parentId != null) {
+            loadGroup(parentId);
+        }
+
+        String name = groupToCreate.path("name").asText();
+        boolean siblingExists = groups.values()
+                .stream()
+                .filter(g -> Objects.equals(groupParents.get(id(g)), parentId))
+                .anyMatch(g -> g.path("name").asText().equals(name));
+        if (siblingExists) {
+            throw SimulatorException.conflict("Top level group named '" + name + "' already exists.");
+        }
+
+        ObjectNode group = objectMapper.createObjectNode();
+        group.put("id", groupToCreate.hasNonNull("id") ? groupToCreate.path("id").asText() : newId());
+        group.put("name", name);
+        group.put("path", parentId == null ? "/" + name : groups.get(parentId).path("path").asText() + "/" + name);
+        group.set("attributes", groupToCreate.hasNonNull("attributes")
+                ? groupToCreate.get("attributes").deepCopy()
+                : objectMapper.createObjectNode());
+
+        groups.put(id(group), group);
+        if (parentId != null) {
+            groupParents.put(id(group), parentId);
+        }
+
+        return id(group);
+    }
+
+    void updateGroup(String id, JsonNode groupToUpdate) {
+        ObjectNode group = loadGroup(id);
+
+        if (groupToUpdate.hasNonNull("name")) {
+            group.put("name", groupToUpdate.path("name").asText());
+            updatePaths(group);
+        }
+        if (groupToUpdate.hasNonNull("attributes")) {
+            group.set("attributes", groupToUpdate.get("attributes").deepCopy());
+        }
+    }
+
+    void deleteGroup(String id) {
+        loadGroup(id);
+
+        List<String> children = childGroupIds(id);
+        children.forEach(this::deleteGroup);
+
+        groups.remove(id);
+        groupParents.remove(id);
+        roleMappings.remove("groups/" + id);
+        userGroups.values().forEach(memberships -> memberships.remove(id));
+    }
+
+    private ObjectNode loadGroup(String id) {
+        return require(groups.get(id), "Could not find group by id");
+    }
+
+    private List<ObjectNode> topLevelGroups() {
+        return groups.values()
+                .stream()
+                .filter(group -> !groupParents.containsKey(id(group)))
+                .collect(Collectors.toList());
+    }
+
+    private List<String> childGroupIds(String parentId) {
+        return groupParents.entrySet()
+                .stream()
+                .filter(entry -> entry.getValue().equals(parentId))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private void updatePaths(ObjectNode group) {
+        String parentId = groupParents.get(id(group));
+        String parentPath = parentId == null ? "" : groups.get(parentId).path("path").asText();
+        group.put("path", parentPath + "/" + group.path("name").asText());
+
+        childGroupIds(id(group)).forEach(childId -> updatePaths(groups.get(childId)));
+    }
+
+    private Optional<ObjectNode> findGroupByPath(String path) {
+        String normalizedPath = path.startsWith("/") ? path : "/" + path;
+
+        return groups.values()
+                .stream()
+                .filter(group -> group.path("path").asText().equals(normalizedPath))
+                .findFirst();
+    }
+
+    /**
+     * Same shape as keycloak's group hierarchy: full representations contain the role mappings, brief ones don't.
+     */
+    private ObjectNode groupView(ObjectNode group, boolean full) {
+        ObjectNode view = group.deepCopy();
+
+        if (full) {
+            String mappingKey = mappingKey("groups", id(group));
+            view.set("realmRoles", toNames(mappedRoles(mappingKey, this::isRealmRole)));
+
+            ObjectNode clientRoles = view.putObject("clientRoles");
+            for (ObjectNode client : clients.values()) {
+                List<ObjectNode> mappedClientRoles = mappedRoles(mappingKey, role -> isRoleOf(role, id(client)));
+                if (!mappedClientRoles.isEmpty()) {
+                    clientRoles.set(client.path("clientId").asText(), toNames(mappedClientRoles));
+                }
+            }
+        }
+
+        ArrayNode subGroups = view.putArray("subGroups");
+        childGroupIds(id(group)).forEach(childId -> subGroups.add(groupView(groups.get(childId), full)));
+
+        return view;
+    }
+
+    /* ------------------------------------------------------------------------------------------------ roles */
+
+    List<ObjectNode> getRoles(String containerId) {
+        return rolesOf(resolveContainer(containerId))
+                .stream()
+                .map(this::roleView)
+                .collect(Collectors.toList());
+    }
+
+    ObjectNode getRole(String containerId, String name) {
+        return roleView(loadRole(containerId, name));
+    }
+
+    void createRole(String containerId, JsonNode roleToCreate) {
+        String resolvedContainerId = resolveContainer(containerId);
+        String name = roleToCreate.path("name").asText();
+        if (findRole(resolvedContainerId, name).isPresent()) {
+            throw SimulatorException.conflict("Role with name " + name + " already exists");
+        }
+
+        ObjectNode role = copyWithId(roleToCreate);
+        role.remove(Arrays.asList("composites", "composite"));
+        role.put("clientRole", containerId != null);
+        role.put("containerId", resolvedContainerId);
+        roles.put(id(role), role);
+    }
+
+    void updateRole(String containerId, String name, JsonNode roleToUpdate) {
+        ObjectNode role = loadRole(containerId, name);
+
+        ObjectNode patch = patch(roleToUpdate, "id", "composites", "composite", "clientRole", "containerId");
+        role.setAll(patch);
+    }
+
+    void deleteRole(String containerId, String name) {
+        ObjectNode role = loadRole(containerId, name);
+
+        roles.remove(id(role));
+        roleMappings.remove(mappingKey("roles", id(role)));
+        roleMappings.values().forEach(mappedRoleIds -> mappedRoleIds.remove(id(role)));
+    }
+
+    /**
+     * @param clientId null for the realm-level roles, otherwise the id of the client the roles are wanted for
+     * @param effective also return the roles reachable via composites
+     */
+    List<ObjectNode> getMappedRoles(String mappingKey, String clientId, boolean effective) {
+        Predicate<ObjectNode> filter = clientId == null ? this::isRealmRole : role -> isRoleOf(role, clientId);
+
+        if (!effective) {
+            return mappedRoles(mappingKey, filter);
+        }
+
+        Set<String> effectiveRoleIds = new LinkedHashSet<>();
+        collectEffectiveRoles(roleMappings.getOrDefault(mappingKey, new LinkedHashSet<>()), effectiveRoleIds);
+
+        return effectiveRoleIds.stream()
+                .map(roles::get)
+                .filter(filter)
+                .map(this::roleView)
+                .collect(Collectors.toList());
+    }
+
+    void addMappedRoles(String mappingKey, String clientId, JsonNode rolesToAdd) {
+        Set<String> mappedRoleIds = roleMappings.computeIfAbsent(mappingKey, k -> new LinkedHashSet<>());
+        for (JsonNode roleToAdd : rolesToAdd) {
+            mappedRoleIds.add(id(resolveRole(clientId, roleToAdd)));
+        }
+    }
+
+    void removeMappedRoles(String mappingKey, String clientId, JsonNode rolesToRemove) {
+        Set<String> mappedRoleIds = roleMappings.getOrDefault(mappingKey, new LinkedHashSet<>());
+        for (JsonNode roleToRemove : rolesToRemove) {
+            mappedRoleIds.remove(id(resolveRole(clientId, roleToRemove)));
+        }
+    }
+
+    /**
+     * Key of the role-, scope- or composite-mapping owned by the given entity, e.g. <code>users/{id}</code>
+     */
+    String mappingKey(String ownerType, String ownerId) {
+        if ("roles".equals(ownerType)) {
+            return ownerType + "/" + ownerId;
+        }
+
+        Map<String, ObjectNode> owners;
+        switch (ownerType) {
+            case "users":
+                owners = users;
+                break;
+            case "groups":
+                owners = groups;
+                break;
+            case "clients":
+                owners = clients;
+                break;
+            case "client-scopes":
+                owners = clientScopes;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mapping owner: " + ownerType);
+        }
+
+        require(owners.get(ownerId), "Could not find " + ownerType + " with id " + ownerId);
+        return ownerType + "/" + ownerId;
+    }
+
+    String compositeKey(String containerId, String roleName) {
+        return "roles/" + id(loadRole(containerId, roleName));
+    }
+
+    private ObjectNode loadRole(String containerId, String name) {
+        return findRole(resolveContainer(containerId), name)
+                .orElseThrow(() -> SimulatorException.notFound("Could not find role"));
+    }
+
+    private Optional<ObjectNode> findRole(String containerId, String name) {
+        return roles.values()
+                .stream()
+                .filter(role -> role.path("containerId").asText().equals(containerId))
+                .filter(role -> role.path("name").asText().equals(name))
+                .findFirst();
+    }
+
+    /**
+     * Keycloak resolves mapped roles by their id, falling back to the name within the expected container
+     */
+    private ObjectNode resolveRole(String clientId, JsonNode role) {
+        ObjectNode roleById = roles.get(role.path("id").asText());
+        if (roleById != null) {
+            return roleById;
+        }
+
+        return findRole(resolveContainer(clientId), role.path("name").asText())
+                .orElseThrow(() -> SimulatorException.notFound("Could not find role"));
+    }
+
+    /**
+     * @param clientId null for the realm itself
+     */
+    private String resolveContainer(String clientId) {
+        if (clientId == null) {
+            return representation.path("id").asText();
+        }
+
+        return id(loadClient(clientId));
+    }
+
+    private List<ObjectNode> rolesOf(String containerId) {
+        return roles.values()
+                .stream()
+                .filter(role -> role.path("containerId").asText().equals(containerId))
+                .collect(Collectors.toList());
+    }
+
+    private List<ObjectNode> mappedRoles(String mappingKey, Predicate<ObjectNode> filter) {
+        return roleMappings.getOrDefault(mappingKey, new LinkedHashSet<>())
+                .stream()
+                .map(roles::get)
+                .filter(Objects::nonNull)
+                .filter(filter)
+                .map(this::roleView)
+                .collect(Collectors.toList());
+    }
+
+    private void collectEffectiveRoles(Collection<String> roleIds, Set<String> effectiveRoleIds) {
+        for (String roleId : roleIds) {
+            if (roles.containsKey(roleId) && effectiveRoleIds.add(roleId)) {
+                collectEffectiveRoles(roleMappings.getOrDefault("roles/" + roleId, new LinkedHashSet<>()), effectiveRoleIds);
+            }
+        }
+    }
+
+    private boolean isRealmRole(ObjectNode role) {
+        return !role.path("clientRole").asBoolean();
+    }
+
+    private boolean isRoleOf(ObjectNode role, String clientId) {
+        return role.path("clientRole").asBoolean() && role.path("containerId").asText().equals(clientId);
+    }
+
+    private ObjectNode roleView(ObjectNode role) {
+        ObjectNode view = role.deepCopy();
+        view.put("composite", !roleMappings.getOrDefault("roles/" + id(role), new LinkedHashSet<>()).isEmpty());
+        return view;
+    }
+
+    /* ---------------------------------------------------------------------------------------------- clients */
+
+    List<ObjectNode> findClients(String clientId) {
+        return clients.values()
+                .stream()
+                .filter(client -> clientId == null || client.path("clientId").asText().equals(clientId))
+                .map(ObjectNode::deepCopy)
+                .collect(Collectors.toList());
+    }
+
+    ObjectNode getClient(String id) {
+        return loadClient(id).deepCopy();
+    }
+
+    String createClient(JsonNode clientToCreate) {
+        String clientId = clientToCreate.path("clientId").asText();
+        if (clients.values().stream().anyMatch(c -> c.path("clientId").asText().equals(clientId))) {
+            throw SimulatorException.conflict("Client " + clientId + " already exists");
+        }
+
+        ObjectNode client = copyWithId(clientToCreate);
+        boolean confidential = !client.path("publicClient").asBoolean() && !client.path("bearerOnly").asBoolean();
+        if (confidential && !client.hasNonNull("secret")) {
+            client.put("secret", newId());
+        }
+        assignIds(client.path("protocolMappers"));
+        clients.put(id(client), client);
+
+        return id(client);
+    }
+
+    void updateClient(String id, JsonNode clientToUpdate) {
+        ObjectNode patch = patch(clientToUpdate, "id");
+        assignIds(patch.path("protocolMappers"));
+
+        loadClient(id).setAll(patch);
+    }
+
+    void deleteClient(String id) {
+        loadClient(id);
+
+        rolesOf(id).forEach(role -> deleteRole(id, role.path("name").asText()));
+        roleMappings.remove("clients/" + id);
+        clients.remove(id);
+    }
+
+    ObjectNode getClientSecret(String id) {
+        ObjectNode secret = objectMapper.createObjectNode();
+        secret.put("type", "secret");
+        secret.put("value", loadClient(id).path("secret").asText(null));
+        return secret;
+    }
+
+    private ObjectNode loadClient(String id) {
+        return require(clients.get(id), "Could not find client");
+    }
+
+    private Optional<ObjectNode> findClientByClientId(String clientId) {
+        return clients.values()
+                .stream()
+                .filter(client -> client.path("clientId").asText().equals(clientId))
+                .findFirst();
+    }
+
+    /* ---------------------------------------------------------------------------------------- client-scopes */
+
+    List<ObjectNode> getClientScopes() {
+        return clientScopes.values()
+                .stream()
+                .map(ObjectNode::deepCopy)
+                .collect(Collectors.toList());
+    }
+
+    ObjectNode getClientScope(String id) {
+        return loadClientScope(id).deepCopy();
+    }
+
+    String createClientScope(JsonNode clientScopeToCreate) {
+        String name = clientScopeToCreate.path("name").asText();
+        if (findClientScopeByName(name).isPresent()) {
+            throw SimulatorException.conflict("Client Scope " + name + " already exists");
+        }
+
+        ObjectNode clientScope = copyWithId(clientScopeToCreate);
+        assignIds(clientScope.path("protocolMappers"));
+        clientScopes.put(id(clientScope), clientScope);
+
+        return id(clientScope);
+    }
+
+    void updateClientScope(String id, JsonNode clientScopeToUpdate) {
+        ObjectNode patch = patch(clientScopeToUpdate, "id", "protocolMappers");
+
+        loadClientScope(id).setAll(patch);
+    }
+
+    void deleteClientScope(String id) {
+        loadClientScope(id);
+
+        clientScopes.remove(id);
+        roleMappings.remove("client-scopes/" + id);
+    }
+
+    List<ObjectNode> getDefaultClientScopes(String property) {
+        List<String> names = new ArrayList<>();
+        representation.path(property).forEach(name -> names.add(name.asText()));
+
+        return clientScopes.values()
+                .stream()
+                .filter(clientScope -> names.contains(clientScope.path("name").asText()))
+                .map(clientScope -> {
+                    ObjectNode view = objectMapper.createObjectNode();
+                    view.put("id", id(clientScope));
+                    view.put("name", clientScope.path("name").asText());
+                    return view;
+                })
+                .collect(Collectors.toList());
+    }
+
+    List<ObjectNode> getProtocolMappers(String clientScopeId) {
+        List<ObjectNode> protocolMappers = new ArrayList<>();
+        loadClientScope(clientScopeId).path("protocolMappers").forEach(m -> protocolMappers.add((ObjectNode) m.deepCopy()));
+        return protocolMappers;
+    }
+
+    String createProtocolMapper(String clientScopeId, JsonNode protocolMapperToCreate) {
+        ObjectNode clientScope = loadClientScope(clientScopeId);
+        ArrayNode protocolMappers = clientScope.hasNonNull("protocolMappers")
+                ? (ArrayNode) clientScope.get("protocolMappers")
+                : clientScope.putArray("protocolMappers");
+
+        String name = protocolMapperToCreate.path("name").asText();
+        for (JsonNode protocolMapper : protocolMappers) {
+            if (protocolMapper.path("name").asText().equals(name)) {
+                throw SimulatorException.conflict("Protocol mapper exists with same name");
+            }
+        }
+
+        ObjectNode protocolMapper = copyWithId(protocolMapperToCreate);
+        protocolMappers.add(protocolMapper);
+
+        return id(protocolMapper);
+    }
+
+    void updateProtocolMapper(String clientScopeId, String id, JsonNode protocolMapperToUpdate) {
+        ObjectNode patch = patch(protocolMapperToUpdate, "id");
+
+        ((ObjectNode) loadProtocolMapper(clientScopeId, id)).setAll(patch);
+    }
+
+    void deleteProtocolMapper(String clientScopeId, String id) {
+        loadProtocolMapper(clientScopeId, id);
+
+        Iterator<JsonNode> protocolMappers = loadClientScope(clientScopeId).path("protocolMappers").iterator();
+        while (protocolMappers.hasNext()) {
+            if (id(protocolMappers.next()).equals(id)) {
+                protocolMappers.remove();
+            }
+        }
+    }
+
+    private JsonNode loadProtocolMapper(String clientScopeId, String id) {
+        for (JsonNode protocolMapper : loadClientScope(clientScopeId).path("protocolMappers")) {
+            if (id(protocolMapper).equals(id)) {
+                return protocolMapper;
+            }
+        }
+
+        throw SimulatorException.notFound("Model not found");
+    }
+
+    private ObjectNode loadClientScope(String id) {
+        return require(clientScopes.get(id), "Could not find client scope");
+    }
+
+    private Optional<ObjectNode> findClientScopeByName(String name) {
+        return clientScopes.values()
+                .stream()
+                .filter(clientScope -> clientScope.path("name").asText().equals(name))
+                .findFirst();
+    }
+
+    /* ---------------------------------------------------------------------------------------------- flows */
+
+    List<ObjectNode> getTopLevelFlows() {
+        return flows.values()
+                .stream()
+                .filter(flow -> flow.path("topLevel").asBoolean())
+                .map(ObjectNode::deepCopy)
+                .collect(Collectors.toList());
+    }
+
+    ObjectNode getFlow(String id) {
+        return loadFlow(id).deepCopy();
+    }
+
+    String createFlow(JsonNode flowToCreate) {
+        String alias = flowToCreate.path("alias").asText();
+        if (findFlowByAlias(alias).isPresent()) {
+            throw SimulatorException.conflict("Flow " + alias + " already exists");
+        }
+
+        ObjectNode flow = copyWithId(flowToCreate);
+        flow.remove("authenticationExecutions");
+        if (!flow.hasNonNull("topLevel")) {
+            flow.put("topLevel", true);
+        }
+        if (!flow.hasNonNull("builtIn")) {
+            flow.put("builtIn", false);
+        }
+        flows.put(id(flow), flow);
+        executions.put(id(flow), new ArrayList<>());
+
+        return id(flow);
+    }
+
+    void deleteFlow(String id) {
+        ObjectNode flow = loadFlow(id);
+        if (flow.path("builtIn").asBoolean()) {
+            throw new SimulatorException(400, "Can't delete built in flow");
+        }
+
+        removeFlow(id);
+    }
+
+    String addExecutionFlow(String flowAlias, JsonNode data) {
+        ObjectNode parentFlow = loadFlowByAlias(flowAlias);
+
+        ObjectNode subFlow = objectMapper.createObjectNode();
+        subFlow.put("alias", data.path("alias").asText());
+        subFlow.put("description", data.path("description").asText(""));
+        subFlow.put("providerId", data.path("type").asText("basic-flow"));
+        subFlow.put("topLevel", false);
+        subFlow.put("builtIn", false);
+        String subFlowId = createFlow(subFlow);
+
+        ObjectNode execution = newExecution(id(parentFlow));
+        execution.put("authenticatorFlow", true);
+        execution.put("flowId", subFlowId);
+        if (data.hasNonNull("provider")) {
+            execution.put("authenticator", data.path("provider").asText());
+        }
+
+        return subFlowId;
+    }
+
+    String addExecution(String flowAlias, JsonNode data) {
+        ObjectNode parentFlow = loadFlowByAlias(flowAlias);
+
+        ObjectNode execution = newExecution(id(parentFlow));
+        execution.put("authenticator", data.path("provider").asText());
+        execution.put("authenticatorFlow", false);
+
+        return id(execution);
+    }
+
+    /**
+     * <code>POST /authentication/executions</code>, the parent flow is referenced by its id
+     */
+    String addExecution(JsonNode executionToCreate) {
+        String parentFlowId = executionToCreate.path("parentFlow").asText();
+        loadFlow(parentFlowId);
+
+        ObjectNode execution = newExecution(parentFlowId);
+        ObjectNode patch = patch(executionToCreate, "id", "parentFlow");
+        if (patch.has("autheticatorFlow")) {
+            patch.set("authenticatorFlow", patch.remove("autheticatorFlow"));
+        }
+        execution.setAll(patch);
+
+        return id(execution);
+    }
+
+    /**
+     * Flattens the executions of the given flow and all of its sub-flows like keycloak does
+     */
+    List<ObjectNode> getExecutions(String flowAlias) {
+        List<ObjectNode> executionInfos = new ArrayList<>();
+        collectExecutionInfos(loadFlowByAlias(flowAlias), 0, executionInfos);
+        return executionInfos;
+    }
+
+    void updateExecution(String flowAlias, JsonNode executionInfo) {
+        loadFlowByAlias(flowAlias);
+
+        ObjectNode execution = findExecution(executionInfo.path("id").asText())
+                .orElseThrow(() -> SimulatorException.notFound("Illegal execution"));
+        if (executionInfo.hasNonNull("requirement")) {
+            execution.put("requirement", executionInfo.path("requirement").asText());
+        }
+    }
+
+    String createExecutionConfig(String executionId, JsonNode configToCreate) {
+        ObjectNode execution = findExecution(executionId)
+                .orElseThrow(() -> SimulatorException.notFound("Illegal execution"));
+
+        ObjectNode config = copyWithId(configToCreate);
+        authenticatorConfigs.put(id(config), config);
+        execution.put("authenticatorConfig", id(config));
+
+        return id(config);
+    }
+
+    ObjectNode getAuthenticatorConfig(String id) {
+        return loadAuthenticatorConfig(id).deepCopy();
+    }
+
+    void updateAuthenticatorConfig(String id, JsonNode configToUpdate) {
+        ObjectNode patch = patch(configToUpdate, "id");
+
+        loadAuthenticatorConfig(id).setAll(patch);
+    }
+
+    void deleteAuthenticatorConfig(String id) {
+        loadAuthenticatorConfig(id);
+
+        authenticatorConfigs.remove(id);
+        executions.values()
+                .stream()
+                .flatMap(List::stream)
+                .filter(execution -> execution.path("authenticatorConfig").asText().equals(id))
+                .forEach(execution -> execution.remove("authenticatorConfig"));
+    }
+
+    private ObjectNode loadFlow(String id) {
+        return require(flows.get(id), "Could not find flow with id");
+    }
+
+    private ObjectNode loadFlowByAlias(String alias) {
+        return findFlowByAlias(alias).orElseThrow(() -> SimulatorException.notFound("Flow not found"));
+    }
+
+    private Optional<ObjectNode> findFlowByAlias(String alias) {
+        return flows.values()
+                .stream()
+                .filter(flow -> flow.path("alias").asText().equals(alias))
+                .findFirst();
+    }
+
+    private Optional<ObjectNode> findExecution(String id) {
+        return executions.values()
+                .stream()
+                .flatMap(List::stream)
+                .filter(execution -> id(execution).equals(id))
+                .findFirst();
+    }
+
+    private ObjectNode loadAuthenticatorConfig(String id) {
+        return require(authenticatorConfigs.get(id), "Could not find authenticator config");
+    }
+
+    private ObjectNode newExecution(String parentFlowId) {
+        List<ObjectNode> flowExecutions = executions.computeIfAbsent(parentFlowId, k -> new ArrayList<>());
+
+        ObjectNode execution = objectMapper.createObjectNode();
+        execution.put("id", newId());
+        execution.put("parentFlow", parentFlowId);
+        execution.put("requirement", "DISABLED");
+        execution.put("priority", flowExecutions.size());
+        flowExecutions.add(execution);
+
+        return execution;
+    }
+
+    private void removeFlow(String id) {
+        flows.remove(id);
+
+        List<ObjectNode> flowExecutions = executions.remove(id);
+        if (flowExecutions == null) {
+            return;
+        }
+        for (ObjectNode execution : flowExecutions) {
+            if (execution.path("authenticatorFlow").asBoolean()) {
+                removeFlow(execution.path("flowId").asText());
+            }
+            if (execution.hasNonNull("authenticatorConfig")) {
+                authenticatorConfigs.remove(execution.path("authenticatorConfig").asText());
+            }
+        }
+    }
+
+    private void collectExecutionInfos(ObjectNode flow, int level, List<ObjectNode> executionInfos) {
+        List<ObjectNode> flowExecutions = executions.getOrDefault(id(flow), new ArrayList<>());
+
+        for (int index = 0; index < flowExecutions.size(); index++) {
+            ObjectNode execution = flowExecutions.get(index);
+
+            ObjectNode info = objectMapper.createObjectNode();
+            info.put("id", id(execution));
+            info.put("requirement", execution.path("requirement").asText());
+            info.put("level", level);
+            info.put("index", index);
+
+            if (execution.path("authenticatorFlow").asBoolean()) {
+                ObjectNode subFlow = flows.get(execution.path("flowId").asText());
+                info.put("displayName", subFlow.path("alias").asText());
+                info.put("authenticationFlow", true);
+                info.put("flowId", id(subFlow));
+                if (execution.hasNonNull("authenticator")) {
+                    info.put("providerId", execution.path("authenticator").asText());
+                }
+                executionInfos.add(info);
+
+                collectExecutionInfos(subFlow, level + 1, executionInfos);
+            } else {
+                info.put("displayName", execution.path("authenticator").asText());
+                info.put("providerId", execution.path("authenticator").asText());
+                info.put("configurable", true);
+                if (execution.hasNonNull("authenticatorConfig")) {
+                    info.put("authenticationConfig", execution.path("authenticatorConfig").asText());
+                }
+                executionInfos.add(info);
+            }
+        }
+    }
+
+    private ObjectNode flowExport(ObjectNode flow) {
+        ObjectNode export = flow.deepCopy();
+        ArrayNode exportedExecutions = export.putArray("authenticationExecutions");
+
+        for (ObjectNode execution : executions.getOrDefault(id(flow), new ArrayList<>())) {
+            ObjectNode exportedExecution = exportedExecutions.addObject();
+            if (execution.hasNonNull("authenticator")) {
+                exportedExecution.put("authenticator", execution.path("authenticator").asText());
+            }
+            if (execution.hasNonNull("authenticatorConfig")) {
+                ObjectNode config = authenticatorConfigs.get(execution.path("authenticatorConfig").asText());
+                exportedExecution.put("authenticatorConfig", config.path("alias").asText());
+            }
+            exportedExecution.put("requirement", execution.path("requirement").asText());
+            exportedExecution.put("priority", execution.path("priority").asInt());
+            exportedExecution.put("userSetupAllowed", false);
+            exportedExecution.put("autheticatorFlow", execution.path("authenticatorFlow").asBoolean());
+            if (execution.path("authenticatorFlow").asBoolean()) {
+                exportedExecution.put("flowAlias", flows.get(execution.path("flowId").asText()).path("alias").asText());
+            }
+        }
+
+        return export;
+    }
+
+    /* ------------------------------------------------------------------------------------- required-actions */
+
+    List<ObjectNode> getRequiredActions() {
+        return requiredActions.values()
+                .stream()
+                .map(ObjectNode::deepCopy)
+                .collect(Collectors.toList());
+    }
+
+    ObjectNode getRequiredAction(String alias) {
+        return loadRequiredAction(alias).deepCopy();
+    }
+
+    void registerRequiredAction(JsonNode requiredActionToRegister) {
+        String providerId = requiredActionToRegister.path("providerId").asText();
+        if (requiredActions.containsKey(providerId)) {
+            throw SimulatorException.conflict("Required action " + providerId + " already registered");
+        }
+
+        ObjectNode requiredAction = objectMapper.createObjectNode();
+        requiredAction.put("alias", providerId);
+        requiredAction.put("name", requiredActionToRegister.path("name").asText(providerId));
+        requiredAction.put("enabled", true);
+        requiredAction.put("defaultAction", false);
+        requiredAction.put("priority", requiredActions.size() * 10);
+        requiredAction.putObject("config");
+        requiredActions.put(providerId, requiredAction);
+    }
+
+    void updateRequiredAction(String alias, JsonNode requiredActionToUpdate) {
+        ObjectNode patch = patch(requiredActionToUpdate, "alias", "providerId");
+
+        loadRequiredAction(alias).setAll(patch);
+    }
+
+    void deleteRequiredAction(String alias) {
+        loadRequiredAction(alias);
+
+        requiredActions.remove(alias);
+    }
+
+    private ObjectNode loadRequiredAction(String alias) {
+        return require(requiredActions.get(alias), "Failed to find required action");
+    }
+
+    /* ---------------------------------------------------------------------------------------- components */
+
+    List<ObjectNode> queryComponents(String parent, String type, String name) {
+        return components.values()
+                .stream()
+                .filter(component -> parent == null || component.path("parentId").asText().equals(parent))
+                .filter(component -> type == null || component.path("providerType").asText().equals(type))
+                .filter(component -> name == null || component.path("name").asText().equals(name))
+                .map(ObjectNode::deepCopy)
+                .collect(Collectors.toList());
+    }
+
+    ObjectNode getComponent(String id) {
+        return loadComponent(id).deepCopy();
+    }
+
+    String createComponent(JsonNode componentToCreate) {
+        ObjectNode component = copyWithId(componentToCreate);
+        if (!component.hasNonNull("parentId")) {
+            component.put("parentId", representation.path("id").asText());
+        }
+        components.put(id(component), component);
+
+        return id(component);
+    }
+
+    void updateComponent(String id, JsonNode componentToUpdate) {
+        ObjectNode patch = patch(componentToUpdate, "id");
+
+        loadComponent(id).setAll(patch);
+    }
+
+    void deleteComponent(String id) {
+        loadComponent(id);
+
+        components.remove(id);
+        queryComponents(id, null, null).forEach(child -> deleteComponent(id(child)));
+    }
+
+    private ObjectNode loadComponent(String id) {
+        return require(components.get(id), "Could not find component");
+    }
+
+    /* ------------------------------------------------------------------------------- identity-providers */
+
+    List<ObjectNode> getIdentityProviders() {
+        return identityProviders.values()
+                .stream()
+                .map(SimulatedRealm::maskClientSecret)
+                .collect(Collectors.toList());
+    }
+
+    ObjectNode getIdentityProvider(String alias) {
+        return maskClientSecret(loadIdentityProvider(alias));
+    }
+
+    String getIdentityProviderClientSecret(String alias) {
+        return loadIdentityProvider(alias).path("config").path(CLIENT_SECRET).asText(null);
+    }
+
+    void createIdentityProvider(JsonNode identityProviderToCreate) {
+        String alias = identityProviderToCreate.path("alias").asText();
+        if (identityProviders.containsKey(alias)) {
+            throw SimulatorException.conflict("Identity Provider " + alias + " already exists");
+        }
+
+        ObjectNode identityProvider = ((ObjectNode) identityProviderToCreate).deepCopy();
+        identityProvider.put("internalId", newId());
+        identityProviders.put(alias, identityProvider);
+    }
+
+    void updateIdentityProvider(String alias, JsonNode identityProviderToUpdate) {
+        ObjectNode identityProvider = loadIdentityProvider(alias);
+        ObjectNode patch = patch(identityProviderToUpdate, "alias", "internalId");
+
+        // like keycloak, the masked secret of a previous read keeps the stored secret
+        JsonNode config = patch.path("config");
+        if (config.isObject() && SECRET_MASK.equals(config.path(CLIENT_SECRET).asText())) {
+            ((ObjectNode) config).set(CLIENT_SECRET, identityProvider.path("config").path(CLIENT_SECRET));
+        }
+
+        identityProvider.setAll(patch);
+    }
+
+    void deleteIdentityProvider(String alias) {
+        loadIdentityProvider(alias);
+
+        identityProviders.remove(alias);
+        identityProviderMappers.values().removeIf(mapper -> mapper.path("identityProviderAlias").asText().equals(alias));
+    }
+
+    List<ObjectNode> getIdentityProviderMappers(String alias) {
+        loadIdentityProvider(alias);
+
+        return identityProviderMappers.values()
+                .stream()
+                .filter(mapper -> mapper.path("identityProviderAlias").asText().equals(alias))
+                .map(ObjectNode::deepCopy)
+                .collect(Collectors.toList());
+    }
+
+    ObjectNode getIdentityProviderMapper(String alias, String id) {
+        return loadIdentityProviderMapper(alias, id).deepCopy();
+    }
+
+    String createIdentityProviderMapper(String alias, JsonNode mapperToCreate) {
+        loadIdentityProvider(alias);
+
+        ObjectNode mapper = copyWithId(mapperToCreate);
+        mapper.put("identityProviderAlias", alias);
+        identityProviderMappers.put(id(mapper), mapper);
+
+        return id(mapper);
+    }
+
+    void updateIdentityProviderMapper(String alias, String id, JsonNode mapperToUpdate) {
+        ObjectNode patch = patch(mapperToUpdate, "id", "identityProviderAlias");
+
+        loadIdentityProviderMapper(alias, id).setAll(patch);
+    }
+
+    void deleteIdentityProviderMapper(String alias, String id) {
+        loadIdentityProviderMapper(alias, id);
+
+        identityProviderMappers.remove(id);
+    }
+
+    /**
+     * keycloak never returns the client secret of an identity provider
+     */
+    private static ObjectNode maskClientSecret(ObjectNode identityProvider) {
+        ObjectNode copy = identityProvider.deepCopy();
+
+        JsonNode config = copy.path("config");
+        if (config.isObject() && config.has(CLIENT_SECRET)) {
+            ((ObjectNode) config).put(CLIENT_SECRET, SECRET_MASK);
+        }
+
+        return copy;
+    }
+
+    private ObjectNode loadIdentityProvider(String alias) {
+        return require(identityProviders.get(alias), "Could not find identity provider");
+    }
+
+    private ObjectNode loadIdentityProviderMapper(String alias, String id) {
+        ObjectNode mapper = identityProviderMappers.get(id);
+        if (mapper == null || !mapper.path("identityProviderAlias").asText().equals(alias)) {
+            throw SimulatorException.notFound("Model not found");
+        }
+
+        return mapper;
+    }
+
+    /* -------------------------------------------------------------------------------------- partial import */
+
+    /**
+     * Imports users, groups, clients and identity providers like keycloak does on <code>POST /partialImport</code>
+     * with the policies <code>FAIL</code> and <code>SKIP</code>. Unlike keycloak, a failing import is not rolled back.
+     */
+    ObjectNode partialImport(JsonNode partialImport) {
+        String policy = partialImport.path("ifResourceExists").asText("FAIL");
+        if (!"FAIL".equals(policy) && !"SKIP".equals(policy)) {
+            throw new SimulatorException(400, "Policy " + policy + " is not simulated");
+        }
+        boolean skipExisting = "SKIP".equals(policy);
+
+        ObjectNode result = objectMapper.createObjectNode();
+        ArrayNode results = objectMapper.createArrayNode();
+
+        for (JsonNode user : partialImport.path("users")) {
+            String username = user.path("username").asText().toLowerCase();
+            boolean exists = users.values().stream().anyMatch(u -> u.path("username").asText().equals(username));
+            if (!skipOrFail(exists, skipExisting, "User", username, results)) {
+                addResult(results, "ADDED", "USER", username, importUser(user));
+            }
+        }
+        for (JsonNode group : partialImport.path("groups")) {
+            String name = group.path("name").asText();
+            boolean exists = topLevelGroups().stream().anyMatch(g -> g.path("name").asText().equals(name));
+            if (!skipOrFail(exists, skipExisting, "Group", name, results)) {
+                addResult(results, "ADDED", "GROUP", name, importGroup(null, group));
+            }
+        }
+        for (JsonNode client : partialImport.path("clients")) {
+            String clientId = client.path("clientId").asText();
+            if (!skipOrFail(findClientByClientId(clientId).isPresent(), skipExisting, "Client", clientId, results)) {
+                addResult(results, "ADDED", "CLIENT", clientId, createClient(client));
+            }
+        }
+        for (JsonNode identityProvider : partialImport.path("identityProviders")) {
+            String alias = identityProvider.path("alias").asText();
+            if (!skipOrFail(identityProviders.containsKey(alias), skipExisting, "Identity provider", alias, results)) {
+                createIdentityProvider(identityProvider);
+                addResult(results, "ADDED", "IDP", alias, identityProviders.get(alias).path("internalId").asText());
+            }
+        }
+
+        result.put("added", countResults(results, "ADDED"));
+        result.put("skipped", countResults(results, "SKIPPED"));
+        result.put("overwritten", 0);
+        result.set("results", results);
+        return result;
+    }
+
+    private boolean skipOrFail(boolean exists, boolean skipExisting, String type, String name, ArrayNode results) {
+        if (!exists) return false;
+
+        if (!skipExisting) {
+            throw SimulatorException.conflict(type + " '" + name + "' already exists");
+        }
+
+        addResult(results, "SKIPPED", type.toUpperCase(), name, null);
+        return true;
+    }
+
+    private String importUser(JsonNode userToImport) {
+        String id = createUser(userToImport);
+        importRoleMappings("users/" + id, userToImport);
+        return id;
+    }
+
+    private String importGroup(String parentId, JsonNode groupToImport) {
+        String id = createGroup(parentId, groupToImport);
+        importRoleMappings("groups/" + id, groupToImport);
+        groupToImport.path("subGroups").forEach(subGroup -> importGroup(id, subGroup));
+        return id;
+    }
+
+    private void importRoleMappings(String mappingKey, JsonNode owner) {
+        addMappedRoles(mappingKey, null, toRoleReferences(owner.path("realmRoles")));
+        owner.path("clientRoles").fields().forEachRemaining(clientRoles -> {
+            String clientUuid = findClientByClientId(clientRoles.getKey())
+                    .map(SimulatedRealm::id)
+                    .orElseThrow(() -> new SimulatorException(400, "Client " + clientRoles.getKey() + " not found"));
+            addMappedRoles(mappingKey, clientUuid, toRoleReferences(clientRoles.getValue()));
+        });
+    }
+
+    private void addResult(ArrayNode results, String action, String resourceType, String resourceName, String id) {
+        ObjectNode result = results.addObject();
+        result.put("action", action);
+        result.put("resourceType", resourceType);
+        result.put("resourceName", resourceName);
+        result.put("id", id);
+    }
+
+    private static int countResults(ArrayNode results, String action) {
+        int count = 0;
+        for (JsonNode result : results) {
+            if (action.equals(result.path("action").asText())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /* ---------------------------------------------------------------------------------------- realm import */
+
+    private void importNestedEntities(JsonNode realmToCreate) {
+        if (realmToCreate.hasNonNull("clientScopes")) {
+            realmToCreate.path("clientScopes").forEach(this::createClientScope);
+        } else {
+            DEFAULT_DEFAULT_CLIENT_SCOPES.forEach(this::createDefaultClientScope);
+            DEFAULT_OPTIONAL_CLIENT_SCOPES.forEach(this::createDefaultClientScope);
+            setDefault("defaultDefaultClientScopes", toTextArray(DEFAULT_DEFAULT_CLIENT_SCOPES));
+            setDefault("defaultOptionalClientScopes", toTextArray(DEFAULT_OPTIONAL_CLIENT_SCOPES));
+        }
+
+        for (String clientId : DEFAULT_CLIENTS) {
+            ObjectNode client = objectMapper.createObjectNode();
+            client.put("clientId", clientId);
+            client.put("publicClient", true);
+            createClient(client);
+        }
+        realmToCreate.path("clients").forEach(client -> {
+            Optional<ObjectNode> defaultClient = findClientByClientId(client.path("clientId").asText());
+            if (defaultClient.isPresent()) {
+                updateClient(id(defaultClient.get()), client);
+            } else {
+                createClient(client);
+            }
+        });
+
+        JsonNode rolesToImport = realmToCreate.path("roles");
+        for (String defaultRole : Arrays.asList("offline_access", "uma_authorization")) {
+            ObjectNode role = objectMapper.createObjectNode();
+            role.put("name", defaultRole);
+            createRole(null, role);
+        }
+        rolesToImport.path("realm").forEach(role -> {
+            if (!findRole(resolveContainer(null), role.path("name").asText()).isPresent()) {
+                createRole(null, role);
+            }
+        });
+        rolesToImport.path("client").fields().forEachRemaining(clientRoles -> {
+            String clientUuid = findClientByClientId(clientRoles.getKey())
+                    .map(SimulatedRealm::id)
+                    .orElseThrow(() -> new SimulatorException(400, "Client " + clientRoles.getKey() + " not found"));
+            clientRoles.getValue().forEach(role -> createRole(clientUuid, role));
+        });
+        importComposites(rolesToImport);
+
+        if (realmToCreate.hasNonNull("requiredActions")) {
+            realmToCreate.path("requiredActions").forEach(requiredAction -> {
+                ObjectNode copy = ((ObjectNode) requiredAction).deepCopy();
+                requiredActions.put(copy.path("alias").asText(), copy);
+            });
+        } else {
+            DEFAULT_REQUIRED_ACTIONS.forEach(this::createDefaultRequiredAction);
+        }
+
+        DEFAULT_FLOWS.forEach(this::createDefaultFlow);
+
+        realmToCreate.path("identityProviders").forEach(this::createIdentityProvider);
+        realmToCreate.path("identityProviderMappers").forEach(mapper ->
+                createIdentityProviderMapper(mapper.path("identityProviderAlias").asText(), mapper)
+        );
+
+        realmToCreate.path("scopeMappings").forEach(scopeMapping -> {
+            String mappingKey = scopeMapping.hasNonNull("client")
+                    ? "clients/" + findClientByClientId(scopeMapping.path("client").asText()).map(SimulatedRealm::id).orElse("")
+                    : "client-scopes/" + findClientScopeByName(scopeMapping.path("clientScope").asText()).map(SimulatedRealm::id).orElse("");
+            addMappedRoles(mappingKey, null, toRoleReferences(scopeMapping.path("roles")));
+        });
+    }
+
+    private void importComposites(JsonNode rolesToImport) {
+        rolesToImport.path("realm").forEach(role -> importComposites(null, role));
+        rolesToImport.path("client").fields().forEachRemaining(clientRoles -> {
+            String clientUuid = findClientByClientId(clientRoles.getKey()).map(SimulatedRealm::id).orElse(null);
+            clientRoles.getValue().forEach(role -> importComposites(clientUuid, role));
+        });
+    }
+
+    private void importComposites(String containerId, JsonNode role) {
+        JsonNode composites = role.path("composites");
+        if (composites.isMissingNode() || composites.isNull()) {
+            return;
+        }
+
+        String compositeKey = compositeKey(containerId, role.path("name").asText());
+        addMappedRoles(compositeKey, null, toRoleReferences(composites.path("realm")));
+        composites.path("client").fields().forEachRemaining(clientComposites -> {
+            String clientUuid = findClientByClientId(clientComposites.getKey())
+                    .map(SimulatedRealm::id)
+                    .orElseThrow(() -> new SimulatorException(400, "Client " + clientComposites.getKey() + " not found"));
+            addMappedRoles(compositeKey, clientUuid, toRoleReferences(clientComposites.getValue()));
+        });
+    }
+
+    private void createDefaultClientScope(String name) {
+        ObjectNode clientScope = objectMapper.createObjectNode();
+        clientScope.put("name", name);
+        clientScope.put("protocol", "openid-connect");
+        createClientScope(clientScope);
+    }
+
+    private void createDefaultRequiredAction(String alias) {
+        ObjectNode requiredAction = objectMapper.createObjectNode();
+        requiredAction.put("alias", alias);
+        requiredAction.put("name", alias);
+        requiredAction.put("providerId", alias);
+        requiredAction.put("enabled", !"terms_and_conditions".equals(alias));
+        requiredAction.put("defaultAction", false);
+        requiredAction.put("priority", (requiredActions.size() + 1) * 10);
+        requiredAction.putObject("config");
+        requiredActions.put(alias, requiredAction);
+    }
+
+    private void createDefaultFlow(String alias, String bindingProperty) {
+        ObjectNode flow = objectMapper.createObjectNode();
+        flow.put("alias", alias);
+        flow.put("providerId", "clients".equals(alias) ? "client-flow" : "basic-flow");
+        flow.put("topLevel", true);
+        flow.put("builtIn", true);
+        createFlow(flow);
+
+        if (bindingProperty != null) {
+            setDefault(bindingProperty, objectMapper.getNodeFactory().textNode(alias));
+        }
+    }
+
+    private ArrayNode exportScopeMappings(boolean exportClients) {
+        ArrayNode scopeMappings = objectMapper.createArrayNode();
+
+        for (ObjectNode client : exportClients ? clients.values() : Collections.<ObjectNode>emptyList()) {
+            List<ObjectNode> mappedRoles = mappedRoles(mappingKey("clients", id(client)), this::isRealmRole);
+            if (!mappedRoles.isEmpty()) {
+                ObjectNode scopeMapping = scopeMappings.addObject();
+                scopeMapping.put("client", client.path("clientId").asText());
+                scopeMapping.set("roles", toNames(mappedRoles));
+            }
+        }
+        for (ObjectNode clientScope : clientScopes.values()) {
+            List<ObjectNode> mappedRoles = mappedRoles(mappingKey("client-scopes", id(clientScope)), this::isRealmRole);
+            if (!mappedRoles.isEmpty()) {
+                ObjectNode scopeMapping = scopeMappings.addObject();
+                scopeMapping.put("clientScope", clientScope.path("name").asText());
+                scopeMapping.set("roles", toNames(mappedRoles));
+            }
+        }
+
+        return scopeMappings;
+    }
+
+    /* ---------------------------------------------------------------------------------------------- helper */
+
+    private void setDefault(String property, JsonNode value) {
+        if (!representation.hasNonNull(property)) {
+            representation.set(property, value);
+        }
+    }
+
+    /**
+     * Copy of the given representation without the read-only and null fields, keycloak doesn't update those
+     */
+    private static ObjectNode patch(JsonNode node, String... ignoredFields) {
+        ObjectNode patch = ((ObjectNode) node).deepCopy();
+        patch.remove(Arrays.asList(ignoredFields));
+
+        List<String> nullFields = new ArrayList<>();
+        patch.fields().forEachRemaining(field -> {
+            if (field.getValue().isNull()) {
+                nullFields.add(field.getKey());
+            }
+        });
+        patch.remove(nullFields);
+
+        return patch;
+    }
+
+    private ObjectNode copyWithId(JsonNode node) {
+        ObjectNode copy = ((ObjectNode) node).deepCopy();
+        if (!copy.hasNonNull("id")) {
+            copy.put("id", newId());
+        }
+        return copy;
+    }
+
+    private void assignIds(JsonNode nodes) {
+        for (JsonNode node : nodes) {
+            if (!node.hasNonNull("id")) {
+                ((ObjectNode) node).put("id", newId());
+            }
+        }
+    }
+
+    private ArrayNode toRoleReferences(JsonNode roleNames) {
+        ArrayNode references = objectMapper.createArrayNode();
+        roleNames.forEach(name -> references.addObject().put("name", name.asText()));
+        return references;
+    }
+
+    private ArrayNode toNames(List<ObjectNode> nodes) {
+        ArrayNode names = objectMapper.createArrayNode();
+        nodes.forEach(node -> names.add(node.path("name").asText()));
+        return names;
+    }
+
+    private ArrayNode toTextArray(List<String> values) {
+        ArrayNode array = objectMapper.createArrayNode();
+        values.forEach(array::add);
+        return array;
+    }
+
+    private ArrayNode toArray(Collection<ObjectNode> nodes, Function<ObjectNode, ObjectNode> view) {
+        ArrayNode array = objectMapper.createArrayNode();
+        nodes.forEach(node -> array.add(view.apply(node)));
+        return array;
+    }
+
+    private static <T> T require(T entity, String message) {
+        if (entity == null) {
+            throw SimulatorException.notFound(message);
+        }
+
+        return entity;
+    }
+
+    private static boolean containsIgnoreCase(String value, String search) {
+        return value.toLowerCase().contains(search.toLowerCase());
+    }
+
+    private static String id(JsonNode node) {
+        return node.path("id").asText();
+    }
+
+    private static String newId() {
+        return UUID.randomUUID().toString();
+    }
+}
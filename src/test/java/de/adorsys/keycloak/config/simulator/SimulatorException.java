@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019-2020 adorsys GmbH & Co. KG @ https://adorsys.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package de.adorsys.keycloak.config.simulator;
+
+/**
+ * Signals an admin API error response (404, 409, ...) of the {@link KeycloakAdminSimulator}
+ */
+class SimulatorException extends RuntimeException {
+    private final int status;
+
+    SimulatorException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    static SimulatorException notFound(String message) {
+        return new SimulatorException(404, message);
+    }
+
+    static SimulatorException conflict(String message) {
+        return new SimulatorException(409, message);
+    }
+
+    int getStatus() {
+        return status;
+    }
+}
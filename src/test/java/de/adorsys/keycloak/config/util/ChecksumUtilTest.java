@@ -20,6 +20,10 @@ package de.adorsys.keycloak.config.util;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -57,6 +61,28 @@ public class ChecksumUtilTest {
         assertThat(checksum, is("b5d4045c3f466fa91fe2cc6abe79232a1a57cdf104f7a26e716e0a1e2789df78"));
     }
 
+    @Test
+    public void shouldThrowOnNullStream() {
+        InputStream nullStream = null;
+
+        assertThrows(IllegalArgumentException.class, () -> ChecksumUtil.checksum(nullStream));
+    }
+
+    @Test
+    public void shouldReturnChecksumForABCasStream() throws Exception {
+        String checksum = ChecksumUtil.checksum(new ByteArrayInputStream(new byte[]{65, 66, 67}));
+        assertThat(checksum, is("b5d4045c3f466fa91fe2cc6abe79232a1a57cdf104f7a26e716e0a1e2789df78"));
+    }
+
+    @Test
+    public void shouldReturnChecksumForABCasDigest() {
+        MessageDigest digest = ChecksumUtil.createDigest();
+        digest.update(new byte[]{65, 66});
+        digest.update(new byte[]{67});
+
+        assertThat(ChecksumUtil.toChecksum(digest), is("b5d4045c3f466fa91fe2cc6abe79232a1a57cdf104f7a26e716e0a1e2789df78"));
+    }
+
     @Test
     public void shouldReturnChecksumForJson() {
         String checksum = ChecksumUtil.checksum("{\"property\":\"value\"}");
@@ -21,6 +21,8 @@ package de.adorsys.keycloak.config.util;
 import de.adorsys.keycloak.config.assets.OtherTestObject;
 import de.adorsys.keycloak.config.assets.TestObject;
 import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -173,6 +175,27 @@ public class CloneUtilTest {
         assertNull(cloned.getStringProperty());
     }
 
+    @Test
+    public void shouldNotSerializeIgnoredPropertyWhileCloning() {
+        // a representation without java.time properties, which can't be serialized as beans on JDK 17
+        RealmRepresentation realm = new RealmRepresentation() {
+            @Override
+            public List<UserRepresentation> getUsers() {
+                throw new IllegalStateException("ignored property must not be serialized");
+            }
+        };
+        realm.setRealm("my-realm");
+        realm.setDisplayName("my realm");
+        realm.setEnabled(true);
+
+        RealmRepresentation cloned = CloneUtil.deepClone(realm, RealmRepresentation.class, "users", "displayName");
+
+        assertNull(cloned.getDisplayName());
+        assertNull(cloned.getUsers());
+        assertEquals("my-realm", cloned.getRealm());
+        assertTrue(cloned.isEnabled());
+    }
+
     @Test
     public void shouldIgnoreDeepPropertyWhileCloning() {
         TestObject object = new TestObject(